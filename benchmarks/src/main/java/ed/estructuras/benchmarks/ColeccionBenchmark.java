@@ -0,0 +1,116 @@
+package ed.estructuras.benchmarks;
+
+import ed.estructuras.lineales.IPila;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Tiempo de las operaciones que recorren toda la colección: iteración,
+ * flujos secuenciales y paralelos, y los métodos masivos heredados de
+ * ColeccionAbstracta.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ColeccionBenchmark {
+
+    @Param({Implementaciones.PILA_LIGADA, Implementaciones.PILA_ARREGLO,
+            Implementaciones.PILA_SEGMENTADA, Implementaciones.PILA_INT,
+            Implementaciones.PILA_BLOQUEANTE, Implementaciones.ARRAY_DEQUE})
+    public String implementacion;
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int tamanio;
+
+    private IPila<Integer> pila;
+    private IPila<Integer> copia;
+    private List<Integer> origen;
+    private Integer ausente;
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        Integer[] valores = Implementaciones.valores(this.tamanio);
+        this.pila = Implementaciones.llena(this.implementacion, valores, this.tamanio);
+        this.copia = Implementaciones.llena(this.implementacion, valores, this.tamanio);
+        this.origen = new ArrayList<>(this.pila);
+        this.ausente = -1;
+    }
+
+    @Benchmark
+    public void iteracion(Blackhole bh) {
+        for(Integer elemento : this.pila) {
+            bh.consume(elemento);
+        }
+    }
+
+    @Benchmark
+    public long sumaSecuencial() {
+        return this.pila.stream().mapToLong(Integer::longValue).sum();
+    }
+
+    /* Mide qué tanto reparte el trabajo el spliterator de cada pila. */
+    @Benchmark
+    public long sumaParalela() {
+        return this.pila.parallelStream().mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public Object[] flujoToArray() {
+        return this.pila.stream().toArray();
+    }
+
+    /* Busca un elemento que no está, así que recorre toda la pila. */
+    @Benchmark
+    public boolean contains() {
+        return this.pila.contains(this.ausente);
+    }
+
+    @Benchmark
+    public Object[] toArray() {
+        return this.pila.toArray();
+    }
+
+    @Benchmark
+    public Integer[] toArrayTipado() {
+        return this.pila.toArray(new Integer[0]);
+    }
+
+    /* O(1) en las pilas que mantienen su hash; PilaBloqueante y
+     * ArrayDeque lo calculan recorriendo todos los elementos. */
+    @Benchmark
+    public int hashCodePila() {
+        return this.pila.hashCode();
+    }
+
+    /* Compara contra otra pila con el mismo contenido. Los hash
+     * coinciden, así que no hay descarte temprano y recorre ambas
+     * completas en todas las implementaciones. */
+    @Benchmark
+    public boolean equalsCompleto() {
+        return this.pila.equals(this.copia);
+    }
+
+    @Benchmark
+    public IPila<Integer> addAll() {
+        IPila<Integer> destino = Implementaciones.crea(this.implementacion);
+        destino.addAll(this.origen);
+        return destino;
+    }
+}
@@ -0,0 +1,76 @@
+package ed.estructuras.benchmarks;
+
+import ed.estructuras.lineales.IPila;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendimiento de las pilas concurrentes con varios hilos sobre la misma
+ * instancia. La cantidad de hilos de empujaExpulsa se cambia con la
+ * opción -t de JMH para ver cómo escala cada implementación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContencionBenchmark {
+
+    @Param({Implementaciones.PILA_CONCURRENTE, Implementaciones.PILA_CONCURRENTE_INSTRUMENTADA,
+            Implementaciones.PILA_ELIMINACION, Implementaciones.PILA_FRAGMENTADA,
+            Implementaciones.PILA_LIGADA_CON_CANDADO, Implementaciones.CONCURRENT_LINKED_DEQUE})
+    public String implementacion;
+
+    @Param({"1000"})
+    public int tamanio;
+
+    private IPila<Integer> pila;
+    private Integer valor;
+
+    @Setup(Level.Iteration)
+    public void prepara() {
+        this.pila = Implementaciones.llena(this.implementacion,
+                                           Implementaciones.valores(this.tamanio),
+                                           this.tamanio);
+        this.valor = 42;
+    }
+
+    /* Cada hilo empuja y luego expulsa, como un almacén de objetos. */
+    @Benchmark
+    @Threads(4)
+    public Integer empujaExpulsa() {
+        this.pila.empuja(this.valor);
+        return this.pila.expulsa();
+    }
+
+    /* Productores y consumidores separados con la misma cantidad de
+     * hilos; un consumidor puede encontrar la pila vacía. */
+    @Benchmark
+    @Group("productoresConsumidores")
+    @GroupThreads(2)
+    public void productor() {
+        this.pila.empuja(this.valor);
+    }
+
+    @Benchmark
+    @Group("productoresConsumidores")
+    @GroupThreads(2)
+    public Integer consumidor() {
+        return this.pila.expulsa();
+    }
+}
@@ -0,0 +1,31 @@
+package ed.estructuras.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de benchmarks.jar. Acepta las mismas opciones que
+ * el ejecutor de JMH y siempre agrega el perfilador de recolección de
+ * basura, de modo que cada resultado incluye la memoria asignada por
+ * operación (gc.alloc.rate.norm) y una regresión en asignaciones se
+ * ve como número.
+ */
+public final class EjecutaBenchmarks {
+
+    private EjecutaBenchmarks() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions linea = new CommandLineOptions(args);
+        Options opciones = new OptionsBuilder()
+            .parent(linea)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(opciones).run();
+    }
+}
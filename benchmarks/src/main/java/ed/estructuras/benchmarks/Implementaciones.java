@@ -0,0 +1,106 @@
+package ed.estructuras.benchmarks;
+
+import ed.estructuras.lineales.IPila;
+import ed.estructuras.lineales.PilaArreglo;
+import ed.estructuras.lineales.PilaBloqueante;
+import ed.estructuras.lineales.PilaConcurrente;
+import ed.estructuras.lineales.PilaEliminacion;
+import ed.estructuras.lineales.PilaFragmentada;
+import ed.estructuras.lineales.PilaInstrumentada;
+import ed.estructuras.lineales.PilaInt;
+import ed.estructuras.lineales.PilaLigada;
+import ed.estructuras.lineales.PilaSegmentada;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Crea las pilas que se comparan en los benchmarks a partir del nombre
+ * que reciben como parámetro de JMH.
+ */
+final class Implementaciones {
+
+    /* Pilas para un solo hilo. ArrayDeque es la referencia de java.util. */
+    static final String PILA_LIGADA = "PilaLigada";
+    static final String PILA_LIGADA_RECICLADA = "PilaLigadaReciclada";
+    static final String PILA_ARREGLO = "PilaArreglo";
+    static final String PILA_ARREGLO_INSTRUMENTADA = "PilaArregloInstrumentada";
+    static final String PILA_SEGMENTADA = "PilaSegmentada";
+    static final String PILA_INT = "PilaInt";
+    static final String ARRAY_DEQUE = "ArrayDeque";
+
+    /* PilaBloqueante no mantiene su hash, así que hashCode y equals la
+     * recorren completa igual que a una colección de java.util. */
+    static final String PILA_BLOQUEANTE = "PilaBloqueante";
+
+    /* Pilas concurrentes. ConcurrentLinkedDeque es la referencia de
+     * java.util.concurrent y PilaLigadaConCandado reproduce el uso
+     * actual de PilaLigada detrás de un candado global. */
+    static final String PILA_CONCURRENTE = "PilaConcurrente";
+    static final String PILA_CONCURRENTE_INSTRUMENTADA = "PilaConcurrenteInstrumentada";
+    static final String PILA_ELIMINACION = "PilaEliminacion";
+    static final String PILA_FRAGMENTADA = "PilaFragmentada";
+    static final String PILA_LIGADA_CON_CANDADO = "PilaLigadaConCandado";
+    static final String CONCURRENT_LINKED_DEQUE = "ConcurrentLinkedDeque";
+
+    /* Nodos que guarda PilaLigadaReciclada para reutilizar. */
+    private static final int NODOS_RECICLABLES = 1024;
+
+    private Implementaciones() {
+    }
+
+    /* Crea una pila vacía de la implementación indicada.
+     * IllegalArgumentException si el nombre no se reconoce. */
+    static IPila<Integer> crea(String nombre) {
+        switch(nombre) {
+        case PILA_LIGADA:
+            return new PilaLigada<>();
+        case PILA_LIGADA_RECICLADA:
+            return new PilaLigada<>(NODOS_RECICLABLES);
+        case PILA_ARREGLO:
+            return new PilaArreglo<>();
+        case PILA_ARREGLO_INSTRUMENTADA:
+            return new PilaInstrumentada<>(new PilaArreglo<>());
+        case PILA_SEGMENTADA:
+            return new PilaSegmentada<>();
+        case PILA_INT:
+            return new PilaInt();
+        case ARRAY_DEQUE:
+            return new PilaDeque<>(new ArrayDeque<>());
+        case PILA_BLOQUEANTE:
+            return new PilaBloqueante<>();
+        case PILA_CONCURRENTE:
+            return new PilaConcurrente<>();
+        case PILA_CONCURRENTE_INSTRUMENTADA:
+            return new PilaInstrumentada<>(new PilaConcurrente<>());
+        case PILA_ELIMINACION:
+            return new PilaEliminacion<>();
+        case PILA_FRAGMENTADA:
+            return new PilaFragmentada<>();
+        case PILA_LIGADA_CON_CANDADO:
+            return new PilaConCandado<>(new PilaLigada<>());
+        case CONCURRENT_LINKED_DEQUE:
+            return new PilaDeque<>(new ConcurrentLinkedDeque<>());
+        default:
+            throw new IllegalArgumentException("Implementación desconocida: " + nombre);
+        }
+    }
+
+    /* Crea una pila con los valores 0 a tam - 1; el último queda en el
+     * tope. */
+    static IPila<Integer> llena(String nombre, Integer[] valores, int tam) {
+        IPila<Integer> pila = crea(nombre);
+        for(int i = 0; i < tam; i++) {
+            pila.empuja(valores[i]);
+        }
+        return pila;
+    }
+
+    /* Valores ya convertidos a Integer para no medir la conversión. */
+    static Integer[] valores(int tam) {
+        Integer[] valores = new Integer[tam];
+        for(int i = 0; i < tam; i++) {
+            valores[i] = i;
+        }
+        return valores;
+    }
+}
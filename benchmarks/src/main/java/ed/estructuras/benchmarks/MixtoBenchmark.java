@@ -0,0 +1,86 @@
+package ed.estructuras.benchmarks;
+
+import ed.estructuras.lineales.IPila;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Secuencias de empuja y expulsa con distintas proporciones. La
+ * secuencia se genera de antemano; si la pila baja de la mitad de
+ * tamanio o rebasa el doble, la operación se invierte para que la
+ * profundidad se mantenga alrededor de tamanio.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MixtoBenchmark {
+
+    /* Operaciones por invocación del benchmark. */
+    private static final int OPERACIONES = 1024;
+
+    @Param({Implementaciones.PILA_LIGADA, Implementaciones.PILA_LIGADA_RECICLADA,
+            Implementaciones.PILA_ARREGLO, Implementaciones.PILA_ARREGLO_INSTRUMENTADA,
+            Implementaciones.PILA_SEGMENTADA, Implementaciones.ARRAY_DEQUE})
+    public String implementacion;
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int tamanio;
+
+    /* Probabilidad de que una operación sea empuja. */
+    @Param({"0.25", "0.5", "0.75"})
+    public double proporcionEmpuja;
+
+    private IPila<Integer> pila;
+    private boolean[] empujes;
+    private Integer valor;
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        this.pila = Implementaciones.llena(this.implementacion,
+                                           Implementaciones.valores(this.tamanio),
+                                           this.tamanio);
+        SplittableRandom azar = new SplittableRandom(7);
+        this.empujes = new boolean[OPERACIONES];
+        for(int i = 0; i < OPERACIONES; i++) {
+            this.empujes[i] = azar.nextDouble() < this.proporcionEmpuja;
+        }
+        this.valor = 42;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERACIONES)
+    public int mixto() {
+        IPila<Integer> p = this.pila;
+        int minimo = Math.max(1, this.tamanio / 2);
+        int maximo = this.tamanio * 2;
+        int suma = 0;
+        for(int i = 0; i < OPERACIONES; i++) {
+            int tam = p.size();
+            boolean empuja = this.empujes[i];
+            if(tam <= minimo) empuja = true;
+            else if(tam >= maximo) empuja = false;
+            if(empuja) {
+                p.empuja(this.valor);
+            } else {
+                suma += p.expulsa();
+            }
+        }
+        return suma;
+    }
+}
@@ -0,0 +1,67 @@
+package ed.estructuras.benchmarks;
+
+import ed.estructuras.lineales.IPila;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendimiento de empuja, expulsa y mira sobre una pila que ya tiene
+ * tamanio elementos. Cada operación deja la pila con la misma
+ * profundidad, de modo que el tamaño no cambia durante la medición.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class OperacionesBenchmark {
+
+    @Param({Implementaciones.PILA_LIGADA, Implementaciones.PILA_LIGADA_RECICLADA,
+            Implementaciones.PILA_ARREGLO, Implementaciones.PILA_SEGMENTADA,
+            Implementaciones.PILA_INT, Implementaciones.ARRAY_DEQUE})
+    public String implementacion;
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int tamanio;
+
+    private IPila<Integer> pila;
+    private Integer valor;
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        this.pila = Implementaciones.llena(this.implementacion,
+                                           Implementaciones.valores(this.tamanio),
+                                           this.tamanio);
+        this.valor = 42;
+    }
+
+    @Benchmark
+    public Integer empujaExpulsa() {
+        this.pila.empuja(this.valor);
+        return this.pila.expulsa();
+    }
+
+    @Benchmark
+    public Integer expulsaEmpuja() {
+        Integer tope = this.pila.expulsa();
+        this.pila.empuja(tope);
+        return tope;
+    }
+
+    @Benchmark
+    public Integer mira() {
+        return this.pila.mira();
+    }
+}
@@ -0,0 +1,78 @@
+package ed.estructuras.benchmarks;
+
+import ed.estructuras.lineales.IPila;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Protege una pila no concurrente con un solo candado global. Es la
+ * referencia contra la que se comparan las pilas concurrentes.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+final class PilaConCandado<E> extends AbstractCollection<E> implements IPila<E> {
+
+    private final IPila<E> pila;
+    private final ReentrantLock candado = new ReentrantLock();
+
+    PilaConCandado(IPila<E> pila) {
+        this.pila = pila;
+    }
+
+    @Override
+    public E mira() {
+        this.candado.lock();
+        try {
+            return this.pila.mira();
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public E expulsa() {
+        this.candado.lock();
+        try {
+            return this.pila.expulsa();
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public void empuja(E e) {
+        this.candado.lock();
+        try {
+            this.pila.empuja(e);
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        this.candado.lock();
+        try {
+            return new ArrayList<>(this.pila).iterator();
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        this.candado.lock();
+        try {
+            return this.pila.size();
+        } finally {
+            this.candado.unlock();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ed.estructuras.benchmarks;
+
+import ed.estructuras.lineales.IPila;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Adapta un {@link Deque} de java.util a {@link IPila} para medirlo con
+ * los mismos benchmarks que las pilas de la biblioteca.
+ * hashCode y equals siguen el contrato de ColeccionAbstracta (suma de
+ * hashes y comparación en orden) recorriendo el deque completo, para
+ * que sirvan de referencia en ColeccionBenchmark.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+final class PilaDeque<E> extends AbstractCollection<E> implements IPila<E> {
+
+    private final Deque<E> deque;
+
+    PilaDeque(Deque<E> deque) {
+        this.deque = deque;
+    }
+
+    @Override
+    public E mira() {
+        return this.deque.peekFirst();
+    }
+
+    @Override
+    public E expulsa() {
+        return this.deque.pollFirst();
+    }
+
+    @Override
+    public void empuja(E e) {
+        this.deque.addFirst(e);
+    }
+
+    @Override
+    public boolean add(E e) {
+        this.deque.addFirst(e);
+        return true;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return this.deque.iterator();
+    }
+
+    @Override
+    public int size() {
+        return this.deque.size();
+    }
+
+    @Override
+    public void clear() {
+        this.deque.clear();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(o == this) return true;
+        if(!(o instanceof Collection<?>)) return false;
+        Collection<?> otra = (Collection<?>) o;
+        if(this.size() != otra.size()) return false;
+        Iterator<?> checador = otra.iterator();
+        for(E elemento : this.deque) {
+            if(!Objects.equals(elemento, checador.next())) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int identificador = 0;
+        for(E elemento : this.deque) {
+            if(elemento != null) identificador += elemento.hashCode();
+        }
+        return identificador;
+    }
+}
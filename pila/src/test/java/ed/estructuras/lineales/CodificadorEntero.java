@@ -0,0 +1,23 @@
+package ed.estructuras.lineales;
+
+import java.nio.ByteBuffer;
+
+/* Codifica cada Integer en un registro de 4 bytes, para las pruebas de
+ * las pilas que guardan registros fuera del montón. */
+final class CodificadorEntero implements Codificador<Integer> {
+
+    @Override
+    public int tamRegistro() {
+        return Integer.BYTES;
+    }
+
+    @Override
+    public void escribe(Integer elemento, ByteBuffer destino, int posicion) {
+        destino.putInt(posicion, elemento);
+    }
+
+    @Override
+    public Integer lee(ByteBuffer origen, int posicion) {
+        return origen.getInt(posicion);
+    }
+}
@@ -0,0 +1,478 @@
+package ed.estructuras.lineales;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Array;
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Contrato de {@link IPila} que cumplen todas las implementaciones. Cada
+ * subclase indica cómo crear su pila, qué valores guardar en ella y qué
+ * operaciones opcionales permite.
+ * @param <E> tipo de datos que guarda la pila.
+ */
+
+/*
+ * Implementación:
+ * - Las pruebas comparan contra un modelo (una lista del fondo al tope
+ *   o un ArrayDeque) en lugar de repetir valores a mano, así que sirven
+ *   igual para pilas de objetos y de primitivos.
+ * - MUCHOS basta para que las pilas de arreglo crezcan y se reduzcan, y
+ *   para que las subclases con segmentos o franjas pequeñas los llenen
+ *   varias veces.
+ * - Las pilas creadas con nueva() que son AutoCloseable se cierran al
+ *   terminar cada prueba.
+ */
+abstract class ContratoIPilaTest<E> {
+
+    /* Elementos con que se llenan las pilas. */
+    static final int MUCHOS = 200;
+
+    /* Valores distintos en las pilas con repetidos. */
+    private static final int DISTINTOS = 20;
+
+    /* Pilas creadas en la prueba actual. */
+    private final List<IPila<E>> creadas = new ArrayList<>();
+
+    /**
+     * Crea una pila vacía de la implementación que se prueba.
+     * @return la pila.
+     * @throws Exception si la pila no se puede crear.
+     */
+    protected abstract IPila<E> creaPila() throws Exception;
+
+    /**
+     * Valor distinto para cada i, nunca <code>null</code>.
+     * @param i número del valor.
+     * @return el valor.
+     */
+    protected abstract E valor(int i);
+
+    /**
+     * Indica si la pila acepta elementos nulos.
+     * @return <tt>true</tt> por omisión.
+     */
+    protected boolean permiteNulos() {
+        return true;
+    }
+
+    /**
+     * Indica si la pila permite removeAll y retainAll.
+     * @return <tt>true</tt> por omisión.
+     */
+    protected boolean permiteFiltrar() {
+        return true;
+    }
+
+    @AfterEach
+    void cierraPilas() throws Exception {
+        for(IPila<E> pila : this.creadas) {
+            if(pila instanceof AutoCloseable cerrable) cerrable.close();
+        }
+        this.creadas.clear();
+    }
+
+    @Test
+    void pilaVacia() throws Exception {
+        IPila<E> pila = this.nueva();
+        assertTrue(pila.isEmpty());
+        assertEquals(0, pila.size());
+        assertNull(pila.mira());
+        assertNull(pila.expulsa());
+        assertFalse(pila.iterator().hasNext());
+        assertEquals(0, pila.hashCode());
+    }
+
+    @Test
+    void expulsaEnOrdenInverso() throws Exception {
+        IPila<E> pila = this.llena(MUCHOS);
+        assertEquals(MUCHOS, pila.size());
+        for(int i = MUCHOS - 1; i >= 0; i--) {
+            assertEquals(this.valor(i), pila.mira());
+            assertEquals(this.valor(i), pila.expulsa());
+        }
+        assertTrue(pila.isEmpty());
+        assertNull(pila.expulsa());
+    }
+
+    @Test
+    void alternaEmpujaYExpulsa() throws Exception {
+        IPila<E> pila = this.nueva();
+        ArrayDeque<E> modelo = new ArrayDeque<>();
+        int siguiente = 0;
+        for(int ronda = 0; ronda < MUCHOS; ronda++) {
+            // Sube tres y baja dos, y al final baja todo: pasa varias
+            // veces por cada capacidad.
+            int empujes = ronda < MUCHOS / 2 ? 3 : 1;
+            for(int k = 0; k < empujes; k++) {
+                E e = this.valor(siguiente++);
+                pila.empuja(e);
+                modelo.push(e);
+            }
+            for(int k = 0; k < 2 && !modelo.isEmpty(); k++) {
+                assertEquals(modelo.pop(), pila.expulsa());
+            }
+            assertEquals(modelo.size(), pila.size());
+            assertEquals(modelo.peek(), pila.mira());
+        }
+        assertEquals(new ArrayList<>(modelo), recorre(pila));
+    }
+
+    @Test
+    void iteraDelTopeAlFondo() throws Exception {
+        IPila<E> pila = this.llena(MUCHOS);
+        List<E> esperado = this.delTopeAlFondo(MUCHOS);
+        assertEquals(esperado, recorre(pila));
+        assertArrayEquals(esperado.toArray(), pila.toArray());
+        assertArrayEquals(esperado.toArray(), pila.toArray(new Object[0]));
+        assertEquals(esperado, pila.stream().collect(Collectors.toList()));
+        assertEquals(esperado, pila.parallelStream().collect(Collectors.toList()));
+        assertEquals(MUCHOS, pila.size());
+    }
+
+    @Test
+    void contieneYLimpia() throws Exception {
+        IPila<E> pila = this.llena(MUCHOS);
+        assertTrue(pila.contains(this.valor(0)));
+        assertTrue(pila.contains(this.valor(MUCHOS - 1)));
+        assertFalse(pila.contains(this.valor(MUCHOS)));
+        assertTrue(pila.containsAll(this.delTopeAlFondo(MUCHOS)));
+        pila.clear();
+        assertTrue(pila.isEmpty());
+        assertNull(pila.mira());
+        assertEquals(0, pila.hashCode());
+        pila.empuja(this.valor(7));
+        assertEquals(this.valor(7), pila.expulsa());
+    }
+
+    @Test
+    void elementosNulos() throws Exception {
+        IPila<E> pila = this.nueva();
+        pila.empuja(this.valor(1));
+        if(this.permiteNulos()) {
+            pila.empuja(null);
+            assertEquals(2, pila.size());
+            assertNull(pila.mira());
+            assertTrue(pila.contains(null));
+            assertEquals(Arrays.asList(null, this.valor(1)), recorre(pila));
+            assertEquals(this.valor(1).hashCode(), pila.hashCode());
+            assertNull(pila.expulsa());
+            assertEquals(this.valor(1), pila.expulsa());
+        } else {
+            assertThrows(NullPointerException.class, () -> pila.empuja(null));
+            assertEquals(1, pila.size());
+            assertEquals(this.valor(1), pila.mira());
+        }
+    }
+
+    @Test
+    void restauraRegresaALaProfundidadMarcada() throws Exception {
+        IPila<E> pila = this.llena(3);
+        Marca marca = pila.marca();
+        assertEquals(3, marca.profundidad());
+        for(int i = 3; i < MUCHOS; i++) {
+            pila.empuja(this.valor(i));
+        }
+        pila.restaura(marca);
+        assertEquals(this.delTopeAlFondo(3), recorre(pila));
+        assertEquals(sumaDeHash(pila), pila.hashCode());
+        pila.restaura(marca);
+        assertEquals(3, pila.size());
+    }
+
+    @Test
+    void marcasAnidadas() throws Exception {
+        IPila<E> pila = this.llena(2);
+        Marca exterior = pila.marca();
+        pila.empuja(this.valor(2));
+        Marca interior = pila.marca();
+        pila.empuja(this.valor(3));
+        pila.restaura(interior);
+        assertEquals(this.valor(2), pila.mira());
+        pila.empuja(this.valor(4));
+        pila.restaura(exterior);
+        assertEquals(this.delTopeAlFondo(2), recorre(pila));
+        assertThrows(IllegalStateException.class, () -> pila.restaura(interior));
+        assertEquals(2, pila.size());
+    }
+
+    @Test
+    void marcaSoloRecuerdaLaProfundidad() throws Exception {
+        IPila<E> pila = this.llena(2);
+        Marca marca = pila.marca();
+        pila.expulsa();
+        pila.expulsa();
+        for(int i = 10; i < 13; i++) {
+            pila.empuja(this.valor(i));
+        }
+        pila.restaura(marca);
+        assertEquals(List.of(this.valor(11), this.valor(10)), recorre(pila));
+        pila.expulsa();
+        assertThrows(IllegalStateException.class, () -> pila.restaura(marca));
+        assertEquals(1, pila.size());
+    }
+
+    @Test
+    void marcaDeOtraPila() throws Exception {
+        IPila<E> pila = this.llena(1);
+        Marca ajena = this.nueva().marca();
+        assertThrows(IllegalArgumentException.class, () -> pila.restaura(ajena));
+        assertEquals(1, pila.size());
+    }
+
+    @Test
+    void empujaTodosRespetaElRango() throws Exception {
+        IPila<E> pila = this.llena(1);
+        E[] valores = this.arreglo(MUCHOS + 2);
+        for(int i = 0; i < valores.length; i++) {
+            valores[i] = this.valor(i);
+        }
+        pila.empujaTodos(valores, 1, MUCHOS);
+        assertEquals(this.delTopeAlFondo(MUCHOS + 1), recorre(pila));
+        assertEquals(sumaDeHash(pila), pila.hashCode());
+        pila.empujaTodos(valores, 0, 0);
+        assertEquals(MUCHOS + 1, pila.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> pila.empujaTodos(valores, MUCHOS, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> pila.empujaTodos(valores, -1, 1));
+        assertEquals(MUCHOS + 1, pila.size());
+    }
+
+    @Test
+    void expulsaVariosEntregaDelTopeHaciaAbajo() throws Exception {
+        IPila<E> pila = this.llena(MUCHOS);
+        E[] destino = this.arreglo(MUCHOS + 10);
+        assertEquals(10, pila.expulsaVarios(10, destino));
+        assertEquals(this.delTopeAlFondo(MUCHOS).subList(0, 10),
+                     Arrays.asList(destino).subList(0, 10));
+        assertEquals(MUCHOS - 10, pila.size());
+        assertEquals(sumaDeHash(pila), pila.hashCode());
+        assertEquals(MUCHOS - 10, pila.expulsaVarios(destino.length, destino));
+        assertEquals(this.delTopeAlFondo(MUCHOS - 10),
+                     Arrays.asList(destino).subList(0, MUCHOS - 10));
+        assertTrue(pila.isEmpty());
+        assertEquals(0, pila.expulsaVarios(1, destino));
+        assertThrows(IllegalArgumentException.class, () -> pila.expulsaVarios(-1, destino));
+        assertThrows(IndexOutOfBoundsException.class,
+                     () -> pila.expulsaVarios(destino.length + 1, destino));
+    }
+
+    @Test
+    void expulsaHastaEntregaDelTopeHaciaAbajo() throws Exception {
+        IPila<E> pila = this.llena(MUCHOS);
+        List<E> recibidos = new ArrayList<>();
+        assertEquals(MUCHOS / 2, pila.expulsaHasta(MUCHOS / 2, recibidos::add));
+        assertEquals(this.delTopeAlFondo(MUCHOS).subList(0, MUCHOS / 2), recibidos);
+        assertEquals(sumaDeHash(pila), pila.hashCode());
+        assertEquals(MUCHOS - MUCHOS / 2, pila.expulsaHasta(MUCHOS, recibidos::add));
+        assertEquals(this.delTopeAlFondo(MUCHOS), recibidos);
+        assertEquals(0, pila.expulsaHasta(1, recibidos::add));
+        assertThrows(IllegalArgumentException.class, () -> pila.expulsaHasta(-1, recibidos::add));
+    }
+
+    @Test
+    void removeAllConservaElOrden() throws Exception {
+        // Pocos consultados buscan linealmente; muchos usan el índice.
+        this.revisaFiltro(List.of(this.valor(3), this.valor(7)), false);
+        this.revisaFiltro(this.consultaGrande(), false);
+    }
+
+    @Test
+    void retainAllConservaElOrden() throws Exception {
+        this.revisaFiltro(List.of(this.valor(3), this.valor(7)), true);
+        this.revisaFiltro(this.consultaGrande(), true);
+    }
+
+    @Test
+    void filtrarConsigoMisma() throws Exception {
+        IPila<E> pila = this.llena(MUCHOS);
+        if(!this.permiteFiltrar()) {
+            assertThrows(UnsupportedOperationException.class, () -> pila.removeAll(pila));
+            assertThrows(UnsupportedOperationException.class, () -> pila.retainAll(pila));
+            return;
+        }
+        assertFalse(pila.retainAll(pila));
+        assertEquals(MUCHOS, pila.size());
+        assertTrue(pila.removeAll(pila));
+        assertTrue(pila.isEmpty());
+        assertFalse(pila.removeAll(pila));
+    }
+
+    @Test
+    void filtroQueFallaNoCambiaLaPila() throws Exception {
+        if(!this.permiteFiltrar()) return;
+        IPila<E> pila = this.conRepetidos();
+        List<E> antes = recorre(pila);
+        Collection<Object> falla = new AbstractCollection<>() {
+            @Override
+            public boolean contains(Object o) {
+                throw new IllegalStateException("Consulta fallida");
+            }
+
+            @Override
+            public Iterator<Object> iterator() {
+                return Collections.emptyIterator();
+            }
+
+            @Override
+            public int size() {
+                return 1;
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> pila.removeAll(falla));
+        assertThrows(IllegalStateException.class, () -> pila.retainAll(falla));
+        assertEquals(antes, recorre(pila));
+        assertEquals(sumaDeHash(pila), pila.hashCode());
+    }
+
+    @Test
+    void hashCodeEsLaSumaDeLosHash() throws Exception {
+        IPila<E> pila = this.llena(MUCHOS);
+        assertEquals(sumaDeHash(pila), pila.hashCode());
+        pila.expulsa();
+        pila.empuja(this.valor(MUCHOS * 2));
+        assertEquals(sumaDeHash(pila), pila.hashCode());
+        pila.restaura(pila.marca());
+        pila.clear();
+        assertEquals(0, pila.hashCode());
+    }
+
+    @Test
+    void equalsComparaEnOrden() throws Exception {
+        IPila<E> una = this.llena(MUCHOS);
+        IPila<E> otra = this.llena(MUCHOS);
+        assertEquals(una, otra);
+        assertEquals(otra, una);
+        assertEquals(una.hashCode(), otra.hashCode());
+        assertTrue(una.equals(new ArrayList<>(this.delTopeAlFondo(MUCHOS))));
+
+        otra.expulsa();
+        assertNotEquals(una, otra);
+        otra.empuja(this.valor(MUCHOS));
+        assertNotEquals(una, otra);
+
+        // Mismos elementos en otro orden: mismo hash, pero distintas.
+        IPila<E> invertida = this.nueva();
+        invertida.empuja(this.valor(1));
+        invertida.empuja(this.valor(0));
+        IPila<E> ordenada = this.llena(2);
+        assertEquals(invertida.hashCode(), ordenada.hashCode());
+        assertNotEquals(invertida, ordenada);
+        assertFalse(ordenada.equals(null));
+    }
+
+    /* Crea una pila que se cierra al terminar la prueba. */
+    IPila<E> nueva() throws Exception {
+        IPila<E> pila = this.creaPila();
+        this.creadas.add(pila);
+        return pila;
+    }
+
+    /* Crea una pila con valor(0) a valor(n - 1); el último queda en el
+     * tope. */
+    IPila<E> llena(int n) throws Exception {
+        IPila<E> pila = this.nueva();
+        for(int i = 0; i < n; i++) {
+            pila.empuja(this.valor(i));
+        }
+        return pila;
+    }
+
+    /* Valores que tiene llena(n) en el orden en que salen. */
+    List<E> delTopeAlFondo(int n) {
+        List<E> valores = new ArrayList<>(n);
+        for(int i = n - 1; i >= 0; i--) {
+            valores.add(this.valor(i));
+        }
+        return valores;
+    }
+
+    /* Elementos de la pila en el orden de su iterador. */
+    static <E> List<E> recorre(IPila<E> pila) {
+        List<E> elementos = new ArrayList<>(pila.size());
+        for(E e : pila) {
+            elementos.add(e);
+        }
+        return elementos;
+    }
+
+    /* Hash que debe tener la pila según el contrato de
+     * ColeccionAbstracta, calculado recorriéndola. */
+    static int sumaDeHash(IPila<?> pila) {
+        int suma = 0;
+        for(Object e : pila) {
+            if(e != null) suma += e.hashCode();
+        }
+        return suma;
+    }
+
+    /* Arreglo del tipo real de los valores, para las pilas de primitivos
+     * cuyo empujaTodos recibe, por ejemplo, Integer[]. */
+    @SuppressWarnings("unchecked")
+    private E[] arreglo(int n) {
+        return (E[]) Array.newInstance(this.valor(0).getClass(), n);
+    }
+
+    /* Pila de MUCHOS elementos con DISTINTOS valores repetidos. */
+    private IPila<E> conRepetidos() throws Exception {
+        IPila<E> pila = this.nueva();
+        for(int i = 0; i < MUCHOS; i++) {
+            pila.empuja(this.valor(i * 7 % DISTINTOS));
+        }
+        return pila;
+    }
+
+    /* Consulta con suficientes elementos para usar el índice hash: la
+     * mitad de los valores de conRepetidos y otros que no están. */
+    private List<E> consultaGrande() {
+        List<E> consulta = new ArrayList<>();
+        for(int i = 0; i < DISTINTOS; i += 2) {
+            consulta.add(this.valor(i));
+            consulta.add(this.valor(DISTINTOS + i));
+        }
+        return consulta;
+    }
+
+    private static boolean filtra(IPila<?> pila, Collection<?> consulta, boolean conservar) {
+        return conservar ? pila.retainAll(consulta) : pila.removeAll(consulta);
+    }
+
+    /* Filtra una pila con repetidos y la compara con el mismo filtro
+     * aplicado a una lista. */
+    private void revisaFiltro(Collection<E> consulta, boolean conservar) throws Exception {
+        IPila<E> pila = this.conRepetidos();
+        if(!this.permiteFiltrar()) {
+            assertThrows(UnsupportedOperationException.class,
+                         () -> filtra(pila, consulta, conservar));
+            return;
+        }
+        List<E> esperado = recorre(pila);
+        esperado.removeIf(e -> consulta.contains(e) != conservar);
+        assertTrue(filtra(pila, consulta, conservar));
+        assertEquals(esperado, recorre(pila));
+        assertEquals(esperado.size(), pila.size());
+        assertEquals(sumaDeHash(pila), pila.hashCode());
+        if(!esperado.isEmpty()) assertEquals(esperado.get(0), pila.mira());
+        assertFalse(filtra(pila, consulta, conservar));
+
+        // La pila sigue funcionando después de filtrar.
+        pila.empuja(this.valor(MUCHOS));
+        assertEquals(this.valor(MUCHOS), pila.expulsa());
+        assertEquals(esperado, recorre(pila));
+    }
+}
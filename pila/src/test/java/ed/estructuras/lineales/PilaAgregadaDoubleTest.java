@@ -0,0 +1,20 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre la vista genérica de PilaAgregadaDouble. */
+class PilaAgregadaDoubleTest extends ContratoIPilaTest<Double> {
+
+    @Override
+    protected IPila<Double> creaPila() {
+        return PilaAgregadaDouble.minimo();
+    }
+
+    @Override
+    protected Double valor(int i) {
+        return (double) i;
+    }
+
+    @Override
+    protected boolean permiteNulos() {
+        return false;
+    }
+}
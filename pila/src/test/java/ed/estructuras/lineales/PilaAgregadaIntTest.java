@@ -0,0 +1,20 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre la vista genérica de PilaAgregadaInt. */
+class PilaAgregadaIntTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return PilaAgregadaInt.suma();
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+
+    @Override
+    protected boolean permiteNulos() {
+        return false;
+    }
+}
@@ -0,0 +1,20 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre la vista genérica de PilaAgregadaLong. */
+class PilaAgregadaLongTest extends ContratoIPilaTest<Long> {
+
+    @Override
+    protected IPila<Long> creaPila() {
+        return PilaAgregadaLong.maximo();
+    }
+
+    @Override
+    protected Long valor(int i) {
+        return (long) i;
+    }
+
+    @Override
+    protected boolean permiteNulos() {
+        return false;
+    }
+}
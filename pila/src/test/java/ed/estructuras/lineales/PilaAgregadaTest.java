@@ -0,0 +1,20 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaAgregada. */
+class PilaAgregadaTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaAgregada<>(Integer::sum);
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+
+    @Override
+    protected boolean permiteNulos() {
+        return false;
+    }
+}
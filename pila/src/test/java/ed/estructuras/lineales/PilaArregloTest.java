@@ -0,0 +1,16 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaArreglo, con una capacidad inicial pequeña
+ * para que crezca y se reduzca varias veces. */
+class PilaArregloTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaArreglo<>(2);
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+}
@@ -0,0 +1,20 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaBloqueante. */
+class PilaBloqueanteTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaBloqueante<>();
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+
+    @Override
+    protected boolean permiteNulos() {
+        return false;
+    }
+}
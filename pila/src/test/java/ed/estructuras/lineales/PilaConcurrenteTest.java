@@ -0,0 +1,15 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaConcurrente, usada desde un solo hilo. */
+class PilaConcurrenteTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaConcurrente<>();
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+}
@@ -0,0 +1,20 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre la vista genérica de PilaDouble. */
+class PilaDoubleTest extends ContratoIPilaTest<Double> {
+
+    @Override
+    protected IPila<Double> creaPila() {
+        return new PilaDouble(2);
+    }
+
+    @Override
+    protected Double valor(int i) {
+        return (double) i;
+    }
+
+    @Override
+    protected boolean permiteNulos() {
+        return false;
+    }
+}
@@ -0,0 +1,15 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaEliminacion, usada desde un solo hilo. */
+class PilaEliminacionTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaEliminacion<>();
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+}
@@ -0,0 +1,109 @@
+package ed.estructuras.lineales;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/* Contrato de IPila sobre PilaEscalonada con segmentos pequeños, de modo
+ * que casi toda la pila está en disco, más las pruebas del presupuesto
+ * de memoria. */
+class PilaEscalonadaTest extends ContratoIPilaTest<Integer> {
+
+    /* Elementos por segmento. */
+    private static final int TAM_SEGMENTO = 4;
+
+    /* Presupuesto de tres segmentos, el mínimo que permite la pila. */
+    private static final int PRESUPUESTO = 3 * TAM_SEGMENTO;
+
+    @TempDir
+    Path directorio;
+
+    @Override
+    protected IPila<Integer> creaPila() throws IOException {
+        return new PilaEscalonada<>(PRESUPUESTO, TAM_SEGMENTO, this.directorio);
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+
+    @Test
+    void empujarRespetaElPresupuesto() throws Exception {
+        PilaEscalonada<Integer> pila = (PilaEscalonada<Integer>) this.nueva();
+        for(int i = 0; i < MUCHOS * 5; i++) {
+            pila.empuja(i);
+            revisaPresupuesto(pila);
+        }
+    }
+
+    @Test
+    void dienteDeSierraRespetaElPresupuesto() throws Exception {
+        // Expulsar hasta la mitad de un segmento precarga el de abajo;
+        // volver a empujar debe descartar esas lecturas en lugar de
+        // acumularlas.
+        PilaEscalonada<Integer> pila = (PilaEscalonada<Integer>) this.nueva();
+        ArrayDeque<Integer> modelo = new ArrayDeque<>();
+        int siguiente = 0;
+        for(int i = 0; i < MUCHOS; i++) {
+            pila.empuja(siguiente);
+            modelo.push(siguiente++);
+        }
+        for(int ronda = 0; ronda < MUCHOS; ronda++) {
+            for(int k = 0; k < 6; k++) {
+                assertEquals(modelo.pop(), pila.expulsa());
+                revisaPresupuesto(pila);
+            }
+            for(int k = 0; k < 12; k++) {
+                pila.empuja(siguiente);
+                modelo.push(siguiente++);
+                revisaPresupuesto(pila);
+            }
+        }
+        while(!modelo.isEmpty()) {
+            assertEquals(modelo.pop(), pila.expulsa());
+            revisaPresupuesto(pila);
+        }
+    }
+
+    @Test
+    void filtrarRespetaElPresupuesto() throws Exception {
+        PilaEscalonada<Integer> pila = (PilaEscalonada<Integer>) this.nueva();
+        for(int i = 0; i < MUCHOS * 5; i++) {
+            pila.empuja(i % 10);
+        }
+        assertTrue(pila.removeAll(List.of(0)));
+        revisaPresupuesto(pila);
+        assertEquals(MUCHOS * 5 - MUCHOS / 2, pila.size());
+    }
+
+    @Test
+    void cerrarBorraLosArchivos() throws Exception {
+        PilaEscalonada<Integer> pila = (PilaEscalonada<Integer>) this.nueva();
+        for(int i = 0; i < MUCHOS; i++) {
+            pila.empuja(i);
+        }
+        assertTrue(pila.segmentosEnDisco() > 0);
+        pila.close();
+        try(Stream<Path> archivos = Files.list(this.directorio)) {
+            assertEquals(0, archivos.count());
+        }
+    }
+
+    /* Los segmentos que no están en disco, contando escrituras y
+     * lecturas en curso, no pasan de los que permite el presupuesto. */
+    private static void revisaPresupuesto(PilaEscalonada<?> pila) {
+        int segmentos = Math.max(1, (pila.size() + TAM_SEGMENTO - 1) / TAM_SEGMENTO);
+        int enMemoria = segmentos - pila.segmentosEnDisco();
+        assertTrue(enMemoria <= PRESUPUESTO / TAM_SEGMENTO,
+                   "Segmentos en memoria: " + enMemoria + " con " + pila.size() + " elementos");
+    }
+}
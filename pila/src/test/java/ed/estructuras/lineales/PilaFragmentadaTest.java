@@ -0,0 +1,17 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaFragmentada. Desde un solo hilo el orden es
+ * LIFO exacto; el límite local pequeño hace que los lotes pasen por la
+ * pila central. */
+class PilaFragmentadaTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaFragmentada<>(2, 8);
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+}
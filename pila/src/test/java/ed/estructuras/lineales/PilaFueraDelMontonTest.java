@@ -0,0 +1,21 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaFueraDelMonton, con segmentos de pocos
+ * registros. */
+class PilaFueraDelMontonTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaFueraDelMonton<>(new CodificadorEntero(), 8);
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+
+    @Override
+    protected boolean permiteNulos() {
+        return false;
+    }
+}
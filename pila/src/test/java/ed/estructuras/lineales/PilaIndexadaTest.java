@@ -0,0 +1,15 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaIndexada con el índice siempre al día. */
+class PilaIndexadaTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaIndexada<>(true);
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+}
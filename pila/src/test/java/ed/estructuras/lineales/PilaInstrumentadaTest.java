@@ -0,0 +1,16 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaInstrumentada, que debe comportarse igual
+ * que la pila que envuelve. */
+class PilaInstrumentadaTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaInstrumentada<>(new PilaArreglo<>(2));
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+}
@@ -0,0 +1,16 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaLigada con reciclaje de nodos: pocos nodos
+ * guardados para que se reutilicen y se creen otros a la vez. */
+class PilaLigadaRecicladaTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaLigada<>(8);
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+}
@@ -0,0 +1,15 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaLigada. */
+class PilaLigadaTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaLigada<>();
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+}
@@ -0,0 +1,20 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre la vista genérica de PilaLong. */
+class PilaLongTest extends ContratoIPilaTest<Long> {
+
+    @Override
+    protected IPila<Long> creaPila() {
+        return new PilaLong(2);
+    }
+
+    @Override
+    protected Long valor(int i) {
+        return (long) i;
+    }
+
+    @Override
+    protected boolean permiteNulos() {
+        return false;
+    }
+}
@@ -0,0 +1,193 @@
+package ed.estructuras.lineales;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/* Contrato de IPila sobre PilaMapeada, más las pruebas de reapertura y
+ * de recuperación después de que el proceso termina sin cerrarla. */
+class PilaMapeadaTest extends ContratoIPilaTest<Integer> {
+
+    /* Posición de las dos ranuras de confirmación en la cabecera del
+     * archivo; cada una empieza con su generación. */
+    private static final int[] RANURAS = {64, 128};
+
+    /* Bytes de cada ranura antes de su CRC. */
+    private static final int CRC_DE_RANURA = 36;
+
+    @TempDir
+    Path directorio;
+
+    /* Número del siguiente archivo de pila. */
+    private int archivos = 0;
+
+    @Override
+    protected IPila<Integer> creaPila() throws IOException {
+        return new PilaMapeada<>(this.archivo(), new CodificadorEntero());
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+
+    @Override
+    protected boolean permiteNulos() {
+        return false;
+    }
+
+    @Test
+    void reabrirConservaLaPila() throws IOException {
+        Path archivo = this.archivo();
+        List<Integer> esperado;
+        try(PilaMapeada<Integer> pila = abre(archivo)) {
+            for(int i = 0; i < MUCHOS; i++) {
+                pila.empuja(i);
+            }
+            for(int i = 0; i < MUCHOS / 4; i++) {
+                pila.expulsa();
+            }
+            pila.removeAll(List.of(3, 5, 7));
+            esperado = recorre(pila);
+        }
+        try(PilaMapeada<Integer> pila = abre(archivo)) {
+            assertEquals(esperado, recorre(pila));
+            assertEquals(sumaDeHash(pila), pila.hashCode());
+            pila.empuja(-1);
+            assertEquals(-1, pila.mira());
+        }
+        try(PilaMapeada<Integer> pila = abre(archivo)) {
+            assertEquals(esperado.size() + 1, pila.size());
+            assertEquals(-1, pila.expulsa());
+        }
+    }
+
+    @Test
+    void unArchivoSoloLoAbreUnaPila() throws IOException {
+        Path archivo = this.archivo();
+        try(PilaMapeada<Integer> pila = abre(archivo)) {
+            assertThrows(IllegalStateException.class, () -> abre(archivo));
+            pila.empuja(1);
+        }
+        try(PilaMapeada<Integer> pila = abre(archivo)) {
+            assertEquals(1, pila.size());
+        }
+    }
+
+    @Test
+    void recuperaLoNoConfirmadoSiElProcesoTermina() throws Exception {
+        Path archivo = this.archivo();
+        terminaDeGolpe(archivo, "empuja");
+        try(PilaMapeada<Integer> pila = abre(archivo)) {
+            // Lo confirmado siempre se recupera; lo demás sólo si la
+            // cola quedó completa, y siempre como prefijo.
+            int tam = pila.size();
+            assertTrue(tam >= 100 && tam <= 150, "Tamaño recuperado: " + tam);
+            assertEquals(this.delTopeAlFondo(tam), recorre(pila));
+        }
+    }
+
+    @Test
+    void recuperaUnEstadoPorElQuePasoLaPila() throws Exception {
+        Path archivo = this.archivo();
+        terminaDeGolpe(archivo, "reemplaza");
+        try(PilaMapeada<Integer> pila = abre(archivo)) {
+            // La pila pasó por 0..69 seguido de 1000..1000+k-1 con k de
+            // 0 a 10; cualquier otro contenido mezclaría estados.
+            List<Integer> recuperado = recorre(pila);
+            int nuevos = recuperado.size() - 70;
+            assertTrue(nuevos >= 0 && nuevos <= 10, "Tamaño recuperado: " + recuperado.size());
+            List<Integer> esperado = new ArrayList<>();
+            for(int i = nuevos - 1; i >= 0; i--) {
+                esperado.add(1000 + i);
+            }
+            esperado.addAll(this.delTopeAlFondo(70));
+            assertEquals(esperado, recuperado);
+        }
+    }
+
+    @Test
+    void usaLaOtraRanuraSiLaUltimaEstaDanada() throws IOException {
+        Path archivo = this.archivo();
+        try(PilaMapeada<Integer> pila = abre(archivo)) {
+            for(int i = 0; i < 10; i++) {
+                pila.empuja(i);
+            }
+        }
+        // Simula que el proceso terminó a medio escribir la última
+        // ranura: su CRC ya no corresponde.
+        try(FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ,
+                                                 StandardOpenOption.WRITE)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(RANURAS[1] + CRC_DE_RANURA + 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            canal.read(cabecera, 0);
+            int ultima = cabecera.getLong(RANURAS[0]) > cabecera.getLong(RANURAS[1])
+                ? RANURAS[0] : RANURAS[1];
+            ByteBuffer dano = ByteBuffer.allocate(4);
+            dano.putInt(0, ~cabecera.getInt(ultima + CRC_DE_RANURA));
+            canal.write(dano, ultima + CRC_DE_RANURA);
+        }
+        try(PilaMapeada<Integer> pila = abre(archivo)) {
+            assertEquals(this.delTopeAlFondo(10), recorre(pila));
+        }
+    }
+
+    private Path archivo() {
+        return this.directorio.resolve("pila" + (this.archivos++));
+    }
+
+    private static PilaMapeada<Integer> abre(Path archivo) throws IOException {
+        return new PilaMapeada<>(archivo, new CodificadorEntero(), PoliticaDeSincronizacion.manual());
+    }
+
+    /* Corre Escritor en otra JVM, que termina sin cerrar la pila. */
+    private static void terminaDeGolpe(Path archivo, String escenario) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process proceso = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                             Escritor.class.getName(), archivo.toString(), escenario)
+            .inheritIO()
+            .start();
+        assertTrue(proceso.waitFor(1, TimeUnit.MINUTES), "El escritor no terminó");
+        assertEquals(Escritor.TERMINO, proceso.exitValue());
+    }
+
+    /* Usa la pila y termina la JVM con halt, sin confirmar ni cerrar. */
+    static final class Escritor {
+        static final int TERMINO = 42;
+
+        public static void main(String[] args) throws IOException {
+            PilaMapeada<Integer> pila = abre(Path.of(args[0]));
+            for(int i = 0; i < 100; i++) {
+                pila.empuja(i);
+            }
+            pila.confirma();
+            if(args[1].equals("empuja")) {
+                for(int i = 100; i < 150; i++) {
+                    pila.empuja(i);
+                }
+            } else {
+                // El primer empuja sobreescribe una casilla confirmada.
+                for(int i = 0; i < 30; i++) {
+                    pila.expulsa();
+                }
+                for(int i = 1000; i < 1010; i++) {
+                    pila.empuja(i);
+                }
+            }
+            Runtime.getRuntime().halt(TERMINO);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaPersistente.Transitoria, que no permite
+ * removeAll ni retainAll. */
+class PilaPersistenteTransitoriaTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaPersistente.Transitoria<>();
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+
+    @Override
+    protected boolean permiteFiltrar() {
+        return false;
+    }
+}
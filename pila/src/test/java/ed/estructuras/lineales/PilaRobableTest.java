@@ -0,0 +1,15 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaRobable, usada sólo por el hilo dueño. */
+class PilaRobableTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaRobable<>();
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+}
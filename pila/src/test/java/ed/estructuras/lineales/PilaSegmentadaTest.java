@@ -0,0 +1,16 @@
+package ed.estructuras.lineales;
+
+/* Contrato de IPila sobre PilaSegmentada, con segmentos pequeños para
+ * cruzar muchos bordes de segmento. */
+class PilaSegmentadaTest extends ContratoIPilaTest<Integer> {
+
+    @Override
+    protected IPila<Integer> creaPila() {
+        return new PilaSegmentada<>(8);
+    }
+
+    @Override
+    protected Integer valor(int i) {
+        return i;
+    }
+}
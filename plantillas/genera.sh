@@ -0,0 +1,35 @@
+#!/bin/sh
+# Genera las pilas de tipos primitivos a partir de las plantillas:
+#   PilaPrimitiva.plantilla          -> PilaInt, PilaLong, PilaDouble
+#   PilaAgregadaPrimitiva.plantilla  -> PilaAgregadaInt, PilaAgregadaLong,
+#                                       PilaAgregadaDouble
+# En las plantillas @T@ es el tipo primitivo, @C@ su clase envolvente y
+# @N@ el nombre que se usa en los métodos y clases de java.util.
+#
+# Uso: plantillas/genera.sh            regenera los archivos en src/
+#      plantillas/genera.sh --revisa   sólo revisa que estén al día
+set -eu
+
+dir=$(cd "$(dirname "$0")" && pwd)
+destino="$dir/../src/ed/estructuras/lineales"
+revisa=false
+[ "${1:-}" = "--revisa" ] && revisa=true
+desactualizados=0
+
+for plantilla in PilaPrimitiva:Pila PilaAgregadaPrimitiva:PilaAgregada; do
+    origen="$dir/${plantilla%%:*}.plantilla"
+    prefijo=${plantilla#*:}
+    for tipos in "int Integer Int" "long Long Long" "double Double Double"; do
+        set -- $tipos
+        archivo="$destino/$prefijo$3.java"
+        if $revisa; then
+            if ! sed "s/@T@/$1/g; s/@C@/$2/g; s/@N@/$3/g" "$origen" | cmp -s - "$archivo"; then
+                echo "Desactualizado: $archivo" >&2
+                desactualizados=1
+            fi
+        else
+            sed "s/@T@/$1/g; s/@C@/$2/g; s/@N@/$3/g" "$origen" > "$archivo"
+        fi
+    done
+done
+exit $desactualizados
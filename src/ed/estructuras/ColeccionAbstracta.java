@@ -2,7 +2,9 @@ package ed.estructuras;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 
 /**
  * Clase que implementa la interfaz Collection.
@@ -18,12 +20,32 @@ import java.util.Iterator;
 *** Detalles de la Implementación
 * - Para métodos que modifican a la colección. El tamaño de la
 *   colección sólo es modificada por el iterador y el método add
+* - Las subclases pueden mantener el hash en hashAcumulado conforme
+*   agregan y quitan elementos (ver mantieneHash). En ese caso hashCode
+*   es O(1) y equals descarta en O(1) colecciones con distinto hash.
+* - containsAll, removeAll y retainAll construyen un índice hash
+*   temporal cuando ambas colecciones rebasan UMBRAL_INDICE, para no
+*   hacer una búsqueda lineal por cada elemento.
 */
 public abstract class ColeccionAbstracta<E> implements Collection<E> {
 
     /** Cantidad de elementos que tiene la estructura. */
     protected int tam = 0;
 
+    /**
+     * Suma de los hash de los elementos no nulos. Sólo es válido si
+     * {@link #mantieneHash()} devuelve <tt>true</tt>; en ese caso la
+     * subclase debe actualizarlo cada vez que agrega o quita un
+     * elemento.
+     */
+    protected int hashAcumulado = 0;
+
+    /**
+     * Tamaño a partir del cual containsAll, removeAll y retainAll
+     * construyen un índice hash en lugar de buscar linealmente.
+     */
+    protected static final int UMBRAL_INDICE = 16;
+
     /**
      * Agrega todos los elementos de la colección c a la colección que
      * manda a llamar el método.
@@ -116,10 +138,32 @@ public abstract class ColeccionAbstracta<E> implements Collection<E> {
         if(c == null) {
             throw new NullPointerException();
         }
-        // Si elemento es null, es válido hacer la asignación, pues
-        // null es un valor válido para object
+
+        int n = c.size();
+        int m = this.size();
+        if(n < UMBRAL_INDICE || m < UMBRAL_INDICE) {
+            // Si elemento es null, es válido hacer la asignación, pues
+            // null es un valor válido para object
+            for(Object elemento : c) {
+                if(!this.contains(elemento)) return false;
+            }
+            return true;
+        }
+
+        // Se indexa el lado más pequeño. HashSet acepta null, así que
+        // se conserva la semántica de contains para elementos nulos.
+        if(n <= m) {
+            Set<Object> pendientes = new HashSet<>(c);
+            for(E elemento : this) {
+                pendientes.remove(elemento);
+                if(pendientes.isEmpty()) return true;
+            }
+            return false;
+        }
+
+        Set<Object> indice = new HashSet<>(this);
         for(Object elemento : c) {
-            if(!this.contains(elemento)) return false;
+            if(!indice.contains(elemento)) return false;
         }
         return true;
     }
@@ -132,7 +176,6 @@ public abstract class ColeccionAbstracta<E> implements Collection<E> {
      * @return <tt>true</tt> si los objetos son iguales, <tt>false</tt> si no.
      */
     @Override
-    //Revisar, todavía podría haber casos que no estoy considerando
     public boolean equals(Object o) {
         if(o == this) return true;
 
@@ -142,6 +185,14 @@ public abstract class ColeccionAbstracta<E> implements Collection<E> {
 
         if(this.size() != objetoEquivalente.size()) return false;
 
+        // Si ambas mantienen su hash, un hash distinto basta para
+        // saber que no son iguales sin recorrerlas.
+        if(this.mantieneHash() && o instanceof ColeccionAbstracta<?>
+           && ((ColeccionAbstracta<?>) o).mantieneHash()
+           && this.hashCode() != o.hashCode()) {
+            return false;
+        }
+
         Iterator<E> checador = this.iterator();
         Iterator<?> checador2 = objetoEquivalente.iterator();
 
@@ -153,7 +204,7 @@ public abstract class ColeccionAbstracta<E> implements Collection<E> {
                 continue;
             }
 
-            if(!elemento.equals(elemento)) return false;
+            if(!elemento.equals(elemento2)) return false;
         }
         return true;
     }
@@ -169,6 +220,8 @@ public abstract class ColeccionAbstracta<E> implements Collection<E> {
     /* El hash no debe utilizarse para verificar igualdad, es verdad
      * que si son iguales tienen el mismo hash, pero no al revés */
     public int hashCode() {
+        if(this.mantieneHash()) return this.hashAcumulado;
+
         int identificador = 0;
         for(E elemento: this) {
             if(elemento == null) continue;
@@ -177,6 +230,27 @@ public abstract class ColeccionAbstracta<E> implements Collection<E> {
         return identificador;
     }
 
+    /**
+     * Indica si la subclase mantiene {@link #hashAcumulado} al día
+     * conforme cambia la colección. Si es así, hashCode no recorre la
+     * colección y equals puede descartar en O(1).
+     * @return <tt>false</tt> por omisión.
+     */
+    /* Los elementos no deben cambiar su hash mientras estén en la
+     * colección, igual que con las llaves de un HashMap. */
+    protected boolean mantieneHash() {
+        return false;
+    }
+
+    /**
+     * Hash con el que un elemento contribuye a hashCode.
+     * @param o el elemento.
+     * @return 0 si o es <code>null</code>, o.hashCode() en otro caso.
+     */
+    protected static int hashDe(Object o) {
+        return o == null ? 0 : o.hashCode();
+    }
+
     /**
      * Nos dice si la colección no contiene elementos.
      * @return <tt>true</tt> si la colección es vacía, <tt>false</tt>
@@ -241,10 +315,11 @@ public abstract class ColeccionAbstracta<E> implements Collection<E> {
         }
 
         boolean coleccionModificada = false;
+        Collection<?> consulta = indiceDeConsulta(c, this.size());
         Iterator<E> checador = this.iterator();
 
         while(checador.hasNext()) {
-            if(c.contains(checador.next())) {
+            if(consulta.contains(checador.next())) {
                 checador.remove();
                 coleccionModificada = true;
             }
@@ -283,10 +358,11 @@ public abstract class ColeccionAbstracta<E> implements Collection<E> {
             return coleccionModificada;
         }
 
+        Collection<?> consulta = indiceDeConsulta(c, this.size());
         Iterator<E> checador = this.iterator();
 
         while(checador.hasNext()) {
-            if(!(c.contains(checador.next()))) {
+            if(!(consulta.contains(checador.next()))) {
                 checador.remove();
                 coleccionModificada = true;
             }
@@ -388,6 +464,23 @@ public abstract class ColeccionAbstracta<E> implements Collection<E> {
         return representacion.toString();
     }
 
+    /**
+     * Entrega una colección con los mismos elementos que c sobre la
+     * cual se harán varias consultas con contains. Si c es grande y no
+     * es un Set, se copia a un HashSet para que cada consulta sea O(1);
+     * en otro caso se devuelve c tal cual.
+     * @param c colección que se va a consultar.
+     * @param consultas cantidad de consultas que se esperan.
+     * @return c o un índice hash con sus elementos.
+     */
+    /* Los Set se respetan porque pueden tener su propio criterio de
+     * igualdad (por ejemplo un TreeSet con comparador). */
+    protected static Collection<?> indiceDeConsulta(Collection<?> c, int consultas) {
+        if(c instanceof Set<?>) return c;
+        if(c.size() < UMBRAL_INDICE || consultas < UMBRAL_INDICE) return c;
+        return new HashSet<>(c);
+    }
+
     /**
      * Se asegura de agregar al elemento e a la colección.
      * @param e elemento que se desea agregar a la colección.
@@ -0,0 +1,84 @@
+package ed.estructuras.lineales;
+
+/**
+ * Reglas de crecimiento y reducción para las pilas respaldadas por
+ * arreglos, y validación de los argumentos de tamaño que comparten
+ * las pilas.
+ */
+
+/*
+ * Implementación:
+ * - El crecimiento es geométrico con el factor indicado, por lo que
+ *   empuja cuesta O(1) amortizado.
+ * - La reducción usa histéresis: sólo se reduce el arreglo cuando la
+ *   ocupación cae por debajo de capacidad / factor², y se reduce a
+ *   capacidad / factor. Así una pila que oscila alrededor del umbral
+ *   no crece y se reduce en cada operación.
+ */
+final class Capacidades {
+
+    /* Capacidad inicial cuando no se especifica una. */
+    static final int CAPACIDAD_POR_OMISION = 16;
+
+    /* Factor de crecimiento cuando no se especifica uno. */
+    static final double FACTOR_POR_OMISION = 2.0;
+
+    /* Tamaño máximo de arreglo que aceptan la mayoría de las JVM. */
+    static final int CAPACIDAD_MAXIMA = Integer.MAX_VALUE - 8;
+
+    private Capacidades() {
+    }
+
+    /* Verifica que la capacidad inicial sea válida.
+     * IllegalArgumentException si es negativa o mayor a la máxima. */
+    static int validaCapacidad(int capacidad) {
+        if(capacidad < 0 || capacidad > CAPACIDAD_MAXIMA) {
+            throw new IllegalArgumentException("Capacidad inválida: " + capacidad);
+        }
+        return capacidad;
+    }
+
+    /* Verifica que el factor de crecimiento sea mayor a 1.
+     * IllegalArgumentException en otro caso. */
+    static double validaFactor(double factor) {
+        if(!(factor > 1.0) || Double.isInfinite(factor)) {
+            throw new IllegalArgumentException("Factor de crecimiento inválido: " + factor);
+        }
+        return factor;
+    }
+
+    /* Calcula la capacidad siguiente a la actual.
+     * IllegalStateException si el arreglo ya tiene la capacidad máxima. */
+    static int crece(int actual, double factor) {
+        if(actual >= CAPACIDAD_MAXIMA) {
+            throw new IllegalStateException("La pila alcanzó su capacidad máxima");
+        }
+        double propuesta = Math.ceil(actual * factor);
+        if(propuesta > CAPACIDAD_MAXIMA) return CAPACIDAD_MAXIMA;
+        return Math.max(actual + 1, (int) propuesta);
+    }
+
+    /* Indica si un arreglo de capacidad actual con tam elementos debe
+     * reducirse sin bajar de la capacidad mínima. */
+    static boolean debeEncoger(int tam, int actual, int minima, double factor) {
+        return actual > minima && tam <= actual / (factor * factor);
+    }
+
+    /* Calcula la capacidad a la que se reduce un arreglo. */
+    static int encoge(int actual, int minima, double factor) {
+        return Math.max(minima, (int) (actual / factor));
+    }
+
+    /* Verifica el argumento n de expulsaVarios y expulsaHasta.
+     * IllegalArgumentException si n es negativo.
+     * IndexOutOfBoundsException si n es mayor que limite, la cantidad
+     * de casillas del destino. */
+    static void revisaCantidad(int n, int limite) {
+        if(n < 0) {
+            throw new IllegalArgumentException("Cantidad inválida: " + n);
+        }
+        if(n > limite) {
+            throw new IndexOutOfBoundsException("El destino sólo tiene " + limite + " casillas");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ed.estructuras.lineales;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Convierte elementos a registros binarios de tamaño fijo y de regreso,
+ * para las pilas que guardan sus elementos fuera del montón de Java.
+ * Los métodos reciben el buffer y la posición del registro y deben
+ * usar sólo los accesos absolutos de ByteBuffer (los que reciben un
+ * índice), sin mover la posición ni el límite del buffer.
+ * @param <E> tipo de datos que se codifican.
+ */
+public interface Codificador<E> {
+
+    /**
+     * Indica cuántos bytes ocupa cada registro.
+     * @return el tamaño de registro, siempre el mismo, mayor a cero y a
+     * lo más 4096 (el máximo que acepta PilaMapeada).
+     */
+    public int tamRegistro();
+
+    /**
+     * Escribe elemento en los tamRegistro() bytes que empiezan en
+     * posicion.
+     * @param elemento elemento a escribir, nunca <code>null</code>.
+     * @param destino buffer donde se escribe.
+     * @param posicion índice del primer byte del registro.
+     */
+    public void escribe(E elemento, ByteBuffer destino, int posicion);
+
+    /**
+     * Crea un elemento nuevo a partir del registro que empieza en
+     * posicion.
+     * @param origen buffer de donde se lee.
+     * @param posicion índice del primer byte del registro.
+     * @return un elemento que no depende del buffer.
+     */
+    public E lee(ByteBuffer origen, int posicion);
+
+    /**
+     * Entrega una vista del registro que empieza en posicion, para
+     * leerlo sin copiarlo. Un codificador puede devolver siempre el
+     * mismo objeto, sólo cambiando el registro al que apunta (patrón
+     * flyweight), de modo que la consulta no crea objetos; en ese caso
+     * la vista sólo es válida hasta la siguiente llamada y mientras el
+     * registro siga en la pila.
+     * Por omisión crea un elemento nuevo con {@link #lee}.
+     * @param origen buffer de donde se lee.
+     * @param posicion índice del primer byte del registro.
+     * @return una vista del registro.
+     */
+    public default E vista(ByteBuffer origen, int posicion) {
+        return this.lee(origen, posicion);
+    }
+}
@@ -0,0 +1,157 @@
+package ed.estructuras.lineales;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Convierte elementos a bytes de longitud variable y de regreso, para
+ * escribir pilas en un flujo con {@link FlujoDePilas}. Cada elemento
+ * debe leer exactamente los bytes que escribió.
+ * @param <E> tipo de datos que se codifican.
+ */
+public interface CodificadorDeFlujo<E> {
+
+    /**
+     * Escribe un elemento.
+     * @param elemento elemento a escribir.
+     * @param salida destino de los bytes.
+     * @throws IOException si falla la escritura.
+     */
+    public void escribe(E elemento, DataOutput salida) throws IOException;
+
+    /**
+     * Lee un elemento escrito con {@link #escribe}.
+     * @param entrada origen de los bytes.
+     * @return el elemento leído.
+     * @throws IOException si falla la lectura o los bytes no son
+     * válidos.
+     */
+    public E lee(DataInput entrada) throws IOException;
+
+    /**
+     * Entrega un codificador que además admite <code>null</code>,
+     * anteponiendo un byte que indica si hay elemento.
+     * @return el codificador que admite nulos.
+     */
+    public default CodificadorDeFlujo<E> conNulos() {
+        CodificadorDeFlujo<E> base = this;
+        return new CodificadorDeFlujo<E>() {
+            public void escribe(E elemento, DataOutput salida) throws IOException {
+                salida.writeBoolean(elemento != null);
+                if(elemento != null) base.escribe(elemento, salida);
+            }
+
+            public E lee(DataInput entrada) throws IOException {
+                return entrada.readBoolean() ? base.lee(entrada) : null;
+            }
+        };
+    }
+
+    /**
+     * Codificador de enteros en 4 bytes.
+     * @return el codificador.
+     */
+    public static CodificadorDeFlujo<Integer> enteros() {
+        return new CodificadorDeFlujo<Integer>() {
+            public void escribe(Integer elemento, DataOutput salida) throws IOException {
+                salida.writeInt(elemento);
+            }
+
+            public Integer lee(DataInput entrada) throws IOException {
+                return entrada.readInt();
+            }
+        };
+    }
+
+    /**
+     * Codificador de enteros largos en 8 bytes.
+     * @return el codificador.
+     */
+    public static CodificadorDeFlujo<Long> largos() {
+        return new CodificadorDeFlujo<Long>() {
+            public void escribe(Long elemento, DataOutput salida) throws IOException {
+                salida.writeLong(elemento);
+            }
+
+            public Long lee(DataInput entrada) throws IOException {
+                return entrada.readLong();
+            }
+        };
+    }
+
+    /**
+     * Codificador de dobles en 8 bytes.
+     * @return el codificador.
+     */
+    public static CodificadorDeFlujo<Double> dobles() {
+        return new CodificadorDeFlujo<Double>() {
+            public void escribe(Double elemento, DataOutput salida) throws IOException {
+                salida.writeDouble(elemento);
+            }
+
+            public Double lee(DataInput entrada) throws IOException {
+                return entrada.readDouble();
+            }
+        };
+    }
+
+    /**
+     * Codificador de cadenas en UTF-8, precedidas por su longitud en
+     * bytes como entero de longitud variable (un byte para cadenas de
+     * menos de 128 bytes). A diferencia de DataOutput.writeUTF, no se
+     * limita a 65535 bytes, sino al tamaño máximo de un bloque de
+     * FlujoDePilas (16 MiB); al leer, una longitud mayor se rechaza con
+     * StreamCorruptedException antes de reservar memoria.
+     * @return el codificador.
+     */
+    public static CodificadorDeFlujo<String> cadenas() {
+        return new CodificadorDeFlujo<String>() {
+            public void escribe(String elemento, DataOutput salida) throws IOException {
+                byte[] bytes = elemento.getBytes(StandardCharsets.UTF_8);
+                FlujoDePilas.escribeVariable(bytes.length, salida);
+                salida.write(bytes);
+            }
+
+            /* Una cadena no puede medir más que el bloque que la
+             * contiene; la longitud se revisa antes de reservar. */
+            public String lee(DataInput entrada) throws IOException {
+                int longitud = FlujoDePilas.leeVariable(entrada);
+                if(longitud > FlujoDePilas.TAM_BLOQUE_MAXIMO) {
+                    throw new StreamCorruptedException("Longitud de cadena inválida: " + longitud);
+                }
+                byte[] bytes = new byte[longitud];
+                entrada.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * Adapta un {@link Codificador} de registros de tamaño fijo, de
+     * modo que los mismos registros que usan las pilas fuera del
+     * montón sirvan para escribir flujos. El codificador que entrega
+     * reutiliza un buffer, así que no debe usarse desde varios hilos a
+     * la vez.
+     * @param <E> tipo de datos que se codifican.
+     * @param codificador codificador de registros.
+     * @return el codificador de flujo.
+     */
+    public static <E> CodificadorDeFlujo<E> deRegistros(Codificador<E> codificador) {
+        ByteBuffer registro = ByteBuffer.allocate(codificador.tamRegistro());
+        return new CodificadorDeFlujo<E>() {
+            public void escribe(E elemento, DataOutput salida) throws IOException {
+                codificador.escribe(elemento, registro, 0);
+                salida.write(registro.array());
+            }
+
+            public E lee(DataInput entrada) throws IOException {
+                entrada.readFully(registro.array());
+                return codificador.lee(registro, 0);
+            }
+        };
+    }
+}
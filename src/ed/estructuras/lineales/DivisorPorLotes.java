@@ -0,0 +1,114 @@
+package ed.estructuras.lineales;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator para las pilas ligadas. Una cadena de nodos no se puede
+ * partir a la mitad sin recorrerla, así que cada división copia a un
+ * arreglo un lote del tope y lo entrega como un spliterator de arreglo,
+ * que sí se divide por índices.
+ * @param <E> tipo de datos que guarda la pila.
+ */
+
+/*
+ * Implementación:
+ * - Los lotes crecen aritméticamente (LOTE_INICIAL, 2 * LOTE_INICIAL,
+ *   ...) hasta LOTE_MAXIMO, de modo que una pila pequeña no paga
+ *   arreglos grandes y una pila de millones de elementos reparte su
+ *   trabajo en pocos lotes.
+ * - La subclase liga el recorrido la primera vez que se usa (no al
+ *   crearse), así que los cambios a la pila entre spliterator() y el
+ *   primer uso sí se ven.
+ * - Como el tamaño se conoce al ligar, el spliterator y los lotes son
+ *   SIZED y SUBSIZED.
+ */
+abstract class DivisorPorLotes<E> implements Spliterator<E> {
+
+    /* Tamaño del primer lote y de cada incremento. */
+    static final int LOTE_INICIAL = 1 << 10;
+
+    /* Tamaño máximo de un lote. */
+    static final int LOTE_MAXIMO = 1 << 25;
+
+    /* Características adicionales de la pila, como IMMUTABLE. */
+    private final int caracteristicas;
+
+    /* Elementos que faltan por recorrer, o -1 si aún no se liga. */
+    private int restantes = -1;
+
+    /* Tamaño del último lote entregado. */
+    private int lote = 0;
+
+    DivisorPorLotes(int caracteristicas) {
+        this.caracteristicas = caracteristicas;
+    }
+
+    /* Se posiciona en el tope de la pila.
+     * @return la cantidad de elementos de la pila. */
+    abstract int liga();
+
+    /* Entrega el elemento actual y avanza hacia el fondo. Sólo se
+     * llama cuando quedan elementos. */
+    abstract E siguiente();
+
+    /* Lanza ConcurrentModificationException si la pila cambió desde
+     * que se ligó. Por omisión no revisa nada. */
+    void revisa() {
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> accion) {
+        Objects.requireNonNull(accion);
+        if(this.restantes() <= 0) return false;
+        this.restantes--;
+        accion.accept(this.siguiente());
+        this.revisa();
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super E> accion) {
+        Objects.requireNonNull(accion);
+        int n = this.restantes();
+        this.restantes = 0;
+        for(int i = 0; i < n; i++) {
+            accion.accept(this.siguiente());
+        }
+        this.revisa();
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+        int n = this.restantes();
+        if(n <= 1) return null;
+        int tamLote = Math.min(n, Math.min(this.lote + LOTE_INICIAL, LOTE_MAXIMO));
+        Object[] copia = new Object[tamLote];
+        for(int i = 0; i < tamLote; i++) {
+            copia[i] = this.siguiente();
+        }
+        this.revisa();
+        this.lote = tamLote;
+        this.restantes = n - tamLote;
+        return Spliterators.spliterator(copia, 0, tamLote, this.characteristics());
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.restantes();
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED
+            | this.caracteristicas;
+    }
+
+    /* Liga el recorrido si hace falta y devuelve los restantes. */
+    private int restantes() {
+        if(this.restantes < 0) this.restantes = this.liga();
+        return this.restantes;
+    }
+}
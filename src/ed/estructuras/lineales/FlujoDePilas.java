@@ -0,0 +1,528 @@
+package ed.estructuras.lineales;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Consumer;
+
+/**
+ * Escribe pilas en un flujo binario compacto, elemento por elemento, y
+ * las lee de regreso directamente a cualquier {@link IPila}, sin
+ * copiarlas antes a un arreglo. Cada elemento se escribe con un
+ * {@link CodificadorDeFlujo}; las pilas primitivas tienen sus propios
+ * métodos que copian los valores en bloque a través de buffers de NIO.
+ * Sirve para guardar puntos de control de pilas grandes sin duplicar
+ * la memoria como con toArray y la serialización de Java.
+ */
+
+/*
+ * Formato:
+ * - Encabezado: MAGIA (int), VERSION (byte) y el tipo de contenido
+ *   (byte): OBJETOS, o INT, LONG o DOUBLE para las pilas primitivas.
+ * - Bloques: cantidad de bytes (int), cantidad de elementos (int) y los
+ *   bytes de esos elementos. Un bloque con 0 bytes y 0 elementos marca
+ *   el final. Los enteros van en big-endian, igual que en DataOutput.
+ * - Los elementos van del fondo al tope, de modo que leerlos con
+ *   empuja reconstruye la pila en el mismo orden.
+ * Implementación:
+ * - La escritura junta elementos en un bloque de alrededor de TAM_BLOQUE
+ *   bytes y lo manda entero; un elemento más grande ocupa un bloque
+ *   propio. Como cada bloque dice cuántos bytes mide, la lectura nunca
+ *   consume bytes de más del flujo, que puede seguir con otros datos.
+ * - Ningún bloque de objetos mide más de TAM_BLOQUE_MAXIMO bytes (la
+ *   escritura falla con un elemento tan grande) y ninguno primitivo más
+ *   de TAM_BLOQUE. La lectura rechaza encabezados más grandes antes de
+ *   reservar memoria, así que un flujo dañado no puede pedir un arreglo
+ *   enorme.
+ * - PilaArreglo, PilaSegmentada, PilaFueraDelMonton y PilaEscalonada se
+ *   recorren del fondo al tope por posición. PilaLigada invierte su
+ *   cadena en su lugar, la recorre y la vuelve a invertir. Las demás
+ *   pilas se copian con toArray y se recorren al revés.
+ * - Las pilas primitivas se copian en bloque entre su arreglo y una
+ *   vista (IntBuffer, LongBuffer o DoubleBuffer) de un buffer directo,
+ *   que el canal escribe o lee sin otra copia intermedia. El contenido
+ *   es el mismo que escriben los codificadores enteros(), largos() y
+ *   dobles(), así que un flujo primitivo también se puede leer en una
+ *   pila de objetos con ellos.
+ */
+public final class FlujoDePilas {
+
+    /* Identifica el inicio de un flujo de pila ("PILF"). */
+    private static final int MAGIA = 0x50494C46;
+
+    /* Versión del formato. */
+    private static final byte VERSION = 1;
+
+    /* Tipos de contenido. */
+    private static final byte OBJETOS = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+
+    /* Bytes de un encabezado de bloque: cantidad de bytes y de
+     * elementos. */
+    private static final int ENCABEZADO_BLOQUE = 8;
+
+    /* Bytes de elementos que se juntan antes de mandar un bloque. */
+    private static final int TAM_BLOQUE = 1 << 16;
+
+    /* Bytes máximos de un bloque de objetos; limita el tamaño de un
+     * elemento a poco menos de 16 MiB. */
+    static final int TAM_BLOQUE_MAXIMO = 1 << 24;
+
+    private FlujoDePilas() {
+    }
+
+    /**
+     * Escribe la pila en salida. La pila no cambia, aunque una
+     * PilaLigada se reacomoda durante la escritura y no debe usarse
+     * desde otro hilo mientras tanto. salida no se cierra.
+     * @param <E> tipo de los elementos.
+     * @param pila pila a escribir.
+     * @param codificador escribe cada elemento.
+     * @param salida flujo destino.
+     * @throws IOException si falla la escritura o algún elemento
+     * codificado mide más de 16 MiB.
+     */
+    public static <E> void escribe(IPila<E> pila, CodificadorDeFlujo<? super E> codificador,
+                                   OutputStream salida) throws IOException {
+        Bloque bloque = new Bloque();
+        DataOutputStream datos = new DataOutputStream(bloque);
+        escribeEncabezado(OBJETOS, salida);
+        try {
+            recorreDesdeElFondo(pila, e -> {
+                try {
+                    codificador.escribe(e, datos);
+                    bloque.elementos++;
+                    if(bloque.bytes() > TAM_BLOQUE_MAXIMO) {
+                        throw new IOException("Elemento demasiado grande para un bloque: más de "
+                                              + TAM_BLOQUE_MAXIMO + " bytes");
+                    }
+                    if(bloque.bytes() >= TAM_BLOQUE) bloque.envia(salida);
+                } catch(IOException x) {
+                    throw new UncheckedIOException(x);
+                }
+            });
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if(bloque.elementos > 0) bloque.envia(salida);
+        bloque.envia(salida);
+        salida.flush();
+    }
+
+    /**
+     * Escribe la pila en canal. Ver {@link #escribe(IPila,
+     * CodificadorDeFlujo, OutputStream)}.
+     * @param <E> tipo de los elementos.
+     * @param pila pila a escribir.
+     * @param codificador escribe cada elemento.
+     * @param canal canal destino, en modo bloqueante.
+     * @throws IOException si falla la escritura o algún elemento
+     * codificado mide más de 16 MiB.
+     */
+    public static <E> void escribe(IPila<E> pila, CodificadorDeFlujo<? super E> codificador,
+                                   WritableByteChannel canal) throws IOException {
+        escribe(pila, codificador, Channels.newOutputStream(canal));
+    }
+
+    /**
+     * Lee una pila de entrada y empuja sus elementos en destino, del
+     * fondo al tope, conforme los lee. Si la lectura falla, destino
+     * conserva los elementos que alcanzó a recibir. entrada no se
+     * cierra y queda justo después del final de la pila.
+     * @param <E> tipo de los elementos.
+     * @param entrada flujo origen.
+     * @param codificador lee cada elemento.
+     * @param destino pila donde se empujan los elementos.
+     * @return cantidad de elementos leídos.
+     * @throws IOException si falla la lectura o el flujo no es válido.
+     */
+    public static <E> int lee(InputStream entrada, CodificadorDeFlujo<? extends E> codificador,
+                              IPila<? super E> destino) throws IOException {
+        DataInputStream fuente = new DataInputStream(entrada);
+        leeEncabezado(fuente, OBJETOS);
+        byte[] bytes = new byte[0];
+        int leidos = 0;
+        while(true) {
+            int tamBloque = fuente.readInt();
+            int elementos = fuente.readInt();
+            if(tamBloque == 0 && elementos == 0) return leidos;
+            if(tamBloque < 0 || elementos < 0 || tamBloque > TAM_BLOQUE_MAXIMO) {
+                throw new StreamCorruptedException("Bloque inválido");
+            }
+            if(bytes.length < tamBloque) bytes = new byte[tamBloque];
+            fuente.readFully(bytes, 0, tamBloque);
+            ByteArrayInputStream bloque = new ByteArrayInputStream(bytes, 0, tamBloque);
+            DataInputStream datos = new DataInputStream(bloque);
+            for(int i = 0; i < elementos; i++) {
+                destino.empuja(codificador.lee(datos));
+            }
+            if(bloque.available() != 0) {
+                throw new StreamCorruptedException("El bloque tiene bytes de más");
+            }
+            leidos += elementos;
+        }
+    }
+
+    /**
+     * Lee una pila de canal. Ver {@link #lee(InputStream,
+     * CodificadorDeFlujo, IPila)}.
+     * @param <E> tipo de los elementos.
+     * @param canal canal origen, en modo bloqueante.
+     * @param codificador lee cada elemento.
+     * @param destino pila donde se empujan los elementos.
+     * @return cantidad de elementos leídos.
+     * @throws IOException si falla la lectura o el flujo no es válido.
+     */
+    public static <E> int lee(ReadableByteChannel canal, CodificadorDeFlujo<? extends E> codificador,
+                              IPila<? super E> destino) throws IOException {
+        return lee(Channels.newInputStream(canal), codificador, destino);
+    }
+
+    /**
+     * Escribe una pila de enteros en canal copiando sus valores en
+     * bloque, sin convertirlos a objeto.
+     * @param pila pila a escribir.
+     * @param canal canal destino, en modo bloqueante.
+     * @throws IOException si falla la escritura.
+     */
+    public static void escribe(PilaInt pila, WritableByteChannel canal) throws IOException {
+        escribePrimitivos(INT, Integer.BYTES, pila.size(),
+                          (desde, b) -> pila.vuelca(desde, b.asIntBuffer()), canal);
+    }
+
+    /**
+     * Escribe una pila de enteros en salida. Ver {@link
+     * #escribe(PilaInt, WritableByteChannel)}.
+     * @param pila pila a escribir.
+     * @param salida flujo destino; no se cierra.
+     * @throws IOException si falla la escritura.
+     */
+    public static void escribe(PilaInt pila, OutputStream salida) throws IOException {
+        escribe(pila, Channels.newChannel(salida));
+        salida.flush();
+    }
+
+    /**
+     * Lee una pila de enteros de canal y agrega sus valores al tope de
+     * destino, copiándolos en bloque a su arreglo.
+     * @param canal canal origen, en modo bloqueante.
+     * @param destino pila donde se agregan los valores.
+     * @return cantidad de valores leídos.
+     * @throws IOException si falla la lectura o el flujo no es de
+     * enteros.
+     */
+    public static int lee(ReadableByteChannel canal, PilaInt destino) throws IOException {
+        return leePrimitivos(INT, Integer.BYTES, b -> destino.carga(b.asIntBuffer()), canal);
+    }
+
+    /**
+     * Lee una pila de enteros de entrada. Ver {@link
+     * #lee(ReadableByteChannel, PilaInt)}.
+     * @param entrada flujo origen; no se cierra.
+     * @param destino pila donde se agregan los valores.
+     * @return cantidad de valores leídos.
+     * @throws IOException si falla la lectura o el flujo no es de
+     * enteros.
+     */
+    public static int lee(InputStream entrada, PilaInt destino) throws IOException {
+        return lee(Channels.newChannel(entrada), destino);
+    }
+
+    /**
+     * Escribe una pila de enteros largos en canal copiando sus valores
+     * en bloque, sin convertirlos a objeto.
+     * @param pila pila a escribir.
+     * @param canal canal destino, en modo bloqueante.
+     * @throws IOException si falla la escritura.
+     */
+    public static void escribe(PilaLong pila, WritableByteChannel canal) throws IOException {
+        escribePrimitivos(LONG, Long.BYTES, pila.size(),
+                          (desde, b) -> pila.vuelca(desde, b.asLongBuffer()), canal);
+    }
+
+    /**
+     * Escribe una pila de enteros largos en salida. Ver {@link
+     * #escribe(PilaLong, WritableByteChannel)}.
+     * @param pila pila a escribir.
+     * @param salida flujo destino; no se cierra.
+     * @throws IOException si falla la escritura.
+     */
+    public static void escribe(PilaLong pila, OutputStream salida) throws IOException {
+        escribe(pila, Channels.newChannel(salida));
+        salida.flush();
+    }
+
+    /**
+     * Lee una pila de enteros largos de canal y agrega sus valores al
+     * tope de destino, copiándolos en bloque a su arreglo.
+     * @param canal canal origen, en modo bloqueante.
+     * @param destino pila donde se agregan los valores.
+     * @return cantidad de valores leídos.
+     * @throws IOException si falla la lectura o el flujo no es de
+     * enteros largos.
+     */
+    public static int lee(ReadableByteChannel canal, PilaLong destino) throws IOException {
+        return leePrimitivos(LONG, Long.BYTES, b -> destino.carga(b.asLongBuffer()), canal);
+    }
+
+    /**
+     * Lee una pila de enteros largos de entrada. Ver {@link
+     * #lee(ReadableByteChannel, PilaLong)}.
+     * @param entrada flujo origen; no se cierra.
+     * @param destino pila donde se agregan los valores.
+     * @return cantidad de valores leídos.
+     * @throws IOException si falla la lectura o el flujo no es de
+     * enteros largos.
+     */
+    public static int lee(InputStream entrada, PilaLong destino) throws IOException {
+        return lee(Channels.newChannel(entrada), destino);
+    }
+
+    /**
+     * Escribe una pila de dobles en canal copiando sus valores en
+     * bloque, sin convertirlos a objeto.
+     * @param pila pila a escribir.
+     * @param canal canal destino, en modo bloqueante.
+     * @throws IOException si falla la escritura.
+     */
+    public static void escribe(PilaDouble pila, WritableByteChannel canal) throws IOException {
+        escribePrimitivos(DOUBLE, Double.BYTES, pila.size(),
+                          (desde, b) -> pila.vuelca(desde, b.asDoubleBuffer()), canal);
+    }
+
+    /**
+     * Escribe una pila de dobles en salida. Ver {@link
+     * #escribe(PilaDouble, WritableByteChannel)}.
+     * @param pila pila a escribir.
+     * @param salida flujo destino; no se cierra.
+     * @throws IOException si falla la escritura.
+     */
+    public static void escribe(PilaDouble pila, OutputStream salida) throws IOException {
+        escribe(pila, Channels.newChannel(salida));
+        salida.flush();
+    }
+
+    /**
+     * Lee una pila de dobles de canal y agrega sus valores al tope de
+     * destino, copiándolos en bloque a su arreglo.
+     * @param canal canal origen, en modo bloqueante.
+     * @param destino pila donde se agregan los valores.
+     * @return cantidad de valores leídos.
+     * @throws IOException si falla la lectura o el flujo no es de
+     * dobles.
+     */
+    public static int lee(ReadableByteChannel canal, PilaDouble destino) throws IOException {
+        return leePrimitivos(DOUBLE, Double.BYTES, b -> destino.carga(b.asDoubleBuffer()), canal);
+    }
+
+    /**
+     * Lee una pila de dobles de entrada. Ver {@link
+     * #lee(ReadableByteChannel, PilaDouble)}.
+     * @param entrada flujo origen; no se cierra.
+     * @param destino pila donde se agregan los valores.
+     * @return cantidad de valores leídos.
+     * @throws IOException si falla la lectura o el flujo no es de
+     * dobles.
+     */
+    public static int lee(InputStream entrada, PilaDouble destino) throws IOException {
+        return lee(Channels.newChannel(entrada), destino);
+    }
+
+    /* Escribe n como entero sin signo de longitud variable: 7 bits por
+     * byte, con el bit alto encendido si siguen más bytes. */
+    static void escribeVariable(int n, DataOutput salida) throws IOException {
+        while((n & ~0x7F) != 0) {
+            salida.writeByte((n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        salida.writeByte(n);
+    }
+
+    /* Lee un entero no negativo escrito con escribeVariable. El quinto
+     * byte sólo puede traer los 4 bits que faltan de un int.
+     * StreamCorruptedException - si el entero no cabe en un int o es
+     * negativo */
+    static int leeVariable(DataInput entrada) throws IOException {
+        int n = 0;
+        for(int corrimiento = 0; corrimiento < 32; corrimiento += 7) {
+            byte b = entrada.readByte();
+            if(corrimiento == 28 && (b & 0xF0) != 0) break;
+            n |= (b & 0x7F) << corrimiento;
+            if(b >= 0) {
+                if(n < 0) break;
+                return n;
+            }
+        }
+        throw new StreamCorruptedException("Entero de longitud variable inválido");
+    }
+
+    /* Aplica accion a cada elemento de pila del fondo al tope. */
+    @SuppressWarnings("unchecked")
+    private static <E> void recorreDesdeElFondo(IPila<E> pila, Consumer<? super E> accion) {
+        if(pila instanceof PilaLigada) {
+            ((PilaLigada<E>) pila).recorreDesdeElFondo(accion);
+        } else if(pila instanceof PilaArreglo) {
+            ((PilaArreglo<E>) pila).recorreDesdeElFondo(accion);
+        } else if(pila instanceof PilaSegmentada) {
+            ((PilaSegmentada<E>) pila).recorreDesdeElFondo(accion);
+        } else if(pila instanceof PilaFueraDelMonton) {
+            ((PilaFueraDelMonton<E>) pila).recorreDesdeElFondo(accion);
+        } else if(pila instanceof PilaEscalonada) {
+            ((PilaEscalonada<E>) pila).recorreDesdeElFondo(accion);
+        } else {
+            Object[] copia = pila.toArray();
+            for(int i = copia.length - 1; i >= 0; i--) {
+                accion.accept((E) copia[i]);
+            }
+        }
+    }
+
+    private static void escribeEncabezado(byte tipo, OutputStream salida) throws IOException {
+        DataOutputStream datos = new DataOutputStream(salida);
+        datos.writeInt(MAGIA);
+        datos.writeByte(VERSION);
+        datos.writeByte(tipo);
+    }
+
+    /* Revisa el encabezado. Con OBJETOS acepta cualquier tipo, pues los
+     * valores primitivos también se pueden leer como objetos. */
+    private static void leeEncabezado(DataInput entrada, byte esperado) throws IOException {
+        if(entrada.readInt() != MAGIA) {
+            throw new StreamCorruptedException("El flujo no contiene una pila");
+        }
+        byte version = entrada.readByte();
+        if(version != VERSION) {
+            throw new StreamCorruptedException("Versión de formato no soportada: " + version);
+        }
+        byte tipo = entrada.readByte();
+        if(esperado != OBJETOS && tipo != esperado) {
+            throw new StreamCorruptedException("El flujo contiene otro tipo de valores: " + tipo);
+        }
+    }
+
+    /* Manda los valores de una pila primitiva en bloques: vuelca copia
+     * en bloque los valores a partir de una posición al buffer y dice
+     * cuántos copió. */
+    private static void escribePrimitivos(byte tipo, int bytesPorValor, int tam, Volcado vuelca,
+                                          WritableByteChannel canal) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ENCABEZADO_BLOQUE + TAM_BLOQUE);
+        buffer.putInt(MAGIA).put(VERSION).put(tipo).flip();
+        escribeTodo(buffer, canal);
+        for(int enviados = 0; enviados < tam; ) {
+            buffer.clear().position(ENCABEZADO_BLOQUE);
+            int cuantos = vuelca.vuelca(enviados, buffer);
+            buffer.putInt(0, cuantos * bytesPorValor).putInt(4, cuantos);
+            buffer.position(0).limit(ENCABEZADO_BLOQUE + cuantos * bytesPorValor);
+            escribeTodo(buffer, canal);
+            enviados += cuantos;
+        }
+        buffer.clear();
+        buffer.putInt(0).putInt(0).flip();
+        escribeTodo(buffer, canal);
+    }
+
+    /* Recibe los valores de una pila primitiva bloque por bloque y los
+     * entrega a carga, que los copia en bloque al arreglo de la pila. */
+    private static int leePrimitivos(byte tipo, int bytesPorValor, Consumer<ByteBuffer> carga,
+                                     ReadableByteChannel canal) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ENCABEZADO_BLOQUE + TAM_BLOQUE);
+        buffer.limit(6);
+        leeTodo(buffer, canal);
+        buffer.flip();
+        if(buffer.getInt() != MAGIA) {
+            throw new StreamCorruptedException("El flujo no contiene una pila");
+        }
+        byte version = buffer.get();
+        if(version != VERSION) {
+            throw new StreamCorruptedException("Versión de formato no soportada: " + version);
+        }
+        byte leido = buffer.get();
+        if(leido != tipo) {
+            throw new StreamCorruptedException("El flujo contiene otro tipo de valores: " + leido);
+        }
+        int leidos = 0;
+        while(true) {
+            buffer.clear().limit(ENCABEZADO_BLOQUE);
+            leeTodo(buffer, canal);
+            int tamBloque = buffer.getInt(0);
+            int cuantos = buffer.getInt(4);
+            if(tamBloque == 0 && cuantos == 0) return leidos;
+            if(cuantos < 0 || tamBloque > TAM_BLOQUE || (long) cuantos * bytesPorValor != tamBloque) {
+                throw new StreamCorruptedException("Bloque inválido");
+            }
+            buffer.clear().limit(tamBloque);
+            leeTodo(buffer, canal);
+            buffer.flip();
+            carga.accept(buffer);
+            leidos += cuantos;
+        }
+    }
+
+    private static void escribeTodo(ByteBuffer buffer, WritableByteChannel canal) throws IOException {
+        while(buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    private static void leeTodo(ByteBuffer buffer, ReadableByteChannel canal) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(canal.read(buffer) < 0) throw new EOFException("El flujo terminó antes de la pila");
+        }
+    }
+
+    /* Copia en bloque los valores de una pila primitiva, a partir de la
+     * posición desde, a la parte libre del buffer. */
+    private interface Volcado {
+        int vuelca(int desde, ByteBuffer destino);
+    }
+
+    /* Bloque en construcción. Reserva al inicio el lugar de su
+     * encabezado para mandarse con una sola escritura. */
+    private static final class Bloque extends ByteArrayOutputStream {
+        /* Elementos escritos en el bloque */
+        int elementos = 0;
+
+        Bloque() {
+            super(ENCABEZADO_BLOQUE + TAM_BLOQUE);
+            this.count = ENCABEZADO_BLOQUE;
+        }
+
+        /* Bytes de elementos en el bloque. */
+        int bytes() {
+            return this.count - ENCABEZADO_BLOQUE;
+        }
+
+        /* Manda el bloque a salida con su encabezado y lo vacía. Un
+         * bloque vacío es el marcador de final. */
+        void envia(OutputStream salida) throws IOException {
+            int bytes = this.bytes();
+            escribeEntero(bytes, this.buf, 0);
+            escribeEntero(this.elementos, this.buf, 4);
+            salida.write(this.buf, 0, this.count);
+            this.count = ENCABEZADO_BLOQUE;
+            this.elementos = 0;
+        }
+
+        private static void escribeEntero(int n, byte[] destino, int posicion) {
+            destino[posicion] = (byte) (n >>> 24);
+            destino[posicion + 1] = (byte) (n >>> 16);
+            destino[posicion + 2] = (byte) (n >>> 8);
+            destino[posicion + 3] = (byte) n;
+        }
+    }
+}
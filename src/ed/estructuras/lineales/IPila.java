@@ -7,6 +7,8 @@
 package ed.estructuras.lineales;
 
 import java.util.Collection;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Estructura "Último en entrar, primero en salir".
@@ -40,4 +42,93 @@ public interface IPila<E> extends Collection<E> {
     //@throws IllegalArgumentException si se intenta agregar <code>null</code>.
     public void empuja(E e);
 
+    /**
+     * Agrega al tope de la pila los elementos
+     * <code>elementos[desde]</code> a
+     * <code>elementos[desde + cuantos - 1]</code>, en ese orden; el
+     * último queda en el tope.
+     * Las implementaciones pueden hacerlo con una sola actualización
+     * del tamaño, o con un solo CAS o candado si son concurrentes.
+     * @param elementos arreglo con los elementos a agregar.
+     * @param desde posición del primer elemento a agregar.
+     * @param cuantos cantidad de elementos a agregar.
+     * @throws NullPointerException si elementos es <code>null</code>.
+     * @throws IndexOutOfBoundsException si el rango no está dentro del
+     * arreglo.
+     */
+    public default void empujaTodos(E[] elementos, int desde, int cuantos) {
+        Objects.checkFromIndexSize(desde, cuantos, elementos.length);
+        for(int i = desde; i < desde + cuantos; i++) {
+            this.empuja(elementos[i]);
+        }
+    }
+
+    /**
+     * Expulsa hasta n elementos y los guarda en destino, empezando en
+     * la posición 0, en el orden en que salen (el tope primero).
+     * @param n cantidad máxima de elementos a expulsar.
+     * @param destino arreglo donde se guardan los elementos.
+     * @return cantidad de elementos que realmente se expulsaron, que
+     * es menor a n si la pila tenía menos elementos.
+     * @throws NullPointerException si destino es <code>null</code>.
+     * @throws IllegalArgumentException si n es negativo.
+     * @throws IndexOutOfBoundsException si n es mayor que la longitud
+     * de destino.
+     */
+    public default int expulsaVarios(int n, E[] destino) {
+        Capacidades.revisaCantidad(n, destino.length);
+        int expulsados = 0;
+        while(expulsados < n && !this.isEmpty()) {
+            destino[expulsados++] = this.expulsa();
+        }
+        return expulsados;
+    }
+
+    /**
+     * Expulsa hasta n elementos y entrega cada uno a accion, en el
+     * orden en que salen (el tope primero).
+     * @param n cantidad máxima de elementos a expulsar.
+     * @param accion recibe cada elemento expulsado.
+     * @return cantidad de elementos que realmente se expulsaron.
+     * @throws NullPointerException si accion es <code>null</code>.
+     * @throws IllegalArgumentException si n es negativo.
+     */
+    public default int expulsaHasta(int n, Consumer<? super E> accion) {
+        Objects.requireNonNull(accion);
+        Capacidades.revisaCantidad(n, Integer.MAX_VALUE);
+        int expulsados = 0;
+        while(expulsados < n && !this.isEmpty()) {
+            accion.accept(this.expulsa());
+            expulsados++;
+        }
+        return expulsados;
+    }
+
+    /**
+     * Crea un punto de control con la profundidad actual de la pila,
+     * para regresar a ella después con {@link #restaura(Marca)}. No
+     * copia elementos.
+     * @return la marca.
+     */
+    public default Marca marca() {
+        return new Marca(this, this.size());
+    }
+
+    /**
+     * Expulsa todos los elementos empujados después de crear marca, de
+     * modo que la pila regresa a la profundidad marcada. Cuesta lo
+     * mismo que expulsar esos elementos, es decir, O(1) amortizado por
+     * cada empuja desde la marca; las implementaciones lo hacen en
+     * bloque. En pilas concurrentes no es atómico con respecto a otros
+     * hilos.
+     * @param marca marca creada por esta pila.
+     * @throws IllegalArgumentException si la marca es de otra pila.
+     * @throws IllegalStateException si la pila tiene menos elementos que
+     * la profundidad marcada (por ejemplo, porque ya se restauró una
+     * marca exterior).
+     */
+    public default void restaura(Marca marca) {
+        marca.revisa(this, this.size());
+        this.expulsaHasta(this.size() - marca.profundidad(), e -> { });
+    }
 }
@@ -0,0 +1,98 @@
+package ed.estructuras.lineales;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pila con capacidad acotada que además permite esperar a que haya
+ * lugar para empujar o elementos para expulsar.
+ * Los métodos de {@link IPila} no esperan: empuja lanza
+ * IllegalStateException si la pila está llena y expulsa devuelve
+ * <code>null</code> si está vacía.
+ * Como <code>null</code> indica que se agotó el tiempo de espera, las
+ * implementaciones no permiten elementos nulos.
+ */
+public interface IPilaBloqueante<E> extends IPila<E> {
+
+    /**
+     * Agrega un elemento al tope de la pila, esperando a que haya
+     * lugar si está llena.
+     * @param e Referencia al elemento a agregar.
+     * @throws InterruptedException si el hilo se interrumpe mientras
+     * espera.
+     * @throws NullPointerException si e es <code>null</code>.
+     */
+    public void empujaBloqueante(E e) throws InterruptedException;
+
+    /**
+     * Agrega un elemento al tope de la pila sólo si hay lugar en este
+     * momento.
+     * @param e Referencia al elemento a agregar.
+     * @return <tt>true</tt> si se agregó, <tt>false</tt> si la pila
+     * estaba llena.
+     * @throws NullPointerException si e es <code>null</code>.
+     */
+    public boolean ofrece(E e);
+
+    /**
+     * Agrega un elemento al tope de la pila, esperando a lo más el
+     * tiempo indicado a que haya lugar.
+     * @param e Referencia al elemento a agregar.
+     * @param tiempo cuánto esperar como máximo, en unidades de unidad.
+     * @param unidad unidad de tiempo de la espera.
+     * @return <tt>true</tt> si se agregó, <tt>false</tt> si se agotó el
+     * tiempo.
+     * @throws InterruptedException si el hilo se interrumpe mientras
+     * espera.
+     * @throws NullPointerException si e es <code>null</code>.
+     */
+    public boolean ofrece(E e, long tiempo, TimeUnit unidad) throws InterruptedException;
+
+    /**
+     * Devuelve el elemento al tope de la pila y lo elimina, esperando
+     * a que haya alguno si está vacía.
+     * @return Una referencia al elemento siguiente.
+     * @throws InterruptedException si el hilo se interrumpe mientras
+     * espera.
+     */
+    public E expulsaBloqueante() throws InterruptedException;
+
+    /**
+     * Devuelve el elemento al tope de la pila y lo elimina, esperando
+     * a lo más el tiempo indicado a que haya alguno.
+     * @param tiempo cuánto esperar como máximo, en unidades de unidad.
+     * @param unidad unidad de tiempo de la espera.
+     * @return Una referencia al elemento siguiente, o <code>null</code>
+     * si se agotó el tiempo.
+     * @throws InterruptedException si el hilo se interrumpe mientras
+     * espera.
+     */
+    public E expulsaBloqueante(long tiempo, TimeUnit unidad) throws InterruptedException;
+
+    /**
+     * Indica cuántos elementos pueden empujarse sin esperar.
+     * @return lugares libres en la pila.
+     */
+    public int capacidadRestante();
+
+    /**
+     * Expulsa todos los elementos disponibles y los agrega a c, del
+     * tope al fondo.
+     * @param c colección que recibe los elementos.
+     * @return cantidad de elementos transferidos.
+     * @throws NullPointerException si c es <code>null</code>.
+     * @throws IllegalArgumentException si c es esta pila.
+     */
+    public int drenaA(Collection<? super E> c);
+
+    /**
+     * Expulsa a lo más maximo elementos y los agrega a c, del tope al
+     * fondo.
+     * @param c colección que recibe los elementos.
+     * @param maximo cantidad máxima de elementos por transferir.
+     * @return cantidad de elementos transferidos.
+     * @throws NullPointerException si c es <code>null</code>.
+     * @throws IllegalArgumentException si c es esta pila.
+     */
+    public int drenaA(Collection<? super E> c, int maximo);
+}
@@ -0,0 +1,58 @@
+package ed.estructuras.lineales;
+
+/**
+ * Punto de control de una pila, creado con {@link IPila#marca()} y
+ * usado con {@link IPila#restaura(Marca)} para regresar la pila a la
+ * profundidad que tenía. Las marcas se pueden anidar: restaurar una
+ * marca exterior deja sin efecto las interiores que quedaron por
+ * encima.
+ * <p>
+ * Una marca sólo recuerda la profundidad. Se puede restaurar mientras
+ * la pila tenga por lo menos esa cantidad de elementos, aunque entre
+ * tanto se hayan expulsado y empujado otros por debajo de ella; todas
+ * las pilas se comportan igual en ese caso.
+ */
+
+/*
+ * Implementación:
+ * - Sólo guarda la pila y la profundidad; no copia elementos.
+ * - No se revisa si la pila bajó de la profundidad y volvió a subir:
+ *   eso obligaría a cada expulsa a vigilar las marcas vivas, y las
+ *   pilas de arreglo no tienen, como las ligadas, un nodo cuya
+ *   identidad lo delate.
+ */
+public final class Marca {
+
+    /* Pila que creó la marca. */
+    private final IPila<?> pila;
+
+    /* Cantidad de elementos que tenía la pila. */
+    private final int profundidad;
+
+    Marca(IPila<?> pila, int profundidad) {
+        this.pila = pila;
+        this.profundidad = profundidad;
+    }
+
+    /**
+     * Indica cuántos elementos tenía la pila al crear la marca.
+     * @return la profundidad marcada.
+     */
+    public int profundidad() {
+        return this.profundidad;
+    }
+
+    /* Revisa que la marca se pueda restaurar en pila, que tiene tam
+     * elementos.
+     * IllegalArgumentException - si la marca es de otra pila
+     * IllegalStateException - si la pila tiene menos elementos que la
+     * profundidad marcada */
+    void revisa(IPila<?> pila, int tam) {
+        if(this.pila != pila) {
+            throw new IllegalArgumentException("La marca es de otra pila");
+        }
+        if(tam < this.profundidad) {
+            throw new IllegalStateException("La marca ya no es válida");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ed.estructuras.lineales;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reserva y liberación de buffers fuera del montón de Java para las
+ * pilas que guardan sus elementos en memoria directa o en archivos
+ * mapeados.
+ */
+
+/*
+ * Implementación:
+ * - Java 17 no tiene una forma pública de liberar un buffer directo o
+ *   desmapear un archivo antes de que el recolector de basura lo
+ *   alcance. Se usa sun.misc.Unsafe.invokeCleaner (módulo
+ *   jdk.unsupported), que libera la memoria en el momento. Si no está
+ *   disponible, libera no hace nada y la memoria se recupera cuando el
+ *   buffer deja de ser alcanzable, como con cualquier buffer directo.
+ * - Después de liberar un buffer, cualquier acceso a él puede tirar a
+ *   la JVM, así que quien llama debe olvidar la referencia.
+ */
+final class MemoriaDirecta {
+
+    /* Unsafe.invokeCleaner ligado a la instancia de Unsafe, o null si
+     * no se pudo obtener. */
+    private static final MethodHandle LIBERADOR = buscaLiberador();
+
+    private MemoriaDirecta() {
+    }
+
+    /* Reserva un buffer directo con el orden de bytes de la
+     * plataforma. */
+    static ByteBuffer reserva(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /* Libera en el momento la memoria de un buffer directo o mapeado. */
+    static void libera(ByteBuffer buffer) {
+        if(LIBERADOR == null || !buffer.isDirect()) return;
+        try {
+            LIBERADOR.invokeExact(buffer);
+        } catch(Throwable t) {
+            /* Queda para el recolector de basura. */
+        }
+    }
+
+    private static MethodHandle buscaLiberador() {
+        try {
+            Class<?> clase = Class.forName("sun.misc.Unsafe");
+            Field campo = clase.getDeclaredField("theUnsafe");
+            campo.setAccessible(true);
+            Object unsafe = campo.get(null);
+            return MethodHandles.lookup()
+                .findVirtual(clase, "invokeCleaner",
+                             MethodType.methodType(void.class, ByteBuffer.class))
+                .bindTo(unsafe);
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
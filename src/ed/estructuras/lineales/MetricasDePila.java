@@ -0,0 +1,70 @@
+package ed.estructuras.lineales;
+
+/**
+ * Contadores de uso de una pila, acumulados desde que se creó su
+ * {@link PilaInstrumentada}. Los valores se pueden leer mientras otros
+ * hilos usan la pila; cada uno es exacto por sí mismo, pero leer
+ * varios no es una foto atómica de todos.
+ */
+public interface MetricasDePila {
+
+    /**
+     * Cantidad de elementos empujados, incluidos los de las
+     * operaciones por lote.
+     * @return los elementos empujados.
+     */
+    public long empujados();
+
+    /**
+     * Cantidad de elementos expulsados, incluidos los de las
+     * operaciones por lote y los que quitó restaura.
+     * @return los elementos expulsados.
+     */
+    public long expulsados();
+
+    /**
+     * Cantidad de llamadas a mira.
+     * @return las consultas al tope.
+     */
+    public long miradas();
+
+    /**
+     * Cantidad de veces que se intentó expulsar de la pila vacía, o que
+     * una expulsión por lote se quedó sin elementos antes de completar
+     * los pedidos.
+     * @return las expulsiones sobre la pila vacía.
+     */
+    public long expulsionesEnVacio();
+
+    /**
+     * Mayor cantidad de elementos que ha tenido la pila después de un
+     * empuja.
+     * @return la profundidad máxima observada.
+     */
+    public int profundidadMaxima();
+
+    /**
+     * Cantidad de veces que el arreglo de la pila cambió de capacidad.
+     * Sólo la reportan las pilas respaldadas por un arreglo que
+     * cambia de tamaño (PilaArreglo, PilaBloqueante, PilaRobable, las
+     * pilas de primitivos y las agregadas); para las demás es 0.
+     * @return las redimensiones.
+     */
+    public long redimensiones();
+
+    /**
+     * Cantidad de segmentos que la pila mandó a disco. Sólo la reportan
+     * las pilas que derraman a disco; para las demás es 0.
+     * @return los segmentos derramados.
+     */
+    public long derrames();
+
+    /**
+     * Cantidad de CAS sobre la pila que fallaron y se tuvieron que
+     * reintentar. Sólo la reportan las pilas sin candados
+     * (PilaConcurrente, PilaEliminacion, PilaFragmentada y PilaRobable);
+     * para las demás es 0.
+     * @return los reintentos.
+     */
+    public long reintentos();
+}
@@ -0,0 +1,336 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.BinaryOperator;
+
+/**
+ * Pila que, además de sus elementos, mantiene el resultado de combinar
+ * todos ellos con un operador asociativo (mínimo, máximo, suma, máximo
+ * común divisor o cualquier monoide). {@link #agregado()} lo entrega en
+ * O(1) después de cualquier empuja o expulsa, en lugar de recorrer la
+ * pila en cada consulta.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - No permite elementos nulos
+ * - Permite elementos repetidos
+ * Implementación:
+ * - Junto a cada elemento se guarda el agregado de él y todos los que
+ *   están debajo: agregados[i] = operador(agregados[i - 1],
+ *   elementos[i]). El agregado de la pila es el de la casilla del
+ *   tope, y expulsar sólo descarta una casilla, así que el operador no
+ *   necesita inverso. Como siempre se combina el fondo a la izquierda,
+ *   el operador no necesita ser conmutativo.
+ * - Los dos arreglos crecen y se reducen juntos con la misma política
+ *   que PilaArreglo (ver Capacidades), y las casillas liberadas se
+ *   ponen en null.
+ * - removeAll y retainAll compactan la pila y recalculan los agregados
+ *   a partir de la primera casilla que cambió.
+ * - El hash se mantiene en hashAcumulado, así que hashCode es O(1).
+ */
+public class PilaAgregada<E> extends ColeccionAbstracta<E> implements IPila<E> {
+
+    /* Operador asociativo con que se combinan los elementos. */
+    private final BinaryOperator<E> operador;
+
+    /* Casillas donde se guardan los elementos. */
+    private Object[] elementos;
+
+    /* Agregado de cada casilla con todas las de abajo. */
+    private Object[] agregados;
+
+    /* Capacidad por debajo de la cual los arreglos no se reducen. */
+    private final int capacidadInicial;
+
+    /* Factor por el que crecen (y decrecen) los arreglos. */
+    private final double factorCrecimiento;
+
+    /**
+     * Construye una pila vacía que combina sus elementos con operador.
+     * @param operador operador asociativo; recibe primero el agregado
+     * de los elementos de abajo y luego el elemento nuevo.
+     * @throws NullPointerException si operador es <code>null</code>.
+     */
+    public PilaAgregada(BinaryOperator<E> operador) {
+        this(operador, Capacidades.CAPACIDAD_POR_OMISION);
+    }
+
+    /**
+     * Construye una pila vacía con la capacidad inicial indicada que
+     * combina sus elementos con operador.
+     * @param operador operador asociativo; recibe primero el agregado
+     * de los elementos de abajo y luego el elemento nuevo.
+     * @param capacidadInicial número de casillas reservadas al inicio.
+     * @throws NullPointerException si operador es <code>null</code>.
+     * @throws IllegalArgumentException si la capacidad es negativa.
+     */
+    public PilaAgregada(BinaryOperator<E> operador, int capacidadInicial) {
+        this.operador = Objects.requireNonNull(operador);
+        this.capacidadInicial = Capacidades.validaCapacidad(capacidadInicial);
+        this.factorCrecimiento = Capacidades.FACTOR_POR_OMISION;
+        this.elementos = new Object[capacidadInicial];
+        this.agregados = new Object[capacidadInicial];
+        this.tam = 0;
+    }
+
+    /**
+     * Construye una pila vacía cuyo agregado es el menor de sus
+     * elementos según comparador.
+     * @param <E> tipo de datos que guardará la pila.
+     * @param comparador orden de los elementos.
+     * @return la pila.
+     */
+    public static <E> PilaAgregada<E> minimo(Comparator<? super E> comparador) {
+        return new PilaAgregada<>(BinaryOperator.minBy(comparador));
+    }
+
+    /**
+     * Construye una pila vacía cuyo agregado es el mayor de sus
+     * elementos según comparador.
+     * @param <E> tipo de datos que guardará la pila.
+     * @param comparador orden de los elementos.
+     * @return la pila.
+     */
+    public static <E> PilaAgregada<E> maximo(Comparator<? super E> comparador) {
+        return new PilaAgregada<>(BinaryOperator.maxBy(comparador));
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws NullPointerException si e es <code>null</code>.
+     */
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws NullPointerException si e es <code>null</code>.
+     */
+    public void empuja(E e) {
+        if(e == null) {
+            throw new NullPointerException("La pila no permite elementos nulos");
+        }
+        if(this.tam == this.elementos.length) {
+            this.redimensiona(Capacidades.crece(this.elementos.length, this.factorCrecimiento));
+        }
+        this.agregados[this.tam] = this.tam == 0 ? e : this.operador.apply(this.agregado(this.tam - 1), e);
+        this.elementos[this.tam++] = e;
+        this.hashAcumulado += hashDe(e);
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E expulsa() {
+        if(this.isEmpty()) return null;
+
+        E eliminado = this.elemento(--this.tam);
+        this.elementos[this.tam] = null;
+        this.agregados[this.tam] = null;
+        this.hashAcumulado -= hashDe(eliminado);
+        this.encogeSiEsNecesario();
+        return eliminado;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E mira() {
+        if(this.isEmpty()) return null;
+        return this.elemento(this.tam - 1);
+    }
+
+    /**
+     * Entrega el resultado de combinar todos los elementos de la pila,
+     * del fondo al tope, con el operador. Es O(1).
+     * Devuelve <code>null</code> si está vacía.
+     * @return el agregado de la pila.
+     */
+    public E agregado() {
+        if(this.isEmpty()) return null;
+        return this.agregado(this.tam - 1);
+    }
+
+    /**
+     * Regresa el tope a la casilla marcada y pone en null las casillas
+     * que quedan libres; el agregado de la casilla marcada ya es el de
+     * la pila restaurada.
+     * {@inheritDoc}
+     */
+    @Override
+    public void restaura(Marca marca) {
+        marca.revisa(this, this.tam);
+        int profundidad = marca.profundidad();
+        for(int i = profundidad; i < this.tam; i++) {
+            this.hashAcumulado -= hashDe(this.elementos[i]);
+        }
+        Arrays.fill(this.elementos, profundidad, this.tam, null);
+        Arrays.fill(this.agregados, profundidad, this.tam, null);
+        this.tam = profundidad;
+        this.encogeSiEsNecesario();
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.elementos, 0, this.tam, null);
+        Arrays.fill(this.agregados, 0, this.tam, null);
+        if(this.elementos.length > this.capacidadInicial) {
+            this.elementos = new Object[this.capacidadInicial];
+            this.agregados = new Object[this.capacidadInicial];
+        }
+        this.tam = 0;
+        this.hashAcumulado = 0;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterador();
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los elementos contenidos en c,
+     * conservando el orden del resto, y recalcula los agregados.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            boolean coleccionModificada = !this.isEmpty();
+            this.clear();
+            return coleccionModificada;
+        }
+        return this.filtra(c, false);
+    }
+
+    /**
+     * Conserva sólo los elementos contenidos en c, en el mismo orden, y
+     * recalcula los agregados.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    @Override
+    protected boolean mantieneHash() {
+        return true;
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Primero marca las casillas que se van sin tocar la pila, así un
+     * contains que lance una excepción la deja intacta; después recorre
+     * hacia abajo los elementos que se quedan y recalcula los agregados
+     * desde la primera casilla que cambió.
+     * @return true si se eliminó al menos un elemento. */
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        Collection<?> consulta = indiceDeConsulta(c, this.tam);
+        BitSet eliminados = new BitSet(this.tam);
+        for(int i = 0; i < this.tam; i++) {
+            if(consulta.contains(this.elementos[i]) != conservarContenidos) {
+                eliminados.set(i);
+            }
+        }
+        int primerCambio = eliminados.nextSetBit(0);
+        if(primerCambio < 0) return false;
+
+        int conservados = primerCambio;
+        for(int i = primerCambio; i < this.tam; i++) {
+            Object elemento = this.elementos[i];
+            if(eliminados.get(i)) {
+                this.hashAcumulado -= hashDe(elemento);
+            } else {
+                this.elementos[conservados++] = elemento;
+            }
+        }
+        for(int i = primerCambio; i < conservados; i++) {
+            this.agregados[i] = i == 0 ? this.elementos[0]
+                : this.operador.apply(this.agregado(i - 1), this.elemento(i));
+        }
+        Arrays.fill(this.elementos, conservados, this.tam, null);
+        Arrays.fill(this.agregados, conservados, this.tam, null);
+        this.tam = conservados;
+        this.encogeSiEsNecesario();
+        return true;
+    }
+
+    /* Reduce los arreglos mientras la ocupación esté por debajo del
+     * umbral de Capacidades. */
+    private void encogeSiEsNecesario() {
+        while(Capacidades.debeEncoger(this.tam, this.elementos.length,
+                                      this.capacidadInicial, this.factorCrecimiento)) {
+            this.redimensiona(Capacidades.encoge(this.elementos.length,
+                                                 this.capacidadInicial,
+                                                 this.factorCrecimiento));
+        }
+    }
+
+    /* Copia los elementos y sus agregados a arreglos de la capacidad
+     * indicada. */
+    private void redimensiona(int capacidad) {
+        this.elementos = Arrays.copyOf(this.elementos, capacidad);
+        this.agregados = Arrays.copyOf(this.agregados, capacidad);
+    }
+
+    /* Obtiene el elemento de la casilla i con el tipo de la pila. */
+    @SuppressWarnings("unchecked")
+    private E elemento(int i) {
+        return (E) this.elementos[i];
+    }
+
+    /* Obtiene el agregado de la casilla i con el tipo de la pila. */
+    @SuppressWarnings("unchecked")
+    private E agregado(int i) {
+        return (E) this.agregados[i];
+    }
+
+    /* Iterador para estructura PilaAgregada, recorre del tope al fondo. */
+    private class Iterador implements Iterator<E> {
+        /* Casilla del elemento siguiente a visitar */
+        private int i = tam - 1;
+
+        @Override
+        public boolean hasNext() {
+            return i >= 0;
+        }
+
+        /* Entrega el siguiente elemento de la estructura
+         * IllegalStateException - si la iteración no tiene más
+         * elementos
+         */
+        @Override
+        public E next() {
+            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
+            return elemento(i--);
+        }
+
+        /* No se agrega .remove() porque no es una operación
+         * soportada por la estructura */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * Generado por plantillas/genera.sh a partir de
+ * plantillas/PilaAgregadaPrimitiva.plantilla; los cambios se hacen
+ * en la plantilla.
+ */
+
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Pila de valores {@code double} que mantiene el resultado de combinar
+ * todos ellos con un operador asociativo, como {@link PilaAgregada}
+ * pero sin convertir los valores a objeto.
+ * {@link #agregadoDouble()} lo entrega en O(1) después de cualquier
+ * empuja o expulsa.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - No permite elementos nulos
+ * - Permite elementos repetidos
+ * Implementación:
+ * - Misma organización que PilaAgregada: agregados[i] es el operador
+ *   aplicado a agregados[i - 1] y elementos[i], y ambos arreglos
+ *   primitivos crecen y se reducen juntos como en PilaDouble.
+ * - El hash se mantiene en hashAcumulado, así que hashCode es O(1).
+ * - Las variantes primitivas de mira, expulsa y agregado lanzan
+ *   NoSuchElementException si la pila está vacía; las que reciben un
+ *   valor centinela lo devuelven en ese caso.
+ */
+public class PilaAgregadaDouble extends ColeccionAbstracta<Double> implements IPila<Double> {
+
+    /* Operador asociativo con que se combinan los valores. */
+    private final DoubleBinaryOperator operador;
+
+    /* Casillas donde se guardan los valores. */
+    private double[] elementos;
+
+    /* Agregado de cada casilla con todas las de abajo. */
+    private double[] agregados;
+
+    /* Capacidad por debajo de la cual los arreglos no se reducen. */
+    private final int capacidadInicial;
+
+    /* Factor por el que crecen (y decrecen) los arreglos. */
+    private final double factorCrecimiento;
+
+    /* Recibe las redimensiones si la pila está instrumentada, o null. */
+    private SondaDePila sonda;
+
+    /**
+     * Construye una pila vacía que combina sus valores con operador.
+     * @param operador operador asociativo; recibe primero el agregado
+     * de los valores de abajo y luego el valor nuevo.
+     * @throws NullPointerException si operador es {@code null}.
+     */
+    public PilaAgregadaDouble(DoubleBinaryOperator operador) {
+        this(operador, Capacidades.CAPACIDAD_POR_OMISION);
+    }
+
+    /**
+     * Construye una pila vacía con la capacidad inicial indicada que
+     * combina sus valores con operador.
+     * @param operador operador asociativo; recibe primero el agregado
+     * de los valores de abajo y luego el valor nuevo.
+     * @param capacidadInicial número de casillas reservadas al inicio.
+     * @throws NullPointerException si operador es {@code null}.
+     * @throws IllegalArgumentException si la capacidad es negativa.
+     */
+    public PilaAgregadaDouble(DoubleBinaryOperator operador, int capacidadInicial) {
+        this.operador = Objects.requireNonNull(operador);
+        this.capacidadInicial = Capacidades.validaCapacidad(capacidadInicial);
+        this.factorCrecimiento = Capacidades.FACTOR_POR_OMISION;
+        this.elementos = new double[capacidadInicial];
+        this.agregados = new double[capacidadInicial];
+        this.tam = 0;
+    }
+
+    /**
+     * Construye una pila vacía cuyo agregado es el menor de sus
+     * valores.
+     * @return la pila.
+     */
+    public static PilaAgregadaDouble minimo() {
+        return new PilaAgregadaDouble(Math::min);
+    }
+
+    /**
+     * Construye una pila vacía cuyo agregado es el mayor de sus
+     * valores.
+     * @return la pila.
+     */
+    public static PilaAgregadaDouble maximo() {
+        return new PilaAgregadaDouble(Math::max);
+    }
+
+    /**
+     * Construye una pila vacía cuyo agregado es la suma de sus valores.
+     * @return la pila.
+     */
+    public static PilaAgregadaDouble suma() {
+        return new PilaAgregadaDouble(Double::sum);
+    }
+
+    /**
+     * Agrega un valor al tope de la pila.
+     * @param e valor a agregar.
+     */
+    public void empuja(double e) {
+        if(this.tam == this.elementos.length) {
+            this.redimensiona(Capacidades.crece(this.elementos.length, this.factorCrecimiento));
+        }
+        this.agregados[this.tam] = this.tam == 0 ? e
+            : this.operador.applyAsDouble(this.agregados[this.tam - 1], e);
+        this.elementos[this.tam++] = e;
+        this.hashAcumulado += Double.hashCode(e);
+    }
+
+    /**
+     * Devuelve el valor al tope de la pila y lo elimina.
+     * @return el valor que estaba en el tope.
+     * @throws NoSuchElementException si la pila está vacía.
+     */
+    public double expulsaDouble() {
+        if(this.isEmpty()) throw new NoSuchElementException("La pila está vacía");
+        double eliminado = this.elementos[--this.tam];
+        this.hashAcumulado -= Double.hashCode(eliminado);
+        this.encogeSiEsNecesario();
+        return eliminado;
+    }
+
+    /**
+     * Muestra el valor al tope de la pila.
+     * @return el valor en el tope.
+     * @throws NoSuchElementException si la pila está vacía.
+     */
+    public double miraDouble() {
+        if(this.isEmpty()) throw new NoSuchElementException("La pila está vacía");
+        return this.elementos[this.tam - 1];
+    }
+
+    /**
+     * Entrega el resultado de combinar todos los valores de la pila,
+     * del fondo al tope, con el operador. Es O(1).
+     * @return el agregado de la pila.
+     * @throws NoSuchElementException si la pila está vacía.
+     */
+    public double agregadoDouble() {
+        if(this.isEmpty()) throw new NoSuchElementException("La pila está vacía");
+        return this.agregados[this.tam - 1];
+    }
+
+    /**
+     * Entrega el agregado de la pila, o el valor centinela si la pila
+     * está vacía.
+     * @param siVacia valor que se devuelve cuando no hay elementos.
+     * @return el agregado de la pila o {@code siVacia}.
+     */
+    public double agregadoDouble(double siVacia) {
+        if(this.isEmpty()) return siVacia;
+        return this.agregados[this.tam - 1];
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws NullPointerException si e es {@code null}.
+     */
+    public boolean add(Double e) {
+        this.empuja(e);
+        return true;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws NullPointerException si e es {@code null}.
+     */
+    public void empuja(Double e) {
+        if(e == null) {
+            throw new NullPointerException("La pila no permite elementos nulos");
+        }
+        this.empuja(e.doubleValue());
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public Double expulsa() {
+        if(this.isEmpty()) return null;
+        return this.expulsaDouble();
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public Double mira() {
+        if(this.isEmpty()) return null;
+        return this.elementos[this.tam - 1];
+    }
+
+    /**
+     * Entrega el agregado de la pila como objeto.
+     * Devuelve {@code null} si está vacía.
+     * @return el agregado de la pila.
+     */
+    public Double agregado() {
+        if(this.isEmpty()) return null;
+        return this.agregados[this.tam - 1];
+    }
+
+    /**
+     * Regresa el tope a la casilla marcada sin convertir los valores a
+     * objeto.
+     * {@inheritDoc}
+     */
+    @Override
+    public void restaura(Marca marca) {
+        marca.revisa(this, this.tam);
+        int profundidad = marca.profundidad();
+        for(int i = profundidad; i < this.tam; i++) {
+            this.hashAcumulado -= Double.hashCode(this.elementos[i]);
+        }
+        this.tam = profundidad;
+        this.encogeSiEsNecesario();
+    }
+
+    @Override
+    public void clear() {
+        if(this.elementos.length > this.capacidadInicial) {
+            if(this.sonda != null) this.sonda.redimensiono(this.elementos.length, this.capacidadInicial);
+            this.elementos = new double[this.capacidadInicial];
+            this.agregados = new double[this.capacidadInicial];
+        }
+        this.tam = 0;
+        this.hashAcumulado = 0;
+    }
+
+    @Override
+    public PrimitiveIterator.OfDouble iterator() {
+        return new Iterador();
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los valores contenidos en c,
+     * conservando el orden del resto, y recalcula los agregados.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            boolean coleccionModificada = !this.isEmpty();
+            this.clear();
+            return coleccionModificada;
+        }
+        return this.filtra(c, false);
+    }
+
+    /**
+     * Conserva sólo los valores contenidos en c, en el mismo orden, y
+     * recalcula los agregados.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    @Override
+    protected boolean mantieneHash() {
+        return true;
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Primero marca las casillas que se van sin tocar la pila, así un
+     * contains que lance una excepción la deja intacta; después recorre
+     * hacia abajo los valores que se quedan y recalcula los agregados
+     * desde la primera casilla que cambió.
+     * @return true si se eliminó al menos un valor. */
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        Collection<?> consulta = indiceDeConsulta(c, this.tam);
+        BitSet eliminados = new BitSet(this.tam);
+        for(int i = 0; i < this.tam; i++) {
+            if(consulta.contains(this.elementos[i]) != conservarContenidos) {
+                eliminados.set(i);
+            }
+        }
+        int primerCambio = eliminados.nextSetBit(0);
+        if(primerCambio < 0) return false;
+
+        int conservados = primerCambio;
+        for(int i = primerCambio; i < this.tam; i++) {
+            double valor = this.elementos[i];
+            if(eliminados.get(i)) {
+                this.hashAcumulado -= Double.hashCode(valor);
+            } else {
+                this.elementos[conservados++] = valor;
+            }
+        }
+
+        for(int i = primerCambio; i < conservados; i++) {
+            this.agregados[i] = i == 0 ? this.elementos[0]
+                : this.operador.applyAsDouble(this.agregados[i - 1], this.elementos[i]);
+        }
+        this.tam = conservados;
+        this.encogeSiEsNecesario();
+        return true;
+    }
+
+    /* Reduce los arreglos mientras la ocupación esté por debajo del
+     * umbral de Capacidades. */
+    private void encogeSiEsNecesario() {
+        while(Capacidades.debeEncoger(this.tam, this.elementos.length,
+                                      this.capacidadInicial, this.factorCrecimiento)) {
+            this.redimensiona(Capacidades.encoge(this.elementos.length,
+                                                 this.capacidadInicial,
+                                                 this.factorCrecimiento));
+        }
+    }
+
+    /* Copia los valores y sus agregados a arreglos de la capacidad
+     * indicada. */
+    private void redimensiona(int capacidad) {
+        if(this.sonda != null) this.sonda.redimensiono(this.elementos.length, capacidad);
+        this.elementos = Arrays.copyOf(this.elementos, capacidad);
+        this.agregados = Arrays.copyOf(this.agregados, capacidad);
+    }
+
+    /* Conecta la sonda de PilaInstrumentada. */
+    void conecta(SondaDePila sonda) {
+        this.sonda = sonda;
+    }
+
+    /* Iterador primitivo para estructura PilaAgregadaDouble, recorre del
+     * tope al fondo sin convertir los valores a objeto. */
+    private class Iterador implements PrimitiveIterator.OfDouble {
+        /* Casilla del valor siguiente a visitar */
+        private int i = tam - 1;
+
+        @Override
+        public boolean hasNext() {
+            return i >= 0;
+        }
+
+        /* Entrega el siguiente valor de la estructura
+         * IllegalStateException - si la iteración no tiene más
+         * elementos
+         */
+        @Override
+        public double nextDouble() {
+            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
+            return elementos[i--];
+        }
+
+        /* No se agrega .remove() porque no es una operación
+         * soportada por la estructura */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
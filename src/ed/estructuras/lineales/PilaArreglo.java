@@ -0,0 +1,464 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Clase que implementa interfaz Pila sobre un arreglo contiguo y
+ * hereda de ColeccionAbstracta.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - Permite elementos nulos
+ * - Permite elementos repetidos
+ * Implementación:
+ * - El tope de la pila es la casilla tam - 1 del arreglo.
+ * - El arreglo crece por un factor configurable cuando se llena y se
+ *   reduce con histéresis (ver Capacidades) cuando se vacía, sin bajar
+ *   nunca de la capacidad inicial.
+ * - Las casillas liberadas se ponen en null para no retener
+ *   referencias a elementos que ya salieron de la pila.
+ * - El hash se mantiene en hashAcumulado, así que hashCode es O(1).
+ * - El spliterator se divide por índices exactamente a la mitad, así
+ *   que todas sus partes son SIZED.
+ */
+public class PilaArreglo<E> extends ColeccionAbstracta<E> implements IPila<E> {
+
+    /* Casillas donde se guardan los elementos. */
+    private Object[] elementos;
+
+    /* Capacidad por debajo de la cual el arreglo no se reduce. */
+    private final int capacidadInicial;
+
+    /* Factor por el que crece (y decrece) el arreglo. */
+    private final double factorCrecimiento;
+
+    /* Recibe las redimensiones si la pila está instrumentada, o null. */
+    private SondaDePila sonda;
+
+    /**
+     * Construye una pila vacía con la capacidad inicial y el factor de
+     * crecimiento por omisión.
+     */
+    public PilaArreglo() {
+        this(Capacidades.CAPACIDAD_POR_OMISION, Capacidades.FACTOR_POR_OMISION);
+    }
+
+    /**
+     * Construye una pila vacía con la capacidad inicial indicada.
+     * @param capacidadInicial número de casillas reservadas al inicio.
+     * @throws IllegalArgumentException si la capacidad es negativa.
+     */
+    public PilaArreglo(int capacidadInicial) {
+        this(capacidadInicial, Capacidades.FACTOR_POR_OMISION);
+    }
+
+    /**
+     * Construye una pila vacía con la capacidad inicial y el factor de
+     * crecimiento indicados.
+     * @param capacidadInicial número de casillas reservadas al inicio.
+     * @param factorCrecimiento factor por el que se multiplica la
+     * capacidad cuando el arreglo se llena; debe ser mayor a 1.
+     * @throws IllegalArgumentException si la capacidad es negativa o
+     * el factor no es mayor a 1.
+     */
+    public PilaArreglo(int capacidadInicial, double factorCrecimiento) {
+        this.capacidadInicial = Capacidades.validaCapacidad(capacidadInicial);
+        this.factorCrecimiento = Capacidades.validaFactor(factorCrecimiento);
+        this.elementos = new Object[capacidadInicial];
+        this.tam = 0;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.elementos, 0, this.tam, null);
+        if(this.elementos.length > this.capacidadInicial) {
+            if(this.sonda != null) this.sonda.redimensiono(this.elementos.length, this.capacidadInicial);
+            this.elementos = new Object[this.capacidadInicial];
+        }
+        this.tam = 0;
+        this.hashAcumulado = 0;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public void empuja(E e) {
+        if(this.tam == this.elementos.length) {
+            this.redimensiona(Capacidades.crece(this.elementos.length, this.factorCrecimiento));
+        }
+        this.elementos[this.tam++] = e;
+        this.hashAcumulado += hashDe(e);
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E expulsa() {
+        if(this.isEmpty()) return null;
+
+        E eliminado = this.elemento(--this.tam);
+        this.elementos[this.tam] = null;
+        this.hashAcumulado -= hashDe(eliminado);
+        this.encogeSiEsNecesario();
+        return eliminado;
+    }
+
+    /**
+     * Agrega los elementos con una sola copia de arreglo, creciendo el
+     * arreglo a lo más una vez.
+     * {@inheritDoc}
+     */
+    @Override
+    public void empujaTodos(E[] elementos, int desde, int cuantos) {
+        Objects.checkFromIndexSize(desde, cuantos, elementos.length);
+        this.aseguraCapacidad(this.tam + (long) cuantos);
+        System.arraycopy(elementos, desde, this.elementos, this.tam, cuantos);
+        for(int i = desde; i < desde + cuantos; i++) {
+            this.hashAcumulado += hashDe(elementos[i]);
+        }
+        this.tam += cuantos;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public int expulsaVarios(int n, E[] destino) {
+        Capacidades.revisaCantidad(n, destino.length);
+        int expulsados = Math.min(n, this.tam);
+        for(int i = 0, j = this.tam - 1; i < expulsados; i++, j--) {
+            E elemento = this.elemento(j);
+            destino[i] = elemento;
+            this.hashAcumulado -= hashDe(elemento);
+        }
+        Arrays.fill(this.elementos, this.tam - expulsados, this.tam, null);
+        this.tam -= expulsados;
+        this.encogeSiEsNecesario();
+        return expulsados;
+    }
+
+    /**
+     * El arreglo se reduce, si hace falta, una sola vez al final.
+     * {@inheritDoc}
+     */
+    @Override
+    public int expulsaHasta(int n, Consumer<? super E> accion) {
+        Objects.requireNonNull(accion);
+        Capacidades.revisaCantidad(n, Integer.MAX_VALUE);
+        int expulsados = 0;
+        while(expulsados < n && this.tam > 0) {
+            E eliminado = this.elemento(--this.tam);
+            this.elementos[this.tam] = null;
+            this.hashAcumulado -= hashDe(eliminado);
+            expulsados++;
+            accion.accept(eliminado);
+        }
+        this.encogeSiEsNecesario();
+        return expulsados;
+    }
+
+    /**
+     * Regresa el tope a la casilla marcada y pone en null las casillas
+     * que quedan libres, con una sola reducción del arreglo.
+     * {@inheritDoc}
+     */
+    @Override
+    public void restaura(Marca marca) {
+        marca.revisa(this, this.tam);
+        int profundidad = marca.profundidad();
+        for(int i = profundidad; i < this.tam; i++) {
+            this.hashAcumulado -= hashDe(this.elementos[i]);
+        }
+        Arrays.fill(this.elementos, profundidad, this.tam, null);
+        this.tam = profundidad;
+        this.encogeSiEsNecesario();
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E mira() {
+        if(this.isEmpty()) return null;
+        return this.elemento(this.tam - 1);
+    }
+
+    /**
+     * Indica cuántos elementos caben en la pila antes de tener que
+     * crecer el arreglo.
+     * @return la longitud actual del arreglo interno.
+     */
+    public int capacidad() {
+        return this.elementos.length;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterador();
+    }
+
+    /**
+     * Crea un spliterator ORDERED, SIZED y SUBSIZED que recorre del
+     * tope al fondo y se divide por índices, de modo que
+     * <code>parallelStream()</code> reparte el trabajo en partes
+     * iguales.
+     * @return un spliterator sobre los elementos de la pila.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new Divisor(null, 0, -1);
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los elementos contenidos en c,
+     * conservando el orden del resto. Se hace compactando el arreglo en
+     * una sola pasada.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            boolean coleccionModificada = !this.isEmpty();
+            this.clear();
+            return coleccionModificada;
+        }
+        return this.filtra(c, false);
+    }
+
+    /**
+     * Conserva sólo los elementos contenidos en c, en el mismo orden.
+     * Se hace compactando el arreglo en una sola pasada.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    @Override
+    protected boolean mantieneHash() {
+        return true;
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Primero marca las casillas que se van sin tocar la pila, así un
+     * contains que lance una excepción la deja intacta; después recorre
+     * hacia abajo los elementos que se quedan.
+     * @return true si se eliminó al menos un elemento. */
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        Collection<?> consulta = indiceDeConsulta(c, this.tam);
+        BitSet eliminados = new BitSet(this.tam);
+        for(int i = 0; i < this.tam; i++) {
+            if(consulta.contains(this.elementos[i]) != conservarContenidos) {
+                eliminados.set(i);
+            }
+        }
+        if(eliminados.isEmpty()) return false;
+
+        int conservados = 0;
+        for(int i = 0; i < this.tam; i++) {
+            Object elemento = this.elementos[i];
+            if(eliminados.get(i)) {
+                this.hashAcumulado -= hashDe(elemento);
+            } else {
+                this.elementos[conservados++] = elemento;
+            }
+        }
+
+        Arrays.fill(this.elementos, conservados, this.tam, null);
+        this.tam = conservados;
+        this.encogeSiEsNecesario();
+        return true;
+    }
+
+    /* Crece el arreglo hasta que quepan requeridos elementos.
+     * IllegalStateException si rebasan la capacidad máxima. */
+    private void aseguraCapacidad(long requeridos) {
+        if(requeridos <= this.elementos.length) return;
+        if(requeridos > Capacidades.CAPACIDAD_MAXIMA) {
+            throw new IllegalStateException("La pila alcanzó su capacidad máxima");
+        }
+        int capacidad = this.elementos.length;
+        while(capacidad < requeridos) {
+            capacidad = Capacidades.crece(capacidad, this.factorCrecimiento);
+        }
+        this.redimensiona(capacidad);
+    }
+
+    /* Reduce el arreglo mientras la ocupación esté por debajo del
+     * umbral de Capacidades. */
+    private void encogeSiEsNecesario() {
+        while(Capacidades.debeEncoger(this.tam, this.elementos.length,
+                                      this.capacidadInicial, this.factorCrecimiento)) {
+            this.redimensiona(Capacidades.encoge(this.elementos.length,
+                                                 this.capacidadInicial,
+                                                 this.factorCrecimiento));
+        }
+    }
+
+    /* Copia los elementos a un arreglo de la capacidad indicada. */
+    private void redimensiona(int capacidad) {
+        if(this.sonda != null) this.sonda.redimensiono(this.elementos.length, capacidad);
+        this.elementos = Arrays.copyOf(this.elementos, capacidad);
+    }
+
+    /* Conecta la sonda de PilaInstrumentada. */
+    void conecta(SondaDePila sonda) {
+        this.sonda = sonda;
+    }
+
+    /* Quita hasta n elementos del fondo y los guarda en destino del
+     * fondo hacia arriba; los demás bajan al inicio del arreglo. Lo usa
+     * PilaFragmentada para mandar a la central los elementos más
+     * viejos de una franja.
+     * @return cantidad de elementos que se quitaron. */
+    int quitaDelFondo(int n, E[] destino) {
+        int quitados = Math.min(n, this.tam);
+        System.arraycopy(this.elementos, 0, destino, 0, quitados);
+        for(int i = 0; i < quitados; i++) {
+            this.hashAcumulado -= hashDe(destino[i]);
+        }
+        System.arraycopy(this.elementos, quitados, this.elementos, 0, this.tam - quitados);
+        Arrays.fill(this.elementos, this.tam - quitados, this.tam, null);
+        this.tam -= quitados;
+        this.encogeSiEsNecesario();
+        return quitados;
+    }
+
+    /* Aplica accion a cada elemento del fondo al tope, recorriendo el
+     * arreglo por índices. Lo usa FlujoDePilas. */
+    void recorreDesdeElFondo(Consumer<? super E> accion) {
+        for(int i = 0; i < this.tam; i++) {
+            accion.accept(this.elemento(i));
+        }
+    }
+
+    /* Obtiene el elemento de la casilla i con el tipo de la pila. */
+    @SuppressWarnings("unchecked")
+    private E elemento(int i) {
+        return (E) this.elementos[i];
+    }
+
+    /* Spliterator para estructura PilaArreglo. Recorre las casillas
+     * [bajo, alto) de la más alta a la más baja, es decir, del tope al
+     * fondo. Se liga al arreglo y al tamaño en el primer uso. */
+    private class Divisor implements Spliterator<E> {
+        private Object[] arreglo;
+        private int bajo;
+        /* Casilla siguiente a la del próximo elemento, o -1 si aún no
+         * se liga */
+        private int alto;
+
+        Divisor(Object[] arreglo, int bajo, int alto) {
+            this.arreglo = arreglo;
+            this.bajo = bajo;
+            this.alto = alto;
+        }
+
+        private int alto() {
+            if(this.alto < 0) {
+                this.arreglo = elementos;
+                this.alto = tam;
+            }
+            return this.alto;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super E> accion) {
+            Objects.requireNonNull(accion);
+            if(this.alto() <= this.bajo) return false;
+            accion.accept((E) this.arreglo[--this.alto]);
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> accion) {
+            Objects.requireNonNull(accion);
+            int i = this.alto();
+            Object[] a = this.arreglo;
+            while(i > this.bajo) {
+                accion.accept((E) a[--i]);
+            }
+            this.alto = this.bajo;
+        }
+
+        /* La mitad más cercana al tope va primero en el recorrido, así
+         * que es la que se entrega. */
+        @Override
+        public Spliterator<E> trySplit() {
+            int mitad = (this.bajo + this.alto()) >>> 1;
+            if(mitad <= this.bajo) return null;
+            Divisor tope = new Divisor(this.arreglo, mitad, this.alto);
+            this.alto = mitad;
+            return tope;
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.alto() - this.bajo;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+    /* Iterador para estructura PilaArreglo, recorre del tope al fondo. */
+    private class Iterador implements Iterator<E> {
+        /* Casilla del elemento siguiente a visitar */
+        private int i = tam - 1;
+
+        @Override
+        public boolean hasNext() {
+            return i >= 0;
+        }
+
+        /* Entrega el siguiente elemento de la estructura
+         * IllegalStateException - si la iteración no tiene más
+         * elementos
+         */
+        @Override
+        public E next() {
+            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
+            return elemento(i--);
+        }
+
+        /* No se agrega .remove() porque no es una operación
+         * soportada por la estructura */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Pila bloqueante y acotada respaldada por un arreglo. Los
+ * consumidores pueden esperar elementos en vez de sondear, y la
+ * capacidad máxima frena a los productores cuando la pila se llena.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - No permite elementos nulos
+ * - Permite elementos repetidos
+ * - El iterador recorre una copia tomada al crearlo, del tope al fondo.
+ * Implementación:
+ * - Todas las operaciones toman un ReentrantLock y las esperas usan sus
+ *   Conditions. No se usa synchronized para que un hilo virtual que
+ *   espera no fije a su hilo portador.
+ * - El arreglo empieza pequeño y crece (y decrece) con la política de
+ *   Capacidades sin pasar de la capacidad máxima, así que una pila con
+ *   un límite grande no reserva toda la memoria desde el inicio.
+ * - Las operaciones por lote toman el candado una sola vez. empujaTodos
+ *   es atómico: agrega todos los elementos o, si no caben, ninguno.
+ *   removeAll y retainAll compactan el arreglo bajo el candado, así
+ *   que los demás hilos ven la pila antes o después del filtro.
+ */
+public class PilaBloqueante<E> extends ColeccionAbstracta<E> implements IPilaBloqueante<E> {
+
+    /* Casillas donde se guardan los elementos. */
+    private Object[] elementos;
+
+    /* Cantidad máxima de elementos. */
+    private final int capacidadMaxima;
+
+    /* Capacidad por debajo de la cual el arreglo no se reduce. */
+    private final int capacidadInicial;
+
+    /* Protege todos los campos de la pila. */
+    private final ReentrantLock candado = new ReentrantLock();
+
+    /* Se señala cuando la pila deja de estar vacía. */
+    private final Condition noVacia = candado.newCondition();
+
+    /* Se señala cuando la pila deja de estar llena. */
+    private final Condition noLlena = candado.newCondition();
+
+    /* Recibe las redimensiones si la pila está instrumentada, o null.
+     * Es volatile porque se puede conectar con la pila ya compartida. */
+    private volatile SondaDePila sonda;
+
+    /**
+     * Construye una pila bloqueante vacía sin límite práctico de
+     * capacidad.
+     */
+    public PilaBloqueante() {
+        this(Capacidades.CAPACIDAD_MAXIMA);
+    }
+
+    /**
+     * Construye una pila bloqueante vacía con la capacidad máxima
+     * indicada.
+     * @param capacidadMaxima cantidad máxima de elementos.
+     * @throws IllegalArgumentException si la capacidad no es positiva.
+     */
+    public PilaBloqueante(int capacidadMaxima) {
+        if(capacidadMaxima < 1) {
+            throw new IllegalArgumentException("Capacidad inválida: " + capacidadMaxima);
+        }
+        Capacidades.validaCapacidad(capacidadMaxima);
+        this.capacidadMaxima = capacidadMaxima;
+        this.capacidadInicial = Math.min(capacidadMaxima, Capacidades.CAPACIDAD_POR_OMISION);
+        this.elementos = new Object[this.capacidadInicial];
+        this.tam = 0;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws IllegalStateException si la pila está llena.
+     * @throws NullPointerException si e es <code>null</code>.
+     */
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws IllegalStateException si la pila está llena.
+     * @throws NullPointerException si e es <code>null</code>.
+     */
+    public void empuja(E e) {
+        if(!this.ofrece(e)) {
+            throw new IllegalStateException("La pila está llena");
+        }
+    }
+
+    @Override
+    public boolean ofrece(E e) {
+        revisaNulo(e);
+        this.candado.lock();
+        try {
+            if(this.tam == this.capacidadMaxima) return false;
+            this.inserta(e);
+            return true;
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public boolean ofrece(E e, long tiempo, TimeUnit unidad) throws InterruptedException {
+        revisaNulo(e);
+        long restante = unidad.toNanos(tiempo);
+        this.candado.lockInterruptibly();
+        try {
+            while(this.tam == this.capacidadMaxima) {
+                if(restante <= 0) return false;
+                restante = this.noLlena.awaitNanos(restante);
+            }
+            this.inserta(e);
+            return true;
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public void empujaBloqueante(E e) throws InterruptedException {
+        revisaNulo(e);
+        this.candado.lockInterruptibly();
+        try {
+            while(this.tam == this.capacidadMaxima) {
+                this.noLlena.await();
+            }
+            this.inserta(e);
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E expulsa() {
+        this.candado.lock();
+        try {
+            if(this.tam == 0) return null;
+            return this.extrae();
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public E expulsaBloqueante() throws InterruptedException {
+        this.candado.lockInterruptibly();
+        try {
+            while(this.tam == 0) {
+                this.noVacia.await();
+            }
+            return this.extrae();
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public E expulsaBloqueante(long tiempo, TimeUnit unidad) throws InterruptedException {
+        long restante = unidad.toNanos(tiempo);
+        this.candado.lockInterruptibly();
+        try {
+            while(this.tam == 0) {
+                if(restante <= 0) return null;
+                restante = this.noVacia.awaitNanos(restante);
+            }
+            return this.extrae();
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    /**
+     * Los elementos se agregan con una sola toma del candado; si no
+     * caben todos no se agrega ninguno.
+     * {@inheritDoc}
+     * @throws IllegalStateException si no hay lugar para todos los
+     * elementos.
+     * @throws NullPointerException si alguno de los elementos es
+     * <code>null</code>.
+     */
+    @Override
+    public void empujaTodos(E[] elementos, int desde, int cuantos) {
+        Objects.checkFromIndexSize(desde, cuantos, elementos.length);
+        for(int i = desde; i < desde + cuantos; i++) {
+            revisaNulo(elementos[i]);
+        }
+        this.candado.lock();
+        try {
+            if(this.capacidadMaxima - this.tam < cuantos) {
+                throw new IllegalStateException("La pila está llena");
+            }
+            int requeridos = this.tam + cuantos;
+            if(requeridos > this.elementos.length) {
+                int nueva = this.elementos.length;
+                while(nueva < requeridos) {
+                    nueva = Math.min(this.capacidadMaxima,
+                                     Capacidades.crece(nueva, Capacidades.FACTOR_POR_OMISION));
+                }
+                this.redimensiona(nueva);
+            }
+            System.arraycopy(elementos, desde, this.elementos, this.tam, cuantos);
+            this.tam = requeridos;
+            if(cuantos > 0) this.noVacia.signalAll();
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    /**
+     * Los elementos se expulsan con una sola toma del candado.
+     * {@inheritDoc}
+     */
+    @Override
+    public int expulsaVarios(int n, E[] destino) {
+        Capacidades.revisaCantidad(n, destino.length);
+        this.candado.lock();
+        try {
+            int expulsados = Math.min(n, this.tam);
+            for(int i = 0; i < expulsados; i++) {
+                destino[i] = this.elemento(--this.tam);
+            }
+            this.quitaDelTope(expulsados);
+            return expulsados;
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    /**
+     * Los elementos se expulsan con una sola toma del candado y accion
+     * se llama después de soltarlo.
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int expulsaHasta(int n, Consumer<? super E> accion) {
+        Objects.requireNonNull(accion);
+        Capacidades.revisaCantidad(n, Integer.MAX_VALUE);
+        Object[] expulsados;
+        this.candado.lock();
+        try {
+            expulsados = new Object[Math.min(n, this.tam)];
+            for(int i = 0; i < expulsados.length; i++) {
+                expulsados[i] = this.elementos[--this.tam];
+            }
+            this.quitaDelTope(expulsados.length);
+        } finally {
+            this.candado.unlock();
+        }
+        for(Object elemento : expulsados) {
+            accion.accept((E) elemento);
+        }
+        return expulsados.length;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E mira() {
+        this.candado.lock();
+        try {
+            if(this.tam == 0) return null;
+            return this.elemento(this.tam - 1);
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public int capacidadRestante() {
+        this.candado.lock();
+        try {
+            return this.capacidadMaxima - this.tam;
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public int drenaA(Collection<? super E> c) {
+        return this.drenaA(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drenaA(Collection<? super E> c, int maximo) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            throw new IllegalArgumentException();
+        }
+        this.candado.lock();
+        try {
+            int n = Math.min(maximo, this.tam);
+            for(int i = 0; i < n; i++) {
+                c.add(this.extrae());
+            }
+            return Math.max(n, 0);
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        this.candado.lock();
+        try {
+            return this.tam;
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.candado.lock();
+        try {
+            Arrays.fill(this.elementos, 0, this.tam, null);
+            if(this.elementos.length != this.capacidadInicial) {
+                SondaDePila sonda = this.sonda;
+                if(sonda != null) sonda.redimensiono(this.elementos.length, this.capacidadInicial);
+            }
+            this.elementos = new Object[this.capacidadInicial];
+            this.tam = 0;
+            this.noLlena.signalAll();
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        E[] copia = (E[]) this.copia();
+        return Arrays.asList(copia).iterator();
+    }
+
+    /* Igual que el iterador, recorre una copia; la copia es un
+     * arreglo, así que se divide por índices. */
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(this.copia(), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return this.copia();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if(a == null) {
+            throw new NullPointerException("El arreglo no puede ser nulo");
+        }
+        Object[] copia = this.copia();
+        if(a.length < copia.length) {
+            return (T[]) Arrays.copyOf(copia, copia.length, a.getClass());
+        }
+        System.arraycopy(copia, 0, a, 0, copia.length);
+        if(a.length > copia.length) a[copia.length] = null;
+        return a;
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los elementos contenidos en c,
+     * conservando el orden del resto. Se hace con una sola toma del
+     * candado, compactando el arreglo.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            this.candado.lock();
+            try {
+                boolean coleccionModificada = this.tam > 0;
+                this.clear();
+                return coleccionModificada;
+            } finally {
+                this.candado.unlock();
+            }
+        }
+        return this.filtra(c, false);
+    }
+
+    /**
+     * Conserva sólo los elementos contenidos en c, en el mismo orden.
+     * Se hace con una sola toma del candado, compactando el arreglo.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Con el candado tomado, primero marca las casillas que se van sin
+     * tocar la pila, así un contains que lance una excepción la deja
+     * intacta; después recorre hacia abajo los elementos que se quedan y
+     * despierta a los productores.
+     * @return true si se eliminó al menos un elemento. */
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        this.candado.lock();
+        try {
+            Collection<?> consulta = indiceDeConsulta(c, this.tam);
+            BitSet eliminados = new BitSet(this.tam);
+            for(int i = 0; i < this.tam; i++) {
+                if(consulta.contains(this.elementos[i]) != conservarContenidos) {
+                    eliminados.set(i);
+                }
+            }
+            if(eliminados.isEmpty()) return false;
+
+            int conservados = 0;
+            for(int i = 0; i < this.tam; i++) {
+                if(!eliminados.get(i)) this.elementos[conservados++] = this.elementos[i];
+            }
+            int cuantos = this.tam - conservados;
+            this.tam = conservados;
+            this.quitaDelTope(cuantos);
+            return true;
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    /* Conecta la sonda de PilaInstrumentada. */
+    void conecta(SondaDePila sonda) {
+        this.sonda = sonda;
+    }
+
+    /* Los siguientes métodos suponen que se tiene el candado. */
+
+    /* Agrega e al tope y despierta a un consumidor. */
+    private void inserta(E e) {
+        if(this.tam == this.elementos.length) {
+            int nueva = Math.min(this.capacidadMaxima,
+                                 Capacidades.crece(this.elementos.length,
+                                                   Capacidades.FACTOR_POR_OMISION));
+            this.redimensiona(nueva);
+        }
+        this.elementos[this.tam++] = e;
+        this.noVacia.signal();
+    }
+
+    /* Quita el tope, que debe existir, y despierta a un productor. */
+    private E extrae() {
+        E eliminado = this.elemento(--this.tam);
+        this.elementos[this.tam] = null;
+        this.encogeSiEsNecesario();
+        this.noLlena.signal();
+        return eliminado;
+    }
+
+    /* Termina de quitar los cuantos elementos que estaban sobre tam:
+     * limpia sus casillas, reduce el arreglo y despierta a los
+     * productores. */
+    private void quitaDelTope(int cuantos) {
+        if(cuantos == 0) return;
+        Arrays.fill(this.elementos, this.tam, this.tam + cuantos, null);
+        this.encogeSiEsNecesario();
+        this.noLlena.signalAll();
+    }
+
+    /* Reduce el arreglo mientras la ocupación esté por debajo del
+     * umbral de Capacidades. */
+    private void encogeSiEsNecesario() {
+        while(Capacidades.debeEncoger(this.tam, this.elementos.length, this.capacidadInicial,
+                                      Capacidades.FACTOR_POR_OMISION)) {
+            this.redimensiona(Capacidades.encoge(this.elementos.length,
+                                                 this.capacidadInicial,
+                                                 Capacidades.FACTOR_POR_OMISION));
+        }
+    }
+
+    /* Copia los elementos a un arreglo de la capacidad indicada. */
+    private void redimensiona(int capacidad) {
+        SondaDePila sonda = this.sonda;
+        if(sonda != null) sonda.redimensiono(this.elementos.length, capacidad);
+        this.elementos = Arrays.copyOf(this.elementos, capacidad);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elemento(int i) {
+        return (E) this.elementos[i];
+    }
+
+    /* Copia los elementos del tope al fondo. */
+    private Object[] copia() {
+        this.candado.lock();
+        try {
+            Object[] copia = new Object[this.tam];
+            for(int i = 0, j = this.tam - 1; j >= 0; i++, j--) {
+                copia[i] = this.elementos[j];
+            }
+            return copia;
+        } finally {
+            this.candado.unlock();
+        }
+    }
+
+    private static void revisaNulo(Object e) {
+        if(e == null) {
+            throw new NullPointerException("La pila no permite elementos nulos");
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Pila sin candados (pila de Treiber) que pueden usar varios hilos a
+ * la vez sin sincronización externa.
+ * Las operaciones empuja, expulsa y mira son linealizables.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - Permite elementos nulos
+ * - Permite elementos repetidos
+ * - El iterador es débilmente consistente: recorre la pila tal como
+ *   estaba al crearlo, nunca lanza ConcurrentModificationException y
+ *   no refleja cambios posteriores. El spliterator hace lo mismo con la
+ *   cadena que hay en la cabeza la primera vez que se usa.
+ * Implementación:
+ * - La cabeza es una AtomicReference que se actualiza con CAS.
+ * - Los nodos son inmutables y cada empuja crea uno nuevo, por lo que
+ *   no hay problema ABA: mientras un hilo conserve la referencia a un
+ *   nodo, el recolector de basura no puede reutilizarlo.
+ * - Cada nodo guarda la profundidad a la que está. El tamaño es la
+ *   profundidad de la cabeza, así que size() es exacto y linealizable
+ *   sin un contador compartido que también se tenga que actualizar.
+ * - Del mismo modo cada nodo guarda el hash acumulado desde el fondo,
+ *   así que hashCode es O(1).
+ * - Las operaciones por lote (empujaTodos, expulsaVarios y
+ *   expulsaHasta) se publican con un solo CAS sobre la cabeza, así
+ *   que otros hilos ven el lote completo o nada de él. Como los nodos
+ *   son inmutables, empujaTodos tiene que reconstruir la cadena si el
+ *   CAS falla.
+ * - removeAll y retainAll filtran la cadena observada y la publican
+ *   con un solo CAS, así que también son atómicos. Sólo reconstruyen
+ *   los nodos que están sobre el eliminado más profundo.
+ */
+public class PilaConcurrente<E> extends ColeccionAbstracta<E> implements IPila<E> {
+
+    /* Resultado de intentaExpulsar cuando el CAS falla */
+    static final Nodo<?> CONTENCION = new Nodo<>(null, null);
+
+    /* Acceso a la pila */
+    private final AtomicReference<Nodo<E>> cabeza = new AtomicReference<>();
+
+    /* Recibe los CAS fallidos si la pila está instrumentada, o null.
+     * Es volatile porque se puede conectar con la pila ya compartida. */
+    private volatile SondaDePila sonda;
+
+    /**
+     * Construye una pila concurrente vacía.
+     */
+    public PilaConcurrente() {
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        this.cabeza.set(null);
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public void empuja(E e) {
+        while(!this.intentaEmpujar(e)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E expulsa() {
+        while(true) {
+            Nodo<E> eliminado = this.intentaExpulsar();
+            if(eliminado == null) return null;
+            if(eliminado != CONTENCION) return eliminado.elemento;
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Los elementos se encadenan sobre la cabeza observada y se
+     * publican con un solo CAS.
+     * {@inheritDoc}
+     */
+    @Override
+    public void empujaTodos(E[] elementos, int desde, int cuantos) {
+        Objects.checkFromIndexSize(desde, cuantos, elementos.length);
+        if(cuantos == 0) return;
+        while(true) {
+            Nodo<E> actual = this.cabeza.get();
+            if(actual != null && actual.profundidad + (long) cuantos > Integer.MAX_VALUE) {
+                throw new IllegalStateException("La pila alcanzó su capacidad máxima");
+            }
+            Nodo<E> nueva = actual;
+            for(int i = desde; i < desde + cuantos; i++) {
+                nueva = new Nodo<>(nueva, elementos[i]);
+            }
+            if(this.cabeza.compareAndSet(actual, nueva)) return;
+            this.reintento();
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Los elementos se desprenden con un solo CAS.
+     * {@inheritDoc}
+     */
+    @Override
+    public int expulsaVarios(int n, E[] destino) {
+        Capacidades.revisaCantidad(n, destino.length);
+        Nodo<E> eliminados = this.desprende(n);
+        int expulsados = 0;
+        for(int i = 0; i < n && eliminados != null; i++) {
+            destino[expulsados++] = eliminados.elemento;
+            eliminados = eliminados.siguiente;
+        }
+        return expulsados;
+    }
+
+    /**
+     * Los elementos se desprenden con un solo CAS y accion se llama
+     * después, cuando ya no están en la pila.
+     * {@inheritDoc}
+     */
+    @Override
+    public int expulsaHasta(int n, Consumer<? super E> accion) {
+        Objects.requireNonNull(accion);
+        Capacidades.revisaCantidad(n, Integer.MAX_VALUE);
+        Nodo<E> eliminados = this.desprende(n);
+        int expulsados = 0;
+        for(int i = 0; i < n && eliminados != null; i++) {
+            accion.accept(eliminados.elemento);
+            eliminados = eliminados.siguiente;
+            expulsados++;
+        }
+        return expulsados;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E mira() {
+        Nodo<E> actual = this.cabeza.get();
+        return actual == null ? null : actual.elemento;
+    }
+
+    @Override
+    public int size() {
+        Nodo<E> actual = this.cabeza.get();
+        return actual == null ? 0 : actual.profundidad;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.cabeza.get() == null;
+    }
+
+    @Override
+    public int hashCode() {
+        Nodo<E> actual = this.cabeza.get();
+        return actual == null ? 0 : actual.hash;
+    }
+
+    @Override
+    protected boolean mantieneHash() {
+        return true;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterador(this.cabeza.get());
+    }
+
+    /**
+     * Crea un spliterator ORDERED, SIZED, SUBSIZED e IMMUTABLE sobre la
+     * cadena que haya en la cabeza al usarlo por primera vez. Se divide
+     * en lotes, así que <code>parallelStream()</code> reparte el
+     * trabajo; los cambios posteriores a la pila no lo afectan.
+     * @return un spliterator sobre una versión de la pila.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new Divisor();
+    }
+
+    /* toArray se sobreescribe para copiar una sola versión de la pila;
+     * la versión heredada consulta size() y luego itera, y entre ambas
+     * cosas otro hilo puede cambiar el tamaño. */
+    @Override
+    public Object[] toArray() {
+        return copia(this.cabeza.get());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if(a == null) {
+            throw new NullPointerException("El arreglo no puede ser nulo");
+        }
+        Object[] copia = copia(this.cabeza.get());
+        if(a.length < copia.length) {
+            return (T[]) Arrays.copyOf(copia, copia.length, a.getClass());
+        }
+        System.arraycopy(copia, 0, a, 0, copia.length);
+        if(a.length > copia.length) a[copia.length] = null;
+        return a;
+    }
+
+    /* Hace un solo intento de empujar e.
+     * @return true si el CAS sobre la cabeza tuvo éxito, false si otro
+     * hilo la cambió primero. */
+    boolean intentaEmpujar(E e) {
+        Nodo<E> actual = this.cabeza.get();
+        if(this.cabeza.compareAndSet(actual, new Nodo<>(actual, e))) return true;
+        this.reintento();
+        return false;
+    }
+
+    /* Hace un solo intento de expulsar el tope.
+     * @return el nodo eliminado, null si la pila estaba vacía o
+     * CONTENCION si otro hilo cambió la cabeza primero. */
+    @SuppressWarnings("unchecked")
+    Nodo<E> intentaExpulsar() {
+        Nodo<E> actual = this.cabeza.get();
+        if(actual == null) return null;
+        if(this.cabeza.compareAndSet(actual, actual.siguiente)) return actual;
+        this.reintento();
+        return (Nodo<E>) CONTENCION;
+    }
+
+    /* Quita hasta n nodos del tope con un solo CAS.
+     * @return la cabeza que se desprendió; los primeros n nodos de la
+     * cadena (o todos, si había menos) son los eliminados. */
+    Nodo<E> desprende(int n) {
+        if(n == 0) return null;
+        while(true) {
+            Nodo<E> actual = this.cabeza.get();
+            if(actual == null) return null;
+            Nodo<E> nueva = actual;
+            for(int i = 0; i < n && nueva != null; i++) {
+                nueva = nueva.siguiente;
+            }
+            if(this.cabeza.compareAndSet(actual, nueva)) return actual;
+            this.reintento();
+            Thread.onSpinWait();
+        }
+    }
+
+    /* Conecta la sonda de PilaInstrumentada. */
+    void conecta(SondaDePila sonda) {
+        this.sonda = sonda;
+    }
+
+    /* Avisa a la sonda, si hay, que un CAS falló. */
+    private void reintento() {
+        SondaDePila sonda = this.sonda;
+        if(sonda != null) sonda.reintento();
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los elementos contenidos en c,
+     * conservando el orden del resto. Se filtra una versión de la pila
+     * y la cadena nueva se publica con un solo CAS; si otro hilo cambió
+     * la cabeza mientras tanto, se vuelve a filtrar.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return this.cabeza.getAndSet(null) != null;
+        return this.filtra(c, false) > 0;
+    }
+
+    /**
+     * Conserva sólo los elementos contenidos en c, en el mismo orden.
+     * Se filtra una versión de la pila y la cadena nueva se publica con
+     * un solo CAS; si otro hilo cambió la cabeza mientras tanto, se
+     * vuelve a filtrar.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true) > 0;
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Decide qué elementos de la cadena observada se quedan y, si se va
+     * alguno, reconstruye los nodos desde el tope hasta el eliminado más
+     * profundo; debajo de él la cadena se comparte tal cual, porque sus
+     * profundidades y hashes no cambian. Lo usa también PilaFragmentada.
+     * @return cuántos elementos se eliminaron. */
+    @SuppressWarnings("unchecked")
+    int filtra(Collection<?> c, boolean conservarContenidos) {
+        Collection<?> consulta = indiceDeConsulta(c, this.size());
+        while(true) {
+            Nodo<E> actual = this.cabeza.get();
+            Object[] elementos = copia(actual);
+            int masProfundo = -1;
+            BitSet eliminados = new BitSet(elementos.length);
+            for(int i = 0; i < elementos.length; i++) {
+                if(consulta.contains(elementos[i]) != conservarContenidos) {
+                    eliminados.set(i);
+                    masProfundo = i;
+                }
+            }
+            if(masProfundo < 0) return 0;
+
+            Nodo<E> nueva = actual;
+            for(int i = 0; i <= masProfundo; i++) {
+                nueva = nueva.siguiente;
+            }
+            for(int i = masProfundo - 1; i >= 0; i--) {
+                if(!eliminados.get(i)) nueva = new Nodo<>(nueva, (E) elementos[i]);
+            }
+            if(this.cabeza.compareAndSet(actual, nueva)) return eliminados.cardinality();
+            this.reintento();
+            Thread.onSpinWait();
+        }
+    }
+
+    /* Copia a un arreglo los elementos desde el nodo indicado hasta el
+     * fondo. */
+    private static Object[] copia(Nodo<?> desde) {
+        Object[] representacion = new Object[desde == null ? 0 : desde.profundidad];
+        int contador = 0;
+        for(Nodo<?> n = desde; n != null; n = n.siguiente) {
+            representacion[contador++] = n.elemento;
+        }
+        return representacion;
+    }
+
+    /* Iterador débilmente consistente: recorre la cadena que había en
+     * la cabeza al momento de crearlo. */
+    private class Iterador implements Iterator<E> {
+        Nodo<E> transeunte;
+
+        Iterador(Nodo<E> inicio) {
+            this.transeunte = inicio;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return transeunte != null;
+        }
+
+        /* Entrega el siguiente elemento de la estructura
+         * IllegalStateException - si la iteración no tiene más
+         * elementos
+         */
+        @Override
+        public E next() {
+            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
+            E aux = transeunte.elemento;
+            transeunte = transeunte.siguiente;
+            return aux;
+        }
+
+        /* No se agrega .remove() porque no es una operación
+         * soportada por la estructura */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /* Spliterator sobre la cadena que hay en la cabeza al ligarse. */
+    private class Divisor extends DivisorPorLotes<E> {
+        private Nodo<E> transeunte;
+
+        Divisor() {
+            super(Spliterator.IMMUTABLE);
+        }
+
+        @Override
+        int liga() {
+            this.transeunte = cabeza.get();
+            return this.transeunte == null ? 0 : this.transeunte.profundidad;
+        }
+
+        @Override
+        E siguiente() {
+            E aux = this.transeunte.elemento;
+            this.transeunte = this.transeunte.siguiente;
+            return aux;
+        }
+    }
+
+    /* Nodos inmutables donde se guardan los elementos. No guardan
+     * referencia a la pila que los contiene. */
+    static final class Nodo<E> {
+
+        /* Nodo sobre el que está en la pila */
+        final Nodo<E> siguiente;
+        /* Elemento que guarda el Nodo */
+        final E elemento;
+        /* Cantidad de nodos desde éste hasta el fondo, inclusive */
+        final int profundidad;
+        /* Suma de los hash de los elementos desde éste hasta el fondo */
+        final int hash;
+
+        Nodo(Nodo<E> siguiente, E elemento) {
+            this.siguiente = siguiente;
+            this.elemento = elemento;
+            if(siguiente == null) {
+                this.profundidad = 1;
+                this.hash = hashDe(elemento);
+            } else {
+                this.profundidad = siguiente.profundidad + 1;
+                this.hash = siguiente.hash + hashDe(elemento);
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Pila concurrente con arreglo de eliminación frente a una
+ * {@link PilaConcurrente}.
+ * Cuando el CAS sobre la cabeza falla por contención, un empuja y un
+ * expulsa simultáneos pueden encontrarse en una casilla del arreglo
+ * de eliminación y cancelarse sin tocar la cabeza compartida.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - Permite elementos nulos
+ * - Permite elementos repetidos
+ * - El iterador es débilmente consistente, igual que el de
+ *   PilaConcurrente.
+ * Implementación:
+ * - Cada operación intenta primero un solo CAS en la pila central y
+ *   sólo si falla visita una casilla al azar dentro del rango activo.
+ * - Un empuja deja una Oferta en una casilla vacía y espera un número
+ *   acotado de vueltas. Si un expulsa la retira, ambas operaciones se
+ *   eliminaron; si se agota la espera, el empuja la retira él mismo y
+ *   vuelve a la pila central. Sólo quien logra el CAS que vacía la
+ *   casilla se queda con la oferta, así que nunca se entrega dos veces.
+ * - El rango activo crece cuando las casillas están ocupadas (hay
+ *   mucha contención) y se reduce cuando las esperas se agotan sin
+ *   pareja. La espera crece tras una eliminación exitosa y se reduce
+ *   tras un intento fallido. Ambos valores son sólo sugerencias, así
+ *   que se actualizan sin sincronizar.
+ * - Las parejas eliminadas no cambian el contenido de la pila central,
+ *   por lo que size(), mira() y el iterador se le delegan.
+ * - Las operaciones por lote no pasan por el arreglo de eliminación:
+ *   se aplican en la pila central con un solo CAS y cada elemento
+ *   cuenta como una operación central. removeAll y retainAll también
+ *   se le delegan, sin contar como operaciones.
+ */
+public class PilaEliminacion<E> extends ColeccionAbstracta<E> implements IPila<E> {
+
+    /* Vueltas mínima y máxima que un empuja espera a su pareja. */
+    private static final int ESPERA_MINIMA = 16;
+    private static final int ESPERA_MAXIMA = 1024;
+
+    /* Pila donde se aplican las operaciones que no se eliminan. */
+    private final PilaConcurrente<E> central = new PilaConcurrente<>();
+
+    /* Casillas de intercambio entre empuja y expulsa. */
+    private final AtomicReferenceArray<Oferta<E>> ranuras;
+
+    /* Cantidad de casillas que se usan actualmente, entre 1 y
+     * ranuras.length() */
+    private volatile int rango = 1;
+
+    /* Vueltas que un empuja espera actualmente a su pareja. */
+    private volatile int espera = ESPERA_MINIMA;
+
+    /* Operaciones que se cancelaron en el arreglo de eliminación. */
+    private final LongAdder eliminadas = new LongAdder();
+
+    /* Operaciones que se aplicaron en la pila central. */
+    private final LongAdder centrales = new LongAdder();
+
+    /**
+     * Construye una pila vacía con un arreglo de eliminación de tantas
+     * casillas como procesadores disponibles.
+     */
+    public PilaEliminacion() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construye una pila vacía con un arreglo de eliminación del ancho
+     * máximo indicado.
+     * @param ancho cantidad máxima de casillas de intercambio.
+     * @throws IllegalArgumentException si el ancho no es positivo.
+     */
+    public PilaEliminacion(int ancho) {
+        if(ancho < 1) {
+            throw new IllegalArgumentException("Ancho inválido: " + ancho);
+        }
+        this.ranuras = new AtomicReferenceArray<>(ancho);
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        this.central.clear();
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public void empuja(E e) {
+        while(true) {
+            if(this.central.intentaEmpujar(e)) {
+                this.centrales.increment();
+                return;
+            }
+            if(this.eliminaEmpuje(e)) {
+                this.eliminadas.increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E expulsa() {
+        while(true) {
+            PilaConcurrente.Nodo<E> eliminado = this.central.intentaExpulsar();
+            if(eliminado == null) return null;
+            if(eliminado != PilaConcurrente.CONTENCION) {
+                this.centrales.increment();
+                return eliminado.elemento;
+            }
+            Oferta<E> oferta = this.eliminaExpulsion();
+            if(oferta != null) {
+                this.eliminadas.increment();
+                return oferta.elemento;
+            }
+        }
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public void empujaTodos(E[] elementos, int desde, int cuantos) {
+        this.central.empujaTodos(elementos, desde, cuantos);
+        this.centrales.add(cuantos);
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public int expulsaVarios(int n, E[] destino) {
+        int expulsados = this.central.expulsaVarios(n, destino);
+        this.centrales.add(expulsados);
+        return expulsados;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public int expulsaHasta(int n, Consumer<? super E> accion) {
+        Objects.requireNonNull(accion);
+        int expulsados = this.central.expulsaHasta(n, accion);
+        this.centrales.add(expulsados);
+        return expulsados;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E mira() {
+        return this.central.mira();
+    }
+
+    @Override
+    public int size() {
+        return this.central.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.central.isEmpty();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return this.central.iterator();
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return this.central.spliterator();
+    }
+
+    @Override
+    public int hashCode() {
+        return this.central.hashCode();
+    }
+
+    @Override
+    protected boolean mantieneHash() {
+        return true;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return this.central.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return this.central.toArray(a);
+    }
+
+    /**
+     * Indica cuántas operaciones se cancelaron con su pareja en el
+     * arreglo de eliminación, sin tocar la pila central.
+     * @return cantidad de empuja y expulsa eliminados.
+     */
+    public long operacionesEliminadas() {
+        return this.eliminadas.sum();
+    }
+
+    /**
+     * Indica cuántas operaciones se aplicaron sobre la cabeza de la
+     * pila central.
+     * @return cantidad de empuja y expulsa aplicados en la pila central.
+     */
+    public long operacionesCentrales() {
+        return this.centrales.sum();
+    }
+
+    /* Conecta la sonda de PilaInstrumentada a la pila central, que es
+     * donde se hacen los CAS. */
+    void conecta(SondaDePila sonda) {
+        this.central.conecta(sonda);
+    }
+
+    /**
+     * Se aplica en la pila central con un solo CAS, igual que en
+     * {@link PilaConcurrente#removeAll}.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return this.central.removeAll(c == this ? this.central : c);
+    }
+
+    /**
+     * Se aplica en la pila central con un solo CAS, igual que en
+     * {@link PilaConcurrente#retainAll}.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return this.central.retainAll(c == this ? this.central : c);
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Deja e en una casilla al azar y espera a que un expulsa lo tome.
+     * @return true si un expulsa se llevó el elemento. */
+    private boolean eliminaEmpuje(E e) {
+        int i = ThreadLocalRandom.current().nextInt(this.rango);
+        Oferta<E> oferta = new Oferta<>(e);
+        if(!this.ranuras.compareAndSet(i, null, oferta)) {
+            this.ampliaRango();
+            return false;
+        }
+        int vueltas = this.espera;
+        for(int k = 0; k < vueltas; k++) {
+            if(this.ranuras.get(i) != oferta) {
+                this.ajustaEspera(true);
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        if(this.ranuras.compareAndSet(i, oferta, null)) {
+            // Nadie la tomó: se retira la oferta.
+            this.reduceRango();
+            this.ajustaEspera(false);
+            return false;
+        }
+        // Un expulsa la tomó justo antes de retirarla.
+        this.ajustaEspera(true);
+        return true;
+    }
+
+    /* Busca una oferta en una casilla al azar y la toma.
+     * @return la oferta tomada o null si no había ninguna. */
+    private Oferta<E> eliminaExpulsion() {
+        int i = ThreadLocalRandom.current().nextInt(this.rango);
+        Oferta<E> oferta = this.ranuras.get(i);
+        if(oferta != null && this.ranuras.compareAndSet(i, oferta, null)) {
+            return oferta;
+        }
+        Thread.onSpinWait();
+        return null;
+    }
+
+    private void ampliaRango() {
+        int actual = this.rango;
+        if(actual < this.ranuras.length()) this.rango = actual + 1;
+    }
+
+    private void reduceRango() {
+        int actual = this.rango;
+        if(actual > 1) this.rango = actual - 1;
+    }
+
+    private void ajustaEspera(boolean exito) {
+        int actual = this.espera;
+        if(exito) {
+            if(actual < ESPERA_MAXIMA) this.espera = actual << 1;
+        } else if(actual > ESPERA_MINIMA) {
+            this.espera = actual >> 1;
+        }
+    }
+
+    /* Elemento que un empuja ofrece en una casilla. Se crea uno por
+     * intento para que la identidad distinga ofertas con el mismo
+     * elemento. */
+    private static final class Oferta<E> {
+        final E elemento;
+
+        Oferta(E elemento) {
+            this.elemento = elemento;
+        }
+    }
+}
@@ -0,0 +1,728 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Pila por segmentos que guarda en memoria sólo los segmentos cercanos
+ * al tope y manda los más antiguos a archivos temporales cuando se
+ * rebasa un presupuesto de elementos. Sirve para pilas de búsquedas en
+ * profundidad o de vuelta atrás que a veces crecen más que el montón:
+ * sólo el tope se usa seguido, así que el fondo puede esperar en disco.
+ * Los elementos deben ser Serializable.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - Permite elementos nulos
+ * - Permite elementos repetidos
+ * - No es segura para usarse desde varios hilos.
+ * - El iterador falla rápido y lee de disco los segmentos que no están
+ *   en memoria sin volver a cargarlos en la pila.
+ * - close() borra los archivos temporales; una pila que no se cierra
+ *   los deja en su directorio.
+ * Implementación:
+ * - Los segmentos van del fondo al tope en una lista y todos, salvo el
+ *   del tope, están llenos. Sólo el segmento del tope cambia, así que
+ *   los demás se pueden escribir a disco desde otro hilo sin
+ *   sincronizar su contenido.
+ * - Antes de agregar un segmento se derraman los más cercanos al fondo
+ *   para que quepa en el presupuesto. La escritura se hace en un hilo
+ *   de fondo (un ThreadPoolExecutor de un hilo que termina cuando no
+ *   tiene trabajo) y el segmento conserva su arreglo hasta que la
+ *   escritura termina bien; si falla, el segmento se queda en memoria
+ *   y el error se lanza en el siguiente empuja que necesita lugar, así
+ *   que nunca se pierden elementos.
+ * - Los arreglos con escritura en curso cuentan contra el presupuesto.
+ *   Se empieza a escribir con un segmento de anticipación, y si aun así
+ *   no cabe el segmento nuevo, empuja espera la escritura más antigua.
+ *   Por eso el presupuesto se respeta aunque se empuje más rápido de lo
+ *   que escribe el disco, y la cola del hilo de fondo queda acotada.
+ * - Cuando expulsa vacía la mitad del segmento del tope, se empieza a
+ *   leer en el hilo de fondo el segmento de abajo. Al llegar a él lo
+ *   normal es que ya esté en memoria y expulsa no se detiene. La
+ *   lectura cuenta contra el presupuesto; si en vez de expulsar se
+ *   vuelve a empujar, la lectura se descarta cuando hace falta lugar.
+ * - Un segmento que regresa de disco conserva su archivo mientras no
+ *   sea el tope, así que si se vuelve a derramar no se escribe otra
+ *   vez. Al pasar a ser el tope (y poder cambiar) su archivo se borra.
+ * - El presupuesto se mide en elementos, no en bytes: el tamaño de
+ *   los objetos no se conoce.
+ * - El hash se mantiene en hashAcumulado, así que hashCode es O(1).
+ * - removeAll y retainAll no cargan toda la pila: deciden recorriendo
+ *   los segmentos como el iterador y sólo reconstruyen desde el
+ *   segmento del primer elemento eliminado, empujando de nuevo los que
+ *   se quedan, así que respetan el presupuesto igual que empuja.
+ */
+public class PilaEscalonada<E> extends ColeccionAbstracta<E> implements IPila<E>, AutoCloseable {
+
+    /* Elementos por segmento cuando no se especifica un tamaño. */
+    private static final int TAM_SEGMENTO_POR_OMISION = 4096;
+
+    /* Segmentos que siempre se permiten en memoria: el tope, el de
+     * abajo y el que se está precargando. */
+    private static final int SEGMENTOS_MINIMOS = 3;
+
+    /* Elementos por segmento. */
+    private final int tamSegmento;
+
+    /* Segmentos que pueden estar en memoria a la vez. */
+    private final int segmentosEnMemoria;
+
+    /* Directorio de los archivos de segmentos. */
+    private final Path directorio;
+
+    /* Indica si el directorio lo creó la pila y debe borrarlo. */
+    private final boolean directorioPropio;
+
+    /* Hilo de fondo que escribe y lee los segmentos. */
+    private final ThreadPoolExecutor ejecutor;
+
+    /* Segmentos del fondo al tope; nunca está vacía. */
+    private final ArrayList<Segmento> segmentos = new ArrayList<>();
+
+    /* Elementos en el segmento del tope. */
+    private int indice = 0;
+
+    /* Segmentos con arreglo en memoria (incluidos los que se están
+     * escribiendo) o con lectura en curso. */
+    private int enMemoria = 0;
+
+    /* Segmentos con escritura en curso, en el orden en que se mandaron
+     * escribir. Puede tener segmentos que ya no se escriben; se quitan
+     * en recoge. */
+    private final ArrayDeque<Segmento> pendientes = new ArrayDeque<>();
+
+    /* Segmentos con escritura en curso que siguen en la pila. */
+    private int enVuelo = 0;
+
+    /* Nombre del siguiente archivo de segmento. */
+    private long siguienteArchivo = 0;
+
+    /* Cantidad de modificaciones estructurales, para que el iterador
+     * falle rápido. */
+    private int modificaciones = 0;
+
+    private boolean cerrada = false;
+
+    /* Recibe los derrames si la pila está instrumentada, o null. */
+    private SondaDePila sonda;
+
+    /**
+     * Construye una pila vacía que guarda en memoria alrededor de
+     * presupuesto elementos, con segmentos de 4096 elementos en un
+     * directorio temporal nuevo.
+     * @param presupuesto elementos que pueden estar en memoria.
+     * @throws IOException si no se puede crear el directorio temporal.
+     * @throws IllegalArgumentException si el presupuesto no es
+     * positivo.
+     */
+    public PilaEscalonada(int presupuesto) throws IOException {
+        this(presupuesto, TAM_SEGMENTO_POR_OMISION, null);
+    }
+
+    /**
+     * Construye una pila vacía con el presupuesto, el tamaño de
+     * segmento y el directorio indicados.
+     * @param presupuesto elementos que pueden estar en memoria; siempre
+     * se permiten por lo menos tres segmentos.
+     * @param tamSegmento elementos por segmento.
+     * @param directorio directorio donde se escriben los segmentos, o
+     * <code>null</code> para crear uno temporal.
+     * @throws IOException si no se puede crear el directorio temporal.
+     * @throws IllegalArgumentException si el presupuesto o el tamaño de
+     * segmento no son positivos.
+     */
+    public PilaEscalonada(int presupuesto, int tamSegmento, Path directorio) throws IOException {
+        if(presupuesto < 1) {
+            throw new IllegalArgumentException("Presupuesto inválido: " + presupuesto);
+        }
+        if(tamSegmento < 1) {
+            throw new IllegalArgumentException("Tamaño de segmento inválido: " + tamSegmento);
+        }
+        this.tamSegmento = tamSegmento;
+        this.segmentosEnMemoria = Math.max(SEGMENTOS_MINIMOS, presupuesto / tamSegmento);
+        this.directorioPropio = directorio == null;
+        this.directorio = directorio == null ? Files.createTempDirectory("pila") : directorio;
+        this.ejecutor = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                               tarea -> {
+                                                   Thread hilo = new Thread(tarea, "PilaEscalonada");
+                                                   hilo.setDaemon(true);
+                                                   return hilo;
+                                               });
+        this.segmentos.add(this.nuevoSegmento());
+        this.tam = 0;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     * @throws IllegalArgumentException si e no es Serializable.
+     * @throws UncheckedIOException si falló la escritura de un segmento
+     * y no hay lugar para uno nuevo; la pila no cambia y el segmento que
+     * no se escribió sigue en memoria.
+     */
+    public void empuja(E e) {
+        this.revisaAbierta();
+        if(e != null && !(e instanceof Serializable)) {
+            throw new IllegalArgumentException("El elemento no es Serializable: " + e.getClass().getName());
+        }
+        if(this.indice == this.tamSegmento) {
+            this.hazLugar();
+            this.segmentos.add(this.nuevoSegmento());
+            this.indice = 0;
+        }
+        this.tope().elementos[this.indice++] = e;
+        this.tam++;
+        this.hashAcumulado += hashDe(e);
+        this.modificaciones++;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     * @throws UncheckedIOException si falla la lectura de un segmento.
+     */
+    @SuppressWarnings("unchecked")
+    public E expulsa() {
+        this.revisaAbierta();
+        if(this.isEmpty()) return null;
+
+        /* El segmento de abajo se carga antes de cambiar nada, para que
+         * un error de lectura no deje la pila a medias. */
+        int t = this.segmentos.size() - 1;
+        if(this.indice == 1 && t > 0) {
+            this.carga(this.segmentos.get(t - 1));
+        }
+
+        Object[] elementos = this.tope().elementos;
+        E eliminado = (E) elementos[--this.indice];
+        elementos[this.indice] = null;
+        this.tam--;
+        this.hashAcumulado -= hashDe(eliminado);
+        this.modificaciones++;
+
+        if(this.indice == this.tamSegmento / 2 && t > 0) {
+            this.precarga(this.segmentos.get(t - 1));
+        }
+        if(this.indice == 0 && t > 0) {
+            this.descarta(this.segmentos.remove(t));
+            Segmento nuevoTope = this.segmentos.get(t - 1);
+            this.invalida(nuevoTope);
+            this.indice = this.tamSegmento;
+            if(t > 1) this.precarga(this.segmentos.get(t - 2));
+        }
+        return eliminado;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     */
+    @SuppressWarnings("unchecked")
+    public E mira() {
+        this.revisaAbierta();
+        if(this.isEmpty()) return null;
+        return (E) this.tope().elementos[this.indice - 1];
+    }
+
+    /**
+     * Elimina todos los elementos y borra sus archivos.
+     * @throws IllegalStateException si la pila está cerrada.
+     */
+    @Override
+    public void clear() {
+        this.revisaAbierta();
+        for(Segmento s : this.segmentos) {
+            this.descarta(s);
+        }
+        this.segmentos.clear();
+        this.pendientes.clear();
+        this.enMemoria = 0;
+        this.segmentos.add(this.nuevoSegmento());
+        this.indice = 0;
+        this.tam = 0;
+        this.hashAcumulado = 0;
+        this.modificaciones++;
+    }
+
+    /**
+     * Espera a que terminen las escrituras pendientes, borra los
+     * archivos de la pila y detiene su hilo de fondo. Llamarlo más de
+     * una vez no tiene efecto.
+     */
+    @Override
+    public void close() {
+        if(this.cerrada) return;
+        this.cerrada = true;
+        for(Segmento s : this.segmentos) {
+            this.descarta(s);
+        }
+        this.segmentos.clear();
+        this.pendientes.clear();
+        this.tam = 0;
+        this.hashAcumulado = 0;
+        this.modificaciones++;
+        this.ejecutor.shutdown();
+        try {
+            this.ejecutor.awaitTermination(1, TimeUnit.MINUTES);
+            if(this.directorioPropio) Files.deleteIfExists(this.directorio);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Indica cuántos segmentos están escritos en disco y no en
+     * memoria.
+     * @return la cantidad de segmentos derramados.
+     */
+    public int segmentosEnDisco() {
+        return this.segmentos.size() - this.enMemoria;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        this.revisaAbierta();
+        return new Iterador();
+    }
+
+    @Override
+    protected boolean mantieneHash() {
+        return true;
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los elementos contenidos en c,
+     * conservando el orden del resto. Primero recorre la pila sin
+     * cargar en ella los segmentos derramados; después separa los
+     * segmentos desde el del primer elemento eliminado y vuelve a
+     * empujar, uno por uno, los elementos suyos que se quedan.
+     * {@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     * @throws UncheckedIOException si falla la lectura o escritura de un
+     * segmento. Si falla antes de cambiar la pila, ésta queda igual; si
+     * falla mientras se vuelven a empujar los elementos, la pila queda
+     * sin los que faltaban por empujar.
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            boolean coleccionModificada = !this.isEmpty();
+            this.clear();
+            return coleccionModificada;
+        }
+        return this.filtra(c, false);
+    }
+
+    /**
+     * Conserva sólo los elementos contenidos en c, en el mismo orden.
+     * Igual que removeAll, separa los segmentos desde el del primer
+     * elemento eliminado y vuelve a empujar los que se quedan.
+     * {@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     * @throws UncheckedIOException si falla la lectura o escritura de un
+     * segmento, en los mismos casos que removeAll.
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    private Segmento tope() {
+        return this.segmentos.get(this.segmentos.size() - 1);
+    }
+
+    private Segmento nuevoSegmento() {
+        this.enMemoria++;
+        return new Segmento(new Object[this.tamSegmento]);
+    }
+
+    /* Hace lugar en el presupuesto para un segmento nuevo sobre el
+     * tope actual. Derrama los segmentos más cercanos al fondo hasta
+     * que, sin contar los que se están escribiendo, quede lugar para el
+     * nuevo y una escritura más; luego, si con las escrituras en curso
+     * el nuevo todavía no cabe, espera la más antigua. Nunca derrama el
+     * tope, que será el de abajo del nuevo. Las lecturas adelantadas
+     * que quedaron de expulsiones anteriores también se derraman: se
+     * descarta la lectura, porque el archivo sigue al día.
+     * UncheckedIOException - si falló alguna escritura */
+    private void hazLugar() {
+        this.recoge();
+        int limite = this.segmentos.size() - 1;
+        for(int i = 0; i < limite && this.enMemoria - this.enVuelo > this.segmentosEnMemoria - 2; i++) {
+            Segmento s = this.segmentos.get(i);
+            if(s.elementos != null && !s.escribiendo) {
+                this.derrama(s);
+            } else if(s.lectura != null) {
+                s.lectura = null;
+                this.enMemoria--;
+            }
+        }
+        while(this.enMemoria >= this.segmentosEnMemoria && this.enVuelo > 0) {
+            Segmento masAntiguo = this.pendientes.peek();
+            try {
+                masAntiguo.escritura.join();
+            } catch(CompletionException e) {
+                /* recoge lo reporta */
+            }
+            this.recoge();
+        }
+    }
+
+    /* Derrama s: si su archivo está al día suelta su arreglo; si no, lo
+     * manda escribir en el hilo de fondo y el arreglo se suelta en
+     * recoge cuando la escritura termine bien. */
+    private void derrama(Segmento s) {
+        if(s.escritura != null) {
+            s.elementos = null;
+            this.enMemoria--;
+            return;
+        }
+        Object[] datos = s.elementos;
+        Path archivo = this.directorio.resolve("segmento-" + this.siguienteArchivo++ + ".bin");
+        s.escritura = CompletableFuture.supplyAsync(() -> escribe(archivo, datos), this.ejecutor);
+        s.escribiendo = true;
+        this.pendientes.add(s);
+        this.enVuelo++;
+        if(this.sonda != null) this.sonda.derramo(datos.length);
+    }
+
+    /* Revisa las escrituras pendientes que ya terminaron: si terminaron
+     * bien suelta el arreglo del segmento; si fallaron, el segmento se
+     * queda en memoria sin archivo y el primer error se lanza al final,
+     * con la pila en orden.
+     * UncheckedIOException - si falló alguna escritura */
+    private void recoge() {
+        RuntimeException fallo = null;
+        Iterator<Segmento> iterador = this.pendientes.iterator();
+        while(iterador.hasNext()) {
+            Segmento s = iterador.next();
+            if(!s.escribiendo) {
+                iterador.remove();
+                continue;
+            }
+            if(!s.escritura.isDone()) continue;
+            iterador.remove();
+            s.escribiendo = false;
+            this.enVuelo--;
+            try {
+                s.escritura.join();
+                s.elementos = null;
+                this.enMemoria--;
+            } catch(CompletionException e) {
+                s.escritura = null;
+                if(fallo == null) {
+                    fallo = e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause() : e;
+                }
+            }
+        }
+        if(fallo != null) throw fallo;
+    }
+
+    /* Empieza a leer s en el hilo de fondo si está en disco. */
+    private void precarga(Segmento s) {
+        if(s.elementos != null || s.lectura != null) return;
+        s.lectura = s.escritura.thenApplyAsync(PilaEscalonada::lee, this.ejecutor);
+        this.enMemoria++;
+    }
+
+    /* Deja el arreglo de s en memoria, esperando la lectura si hace
+     * falta. */
+    private void carga(Segmento s) {
+        if(s.elementos != null) return;
+        this.precarga(s);
+        try {
+            s.elementos = espera(s.lectura);
+        } catch(RuntimeException e) {
+            this.enMemoria--;
+            throw e;
+        } finally {
+            s.lectura = null;
+        }
+    }
+
+    /* Borra el archivo de s, que ya no coincide con su contenido. Si la
+     * escritura sigue pendiente, el borrado corre en el hilo de fondo
+     * justo al terminarla; encolarlo entonces fallaría si close() ya
+     * detuvo el ejecutor. */
+    private void invalida(Segmento s) {
+        if(s.escritura == null) return;
+        if(s.escribiendo) {
+            s.escribiendo = false;
+            this.enVuelo--;
+        }
+        if(s.escritura.isDone()) {
+            s.escritura.thenAcceptAsync(PilaEscalonada::borra, this.ejecutor);
+        } else {
+            s.escritura.thenAccept(PilaEscalonada::borra);
+        }
+        s.escritura = null;
+    }
+
+    /* Quita s de la pila: borra su archivo y lo deja de contar. */
+    private void descarta(Segmento s) {
+        if(s.elementos != null || s.lectura != null) this.enMemoria--;
+        this.invalida(s);
+        s.elementos = null;
+        s.lectura = null;
+    }
+
+    /* Marca los elementos que se van, y suma el hash de cada segmento,
+     * sin tocar la pila. Luego deja como tope el segmento de abajo del
+     * primer eliminado y vuelve a empujar los elementos de los
+     * segmentos separados que se quedan; cada separado se descarta en
+     * cuanto se leyó, para que su lugar en el presupuesto lo puedan usar
+     * los segmentos nuevos.
+     * @return true si se eliminó al menos un elemento. */
+    @SuppressWarnings("unchecked")
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        this.revisaAbierta();
+        Collection<?> consulta = indiceDeConsulta(c, this.tam);
+        BitSet eliminados = new BitSet(this.tam);
+        int[] hashPorSegmento = new int[this.segmentos.size()];
+        int[] posicion = {0};
+        this.recorreDesdeElFondo(elemento -> {
+            int p = posicion[0]++;
+            if(consulta.contains(elemento) != conservarContenidos) eliminados.set(p);
+            hashPorSegmento[p / this.tamSegmento] += hashDe(elemento);
+        });
+        int primero = eliminados.nextSetBit(0);
+        if(primero < 0) return false;
+
+        /* El nuevo tope se carga antes de cambiar nada, para que un
+         * error de lectura no deje la pila a medias. */
+        int desde = primero / this.tamSegmento;
+        if(desde > 0) this.carga(this.segmentos.get(desde - 1));
+
+        List<Segmento> cola = this.segmentos.subList(desde, this.segmentos.size());
+        Segmento[] separados = cola.toArray(new Segmento[0]);
+        int ocupadasEnElTope = this.indice;
+        cola.clear();
+        this.tam = desde * this.tamSegmento;
+        this.hashAcumulado = 0;
+        for(int s = 0; s < desde; s++) {
+            this.hashAcumulado += hashPorSegmento[s];
+        }
+        if(desde == 0) {
+            this.segmentos.add(this.nuevoSegmento());
+            this.indice = 0;
+        } else {
+            this.invalida(this.tope());
+            this.indice = this.tamSegmento;
+        }
+        this.modificaciones++;
+
+        int p = desde * this.tamSegmento;
+        int k = 0;
+        try {
+            for(; k < separados.length; k++) {
+                Object[] datos = contenido(separados[k]);
+                this.descarta(separados[k]);
+                int ocupadas = k == separados.length - 1 ? ocupadasEnElTope : this.tamSegmento;
+                for(int i = 0; i < ocupadas; i++, p++) {
+                    if(!eliminados.get(p)) this.empuja((E) datos[i]);
+                }
+            }
+        } finally {
+            for(; k < separados.length; k++) {
+                this.descarta(separados[k]);
+            }
+        }
+        return true;
+    }
+
+    /* Conecta la sonda de PilaInstrumentada. */
+    void conecta(SondaDePila sonda) {
+        this.sonda = sonda;
+    }
+
+    /* Aplica accion a cada elemento del fondo al tope, leyendo de disco
+     * los segmentos derramados sin cargarlos en la pila. Lo usa
+     * FlujoDePilas. */
+    @SuppressWarnings("unchecked")
+    void recorreDesdeElFondo(Consumer<? super E> accion) {
+        this.revisaAbierta();
+        int ultimo = this.segmentos.size() - 1;
+        for(int s = 0; s <= ultimo; s++) {
+            Object[] datos = contenido(this.segmentos.get(s));
+            int ocupadas = s == ultimo ? this.indice : this.tamSegmento;
+            for(int i = 0; i < ocupadas; i++) {
+                accion.accept((E) datos[i]);
+            }
+        }
+    }
+
+    /* Contenido de s sin cargarlo en la pila. */
+    private static Object[] contenido(Segmento s) {
+        if(s.elementos != null) return s.elementos;
+        if(s.lectura != null) return espera(s.lectura);
+        return lee(espera(s.escritura));
+    }
+
+    private void revisaAbierta() {
+        if(this.cerrada) {
+            throw new IllegalStateException("La pila está cerrada");
+        }
+    }
+
+    /* Las siguientes operaciones corren en el hilo de fondo, salvo
+     * cuando el iterador lee un segmento directamente. */
+
+    /* Si la escritura falla borra el archivo a medias. */
+    private static Path escribe(Path archivo, Object[] datos) {
+        try(ObjectOutputStream salida = new ObjectOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(archivo)))) {
+            salida.writeObject(datos);
+        } catch(IOException e) {
+            try {
+                Files.deleteIfExists(archivo);
+            } catch(IOException e2) {
+                e.addSuppressed(e2);
+            }
+            throw new UncheckedIOException(e);
+        }
+        return archivo;
+    }
+
+    private static Object[] lee(Path archivo) {
+        try(ObjectInputStream entrada = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(archivo)))) {
+            return (Object[]) entrada.readObject();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        } catch(ClassNotFoundException e) {
+            throw new IllegalStateException("No se pudo leer el segmento " + archivo, e);
+        }
+    }
+
+    private static void borra(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* Espera el resultado de una tarea de fondo y relanza su error tal
+     * cual. */
+    private static <T> T espera(CompletableFuture<T> tarea) {
+        try {
+            return tarea.join();
+        } catch(CompletionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /* Iterador para estructura PilaEscalonada, recorre del tope al
+     * fondo segmento por segmento. */
+    private class Iterador implements Iterator<E> {
+        /* Segmento que se está recorriendo */
+        private int s = segmentos.size() - 1;
+        /* Contenido del segmento que se está recorriendo */
+        private Object[] actual = tope().elementos;
+        /* Casilla del elemento siguiente a visitar dentro del segmento */
+        private int i = indice - 1;
+        /* Modificaciones que tenía la pila al crear el iterador */
+        private final int esperadas = modificaciones;
+
+        @Override
+        public boolean hasNext() {
+            return i >= 0;
+        }
+
+        /* Entrega el siguiente elemento de la estructura
+         * IllegalStateException - si la iteración no tiene más
+         * elementos
+         * ConcurrentModificationException - si la pila se modificó
+         * después de crear el iterador
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if(esperadas != modificaciones) throw new ConcurrentModificationException();
+            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
+            E aux = (E) actual[i--];
+            if(i < 0 && s > 0) {
+                actual = contenido(segmentos.get(--s));
+                i = tamSegmento - 1;
+            }
+            return aux;
+        }
+
+        /* No se agrega .remove() porque no es una operación
+         * soportada por la estructura */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /* Bloque de elementos de la pila, en memoria, en disco o en ambos.
+     * Sólo el hilo que usa la pila cambia sus campos; el hilo de fondo
+     * sólo entrega resultados a través de las tareas. */
+    private static final class Segmento {
+        /* Elementos, o null si el segmento no está en memoria */
+        Object[] elementos;
+        /* Escritura del archivo, o null si el archivo no está al día */
+        CompletableFuture<Path> escritura;
+        /* Indica si la escritura sigue en curso y el segmento conserva
+         * su arreglo mientras tanto */
+        boolean escribiendo;
+        /* Lectura adelantada en curso, o null */
+        CompletableFuture<Object[]> lectura;
+
+        Segmento(Object[] elementos) {
+            this.elementos = elementos;
+        }
+    }
+}
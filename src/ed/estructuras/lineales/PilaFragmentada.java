@@ -0,0 +1,474 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Pila concurrente de orden relajado para almacenes de objetos donde no
+ * importa el orden LIFO global. Cada hilo empuja y expulsa sobre una
+ * franja local y sólo toca la pila central compartida, en lotes,
+ * cuando su franja se llena o se vacía.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - Permite elementos nulos
+ * - Permite elementos repetidos
+ * - El orden es relajado: expulsa devuelve el tope de la franja del
+ *   hilo, que puede no ser el último elemento empujado por otros
+ *   hilos. Cada franja conserva a lo más limiteLocal elementos, de modo
+ *   que fuera de la pila central hay a lo más franjas * limiteLocal
+ *   elementos fuera de orden. Un solo hilo sobre la pila la ve en
+ *   orden LIFO exacto.
+ * - expulsa sólo devuelve null si no encontró elementos en su franja,
+ *   en la pila central ni en las demás franjas.
+ * - El iterador es débilmente consistente: recorre una copia tomada
+ *   franja por franja.
+ * Implementación:
+ * - El hilo elige franja con su identificador, así que dos hilos sólo
+ *   comparten franja si colisionan sus identificadores.
+ * - Cada franja es una PilaArreglo protegida por su propio
+ *   ReentrantLock, que casi nunca tiene contención.
+ * - Al rebasar limiteLocal, la franja manda a la pila central (una
+ *   PilaConcurrente) un lote con sus elementos más viejos, los del
+ *   fondo, y conserva los recientes. Al vaciarse, toma un lote del tope
+ *   de la central en el mismo orden en que salió y, si ésta también
+ *   está vacía, roba un elemento de otra franja. Así la central sólo
+ *   tiene elementos más viejos que los de la franja que los mandó.
+ * - Los lotes entre una franja y la central se mueven a través de un
+ *   arreglo de intercambio de la franja (quitaDelFondo o expulsaVarios
+ *   y luego empujaTodos), así que cada lote cuesta un solo CAS en la
+ *   central.
+ * - Las operaciones por lote toman una sola vez el candado de la franja
+ *   local y hacen a lo más un CAS en la central; sólo si ambas están
+ *   vacías se roba de las demás franjas.
+ * - El tamaño se lleva en un LongAdder para no crear un punto de
+ *   contención.
+ * - removeAll y retainAll filtran la central con un solo CAS y cada
+ *   franja con su candado; igual que clear, no son atómicos respecto a
+ *   toda la estructura.
+ */
+public class PilaFragmentada<E> extends ColeccionAbstracta<E> implements IPila<E> {
+
+    /* Elementos por franja cuando no se especifica un límite. */
+    private static final int LIMITE_LOCAL_POR_OMISION = 64;
+
+    /* Franjas locales; su cantidad es potencia de dos. */
+    private final Franja<E>[] franjas;
+
+    /* Pila compartida donde se intercambian los lotes. */
+    private final PilaConcurrente<E> central = new PilaConcurrente<>();
+
+    /* Elementos máximos por franja antes de mandar un lote a la
+     * central. */
+    private final int limiteLocal;
+
+    /* Elementos que se transfieren en cada lote. */
+    private final int lote;
+
+    /* Cantidad de elementos en toda la estructura. */
+    private final LongAdder contador = new LongAdder();
+
+    /**
+     * Construye una pila vacía con una franja por procesador disponible
+     * y 64 elementos por franja.
+     */
+    public PilaFragmentada() {
+        this(Runtime.getRuntime().availableProcessors(), LIMITE_LOCAL_POR_OMISION);
+    }
+
+    /**
+     * Construye una pila vacía con las franjas y el límite por franja
+     * indicados. Ambos valores acotan cuántos elementos de otros hilos
+     * pueden salir fuera del orden LIFO global; un solo hilo siempre
+     * ve el orden LIFO exacto.
+     * @param franjas cantidad de franjas; se redondea a la siguiente
+     * potencia de dos.
+     * @param limiteLocal elementos máximos que conserva cada franja.
+     * @throws IllegalArgumentException si algún valor no es positivo.
+     */
+    @SuppressWarnings("unchecked")
+    public PilaFragmentada(int franjas, int limiteLocal) {
+        if(franjas < 1 || franjas > (1 << 16)) {
+            throw new IllegalArgumentException("Cantidad de franjas inválida: " + franjas);
+        }
+        if(limiteLocal < 1) {
+            throw new IllegalArgumentException("Límite local inválido: " + limiteLocal);
+        }
+        int n = Integer.highestOneBit(franjas);
+        if(n < franjas) n <<= 1;
+        this.franjas = (Franja<E>[]) new Franja<?>[n];
+        for(int i = 0; i < n; i++) {
+            this.franjas[i] = new Franja<>(Math.max(1, limiteLocal / 2));
+        }
+        this.limiteLocal = limiteLocal;
+        this.lote = Math.max(1, limiteLocal / 2);
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public void empuja(E e) {
+        Franja<E> franja = this.franjaLocal();
+        franja.candado.lock();
+        try {
+            franja.pila.empuja(e);
+            this.desborda(franja);
+        } finally {
+            franja.candado.unlock();
+        }
+        this.contador.increment();
+    }
+
+    /**
+     * Los elementos se agregan a la franja local con una sola toma de
+     * su candado; lo que exceda el límite local pasa a la central con
+     * un solo CAS.
+     * {@inheritDoc}
+     */
+    @Override
+    public void empujaTodos(E[] elementos, int desde, int cuantos) {
+        Objects.checkFromIndexSize(desde, cuantos, elementos.length);
+        Franja<E> franja = this.franjaLocal();
+        franja.candado.lock();
+        try {
+            franja.pila.empujaTodos(elementos, desde, cuantos);
+            this.desborda(franja);
+        } finally {
+            franja.candado.unlock();
+        }
+        this.contador.add(cuantos);
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E expulsa() {
+        Franja<E> franja = this.franjaLocal();
+        franja.candado.lock();
+        try {
+            if(franja.pila.isEmpty()) {
+                this.rellena(franja);
+            }
+            if(!franja.pila.isEmpty()) {
+                this.contador.decrement();
+                return franja.pila.expulsa();
+            }
+        } finally {
+            franja.candado.unlock();
+        }
+        return this.roba(franja);
+    }
+
+    /**
+     * Toma primero de la franja local, con una sola toma de su
+     * candado, y lo que falte de la central con un solo CAS. Sólo si
+     * ambas se agotan roba de las demás franjas.
+     * {@inheritDoc}
+     */
+    @Override
+    public int expulsaVarios(int n, E[] destino) {
+        Capacidades.revisaCantidad(n, destino.length);
+        Franja<E> franja = this.franjaLocal();
+        int expulsados;
+        franja.candado.lock();
+        try {
+            expulsados = franja.pila.expulsaVarios(n, destino);
+        } finally {
+            franja.candado.unlock();
+        }
+        PilaConcurrente.Nodo<E> nodo = this.central.desprende(n - expulsados);
+        while(expulsados < n && nodo != null) {
+            destino[expulsados++] = nodo.elemento;
+            nodo = nodo.siguiente;
+        }
+        for(Franja<E> otra : this.franjas) {
+            if(expulsados == n) break;
+            if(otra == franja) continue;
+            otra.candado.lock();
+            try {
+                while(expulsados < n && !otra.pila.isEmpty()) {
+                    destino[expulsados++] = otra.pila.expulsa();
+                }
+            } finally {
+                otra.candado.unlock();
+            }
+        }
+        this.contador.add(-expulsados);
+        return expulsados;
+    }
+
+    /**
+     * Los elementos se obtienen como en expulsaVarios y accion se llama
+     * cuando ya no se tiene ningún candado.
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int expulsaHasta(int n, Consumer<? super E> accion) {
+        Objects.requireNonNull(accion);
+        Capacidades.revisaCantidad(n, Integer.MAX_VALUE);
+        E[] expulsados = (E[]) new Object[Math.min(n, this.size())];
+        int cuantos = this.expulsaVarios(expulsados.length, expulsados);
+        for(int i = 0; i < cuantos; i++) {
+            accion.accept(expulsados[i]);
+        }
+        return cuantos;
+    }
+
+    /**
+     * Muestra el elemento que devolvería expulsa si ningún otro hilo
+     * cambia la pila antes: el tope de la franja local o, si está
+     * vacía, el tope de la central, que es el que expulsa subiría al
+     * tope de la franja; si ambas están vacías, el tope de la primera
+     * franja con elementos.
+     * Devuelve <code>null</code> si está vacía.
+     * @return Una referencia al elemento siguiente.
+     */
+    public E mira() {
+        Franja<E> franja = this.franjaLocal();
+        franja.candado.lock();
+        try {
+            if(!franja.pila.isEmpty()) return franja.pila.mira();
+        } finally {
+            franja.candado.unlock();
+        }
+        if(!this.central.isEmpty()) return this.central.mira();
+        for(Franja<E> otra : this.franjas) {
+            otra.candado.lock();
+            try {
+                if(!otra.pila.isEmpty()) return otra.pila.mira();
+            } finally {
+                otra.candado.unlock();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        long suma = this.contador.sum();
+        if(suma <= 0) return 0;
+        return suma > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) suma;
+    }
+
+    @Override
+    public void clear() {
+        for(Franja<E> franja : this.franjas) {
+            franja.candado.lock();
+            try {
+                this.contador.add(-franja.pila.size());
+                franja.pila.clear();
+            } finally {
+                franja.candado.unlock();
+            }
+        }
+        while(!this.central.isEmpty()) {
+            this.central.expulsa();
+            this.contador.decrement();
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return Collections.unmodifiableList(this.copia()).iterator();
+    }
+
+    /* Igual que toArray, recorre una copia; la copia es un ArrayList,
+     * así que se divide por índices. */
+    @Override
+    public Spliterator<E> spliterator() {
+        return this.copia().spliterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return this.copia().toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return this.copia().toArray(a);
+    }
+
+    /* Conecta la sonda de PilaInstrumentada a la pila central, que es
+     * donde se hacen los CAS. */
+    void conecta(SondaDePila sonda) {
+        this.central.conecta(sonda);
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los elementos contenidos en c.
+     * Cada franja se filtra con su candado tomado y la central con un
+     * solo CAS; no es atómico respecto a toda la estructura, igual que
+     * clear.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            boolean coleccionModificada = !this.isEmpty();
+            this.clear();
+            return coleccionModificada;
+        }
+        return this.filtra(c, false);
+    }
+
+    /**
+     * Conserva sólo los elementos contenidos en c. Igual que removeAll,
+     * filtra cada franja con su candado tomado y la central con un solo
+     * CAS.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Filtra la central y luego cada franja, que es una PilaArreglo con
+     * su propio filtro, y descuenta del contador lo que se eliminó.
+     * @return true si se eliminó al menos un elemento. */
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        Collection<?> consulta = indiceDeConsulta(c, this.size());
+        int eliminados = this.central.filtra(consulta, conservarContenidos);
+        this.contador.add(-eliminados);
+        boolean coleccionModificada = eliminados > 0;
+        for(Franja<E> franja : this.franjas) {
+            franja.candado.lock();
+            try {
+                int antes = franja.pila.size();
+                boolean cambio = conservarContenidos
+                    ? franja.pila.retainAll(consulta) : franja.pila.removeAll(consulta);
+                if(cambio) {
+                    this.contador.add(franja.pila.size() - antes);
+                    coleccionModificada = true;
+                }
+            } finally {
+                franja.candado.unlock();
+            }
+        }
+        return coleccionModificada;
+    }
+
+    /* Franja que le corresponde al hilo actual. */
+    private Franja<E> franjaLocal() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return this.franjas[(h ^ (h >>> 16)) & (this.franjas.length - 1)];
+    }
+
+    /* Si la franja rebasó limiteLocal, manda a la central sus
+     * elementos más viejos, lo que sobra más un lote, de modo que
+     * queden limiteLocal - lote + 1 elementos. Se empujan del fondo
+     * hacia arriba, así que el más reciente de ellos queda en el tope
+     * de la central. La franja debe tener su candado tomado. */
+    @SuppressWarnings("unchecked")
+    private void desborda(Franja<E> franja) {
+        int exceso = franja.pila.size() - this.limiteLocal;
+        if(exceso <= 0) return;
+        int cuantos = exceso + this.lote - 1;
+        E[] intercambio = cuantos <= franja.intercambio.length
+            ? franja.intercambio
+            : (E[]) new Object[cuantos];
+        franja.pila.quitaDelFondo(cuantos, intercambio);
+        this.central.empujaTodos(intercambio, 0, cuantos);
+        Arrays.fill(intercambio, 0, cuantos, null);
+    }
+
+    /* Pasa un lote de la pila central a la franja, que debe estar
+     * vacía y con su candado tomado. expulsaVarios entrega el tope
+     * primero, así que el lote se invierte para que ese elemento quede
+     * en el tope de la franja. */
+    private void rellena(Franja<E> franja) {
+        E[] intercambio = franja.intercambio;
+        int cuantos = this.central.expulsaVarios(this.lote, intercambio);
+        for(int i = 0, j = cuantos - 1; i < j; i++, j--) {
+            E aux = intercambio[i];
+            intercambio[i] = intercambio[j];
+            intercambio[j] = aux;
+        }
+        franja.pila.empujaTodos(intercambio, 0, cuantos);
+        Arrays.fill(intercambio, 0, cuantos, null);
+    }
+
+    /* Toma un elemento de alguna franja distinta a la propia. */
+    private E roba(Franja<E> propia) {
+        for(Franja<E> otra : this.franjas) {
+            if(otra == propia) continue;
+            otra.candado.lock();
+            try {
+                if(!otra.pila.isEmpty()) {
+                    this.contador.decrement();
+                    return otra.pila.expulsa();
+                }
+            } finally {
+                otra.candado.unlock();
+            }
+        }
+        return null;
+    }
+
+    /* Copia los elementos, franja por franja y luego la central. */
+    private ArrayList<E> copia() {
+        ArrayList<E> copia = new ArrayList<>(this.size());
+        for(Franja<E> franja : this.franjas) {
+            franja.candado.lock();
+            try {
+                for(E elemento : franja.pila) {
+                    copia.add(elemento);
+                }
+            } finally {
+                franja.candado.unlock();
+            }
+        }
+        for(E elemento : this.central) {
+            copia.add(elemento);
+        }
+        return copia;
+    }
+
+    /* Pila local con su candado. */
+    private static final class Franja<E> {
+        final ReentrantLock candado = new ReentrantLock();
+        final PilaArreglo<E> pila = new PilaArreglo<>();
+        /* Arreglo de un lote para moverlo entre la franja y la central;
+         * sólo se usa con el candado tomado y se deja limpio. */
+        final E[] intercambio;
+
+        @SuppressWarnings("unchecked")
+        Franja(int lote) {
+            this.intercambio = (E[]) new Object[lote];
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Pila de registros de tamaño fijo guardados fuera del montón de Java,
+ * en segmentos de memoria directa. Un {@link Codificador} convierte
+ * cada elemento a su registro binario y de regreso.
+ * Sirve para pilas de cientos de millones de registros pequeños: el
+ * recolector de basura no tiene que recorrer ni mover los elementos,
+ * y la memoria se libera en el momento con {@link #close()}.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - No permite elementos nulos
+ * - Permite elementos repetidos
+ * - expulsa y el iterador crean un elemento nuevo con
+ *   Codificador.lee; mira usa Codificador.vista, que puede devolver un
+ *   objeto reutilizado (flyweight) válido sólo hasta la siguiente
+ *   operación sobre la pila.
+ * - Después de close() todas las operaciones lanzan
+ *   IllegalStateException.
+ * Implementación:
+ * - El elemento en la posición p (0 es el fondo) está en el segmento
+ *   p / registrosPorSegmento, a partir del byte
+ *   (p % registrosPorSegmento) * tamRegistro.
+ * - La pila crece agregando segmentos, sin copiar los existentes. Al
+ *   vaciarse conserva a lo más un segmento de repuesto, igual que
+ *   PilaSegmentada, y libera el resto en el momento.
+ * - El hash se mantiene en hashAcumulado, así que hashCode es O(1).
+ *   Para eso el codificador debe leer elementos iguales a los que
+ *   escribió.
+ */
+public class PilaFueraDelMonton<E> extends ColeccionAbstracta<E> implements IPila<E>, AutoCloseable {
+
+    /* Bytes por segmento cuando no se especifica otro tamaño. */
+    private static final int BYTES_POR_SEGMENTO = 1 << 20;
+
+    /* Convierte los elementos a registros. */
+    private final Codificador<E> codificador;
+
+    /* Bytes de cada registro. */
+    private final int tamRegistro;
+
+    /* Registros que caben en cada segmento. */
+    private final int registrosPorSegmento;
+
+    /* Segmentos de memoria directa, del fondo al tope. */
+    private final ArrayList<ByteBuffer> segmentos = new ArrayList<>();
+
+    /* Indica si ya se liberó la memoria. */
+    private boolean cerrada = false;
+
+    /**
+     * Construye una pila vacía con segmentos de alrededor de 1 MiB.
+     * @param codificador convierte los elementos a registros.
+     * @throws IllegalArgumentException si el tamaño de registro no es
+     * positivo.
+     */
+    public PilaFueraDelMonton(Codificador<E> codificador) {
+        this(codificador, Math.max(1, BYTES_POR_SEGMENTO / revisaRegistro(codificador)));
+    }
+
+    /**
+     * Construye una pila vacía con segmentos de la cantidad de
+     * registros indicada.
+     * @param codificador convierte los elementos a registros.
+     * @param registrosPorSegmento registros que caben en cada segmento.
+     * @throws IllegalArgumentException si el tamaño de registro o la
+     * cantidad de registros no son positivos, o si un segmento no cabe
+     * en un ByteBuffer.
+     */
+    public PilaFueraDelMonton(Codificador<E> codificador, int registrosPorSegmento) {
+        this.tamRegistro = revisaRegistro(codificador);
+        if(registrosPorSegmento < 1
+           || (long) registrosPorSegmento * this.tamRegistro > Capacidades.CAPACIDAD_MAXIMA) {
+            throw new IllegalArgumentException("Registros por segmento inválidos: "
+                                               + registrosPorSegmento);
+        }
+        this.codificador = codificador;
+        this.registrosPorSegmento = registrosPorSegmento;
+        this.tam = 0;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws NullPointerException si e es <code>null</code>.
+     */
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws NullPointerException si e es <code>null</code>.
+     * @throws IllegalStateException si la pila está cerrada o llena.
+     */
+    public void empuja(E e) {
+        if(e == null) {
+            throw new NullPointerException("La pila no permite elementos nulos");
+        }
+        this.revisaAbierta();
+        if(this.tam == Integer.MAX_VALUE) {
+            throw new IllegalStateException("La pila alcanzó su capacidad máxima");
+        }
+        int s = this.tam / this.registrosPorSegmento;
+        if(s == this.segmentos.size()) {
+            this.segmentos.add(MemoriaDirecta.reserva(this.registrosPorSegmento * this.tamRegistro));
+        }
+        this.codificador.escribe(e, this.segmentos.get(s), this.desplazamiento(this.tam));
+        this.tam++;
+        this.hashAcumulado += hashDe(e);
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     */
+    public E expulsa() {
+        this.revisaAbierta();
+        if(this.isEmpty()) return null;
+        E eliminado = this.lee(this.tam - 1);
+        this.tam--;
+        this.hashAcumulado -= hashDe(eliminado);
+        this.liberaSobrantes();
+        return eliminado;
+    }
+
+    /**
+     * Muestra el elemento al tope de la pila a través de
+     * {@link Codificador#vista}, así que no crea objetos si el
+     * codificador reutiliza su vista. En ese caso el resultado sólo es
+     * válido hasta la siguiente operación sobre la pila.
+     * Devuelve <code>null</code> si está vacía.
+     * @return Una vista del elemento siguiente.
+     * @throws IllegalStateException si la pila está cerrada.
+     */
+    public E mira() {
+        this.revisaAbierta();
+        if(this.isEmpty()) return null;
+        int p = this.tam - 1;
+        return this.codificador.vista(this.segmentos.get(p / this.registrosPorSegmento),
+                                      this.desplazamiento(p));
+    }
+
+    /**
+     * Elimina todos los elementos y libera todos los segmentos salvo
+     * uno.
+     * @throws IllegalStateException si la pila está cerrada.
+     */
+    @Override
+    public void clear() {
+        this.revisaAbierta();
+        this.tam = 0;
+        this.hashAcumulado = 0;
+        this.liberaSobrantes();
+    }
+
+    /**
+     * Libera en el momento toda la memoria de la pila. Llamarlo más de
+     * una vez no tiene efecto.
+     */
+    @Override
+    public void close() {
+        if(this.cerrada) return;
+        this.cerrada = true;
+        for(ByteBuffer segmento : this.segmentos) {
+            MemoriaDirecta.libera(segmento);
+        }
+        this.segmentos.clear();
+        this.tam = 0;
+        this.hashAcumulado = 0;
+    }
+
+    /**
+     * Indica cuánta memoria directa tiene reservada la pila.
+     * @return bytes reservados en todos los segmentos.
+     */
+    public long memoriaReservada() {
+        return (long) this.segmentos.size() * this.registrosPorSegmento * this.tamRegistro;
+    }
+
+    /**
+     * Recorre del tope al fondo creando un elemento nuevo por registro.
+     * {@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        this.revisaAbierta();
+        return new Iterador();
+    }
+
+    @Override
+    protected boolean mantieneHash() {
+        return true;
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los elementos contenidos en c,
+     * conservando el orden del resto. Cada registro se lee una vez para
+     * consultarlo en c y los que se quedan se recorren hacia abajo
+     * copiando sus bytes, sin volver a codificarlos.
+     * {@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            boolean coleccionModificada = !this.isEmpty();
+            this.clear();
+            return coleccionModificada;
+        }
+        return this.filtra(c, false);
+    }
+
+    /**
+     * Conserva sólo los elementos contenidos en c, en el mismo orden.
+     * Igual que removeAll, recorre hacia abajo los bytes de los
+     * registros que se quedan.
+     * {@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Aplica accion a cada elemento del fondo al tope. Lo usa
+     * FlujoDePilas. */
+    void recorreDesdeElFondo(Consumer<? super E> accion) {
+        this.revisaAbierta();
+        for(int p = 0; p < this.tam; p++) {
+            accion.accept(this.lee(p));
+        }
+    }
+
+    /* Primero marca las posiciones que se van sin tocar la pila, así un
+     * contains que lance una excepción la deja intacta; después copia
+     * hacia abajo los registros que se quedan.
+     * @return true si se eliminó al menos un elemento. */
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        this.revisaAbierta();
+        Collection<?> consulta = indiceDeConsulta(c, this.tam);
+        BitSet eliminados = new BitSet(this.tam);
+        int hashEliminados = 0;
+        for(int p = 0; p < this.tam; p++) {
+            E elemento = this.lee(p);
+            if(consulta.contains(elemento) != conservarContenidos) {
+                eliminados.set(p);
+                hashEliminados += hashDe(elemento);
+            }
+        }
+        int conservados = eliminados.nextSetBit(0);
+        if(conservados < 0) return false;
+
+        for(int p = conservados + 1; p < this.tam; p++) {
+            if(!eliminados.get(p)) this.mueve(p, conservados++);
+        }
+        this.tam = conservados;
+        this.hashAcumulado -= hashEliminados;
+        this.liberaSobrantes();
+        return true;
+    }
+
+    /* Copia los bytes del registro de la posición origen a la posición
+     * destino. */
+    private void mueve(int origen, int destino) {
+        this.segmentos.get(destino / this.registrosPorSegmento)
+            .put(this.desplazamiento(destino), this.segmentos.get(origen / this.registrosPorSegmento),
+                 this.desplazamiento(origen), this.tamRegistro);
+    }
+
+    /* Crea el elemento de la posición p. */
+    private E lee(int p) {
+        return this.codificador.lee(this.segmentos.get(p / this.registrosPorSegmento),
+                                    this.desplazamiento(p));
+    }
+
+    /* Primer byte del registro de la posición p dentro de su segmento. */
+    private int desplazamiento(int p) {
+        return (p % this.registrosPorSegmento) * this.tamRegistro;
+    }
+
+    /* Libera los segmentos que sobran, dejando uno de repuesto. */
+    private void liberaSobrantes() {
+        int ocupados = (this.tam + this.registrosPorSegmento - 1) / this.registrosPorSegmento;
+        int ultimo = this.segmentos.size() - 1;
+        while(ultimo > ocupados) {
+            MemoriaDirecta.libera(this.segmentos.remove(ultimo--));
+        }
+    }
+
+    private void revisaAbierta() {
+        if(this.cerrada) {
+            throw new IllegalStateException("La pila está cerrada");
+        }
+    }
+
+    private static int revisaRegistro(Codificador<?> codificador) {
+        int tamRegistro = codificador.tamRegistro();
+        if(tamRegistro < 1) {
+            throw new IllegalArgumentException("Tamaño de registro inválido: " + tamRegistro);
+        }
+        return tamRegistro;
+    }
+
+    /* Iterador para estructura PilaFueraDelMonton, recorre del tope al
+     * fondo. */
+    private class Iterador implements Iterator<E> {
+        /* Posición del elemento siguiente a visitar */
+        private int i = tam - 1;
+
+        @Override
+        public boolean hasNext() {
+            return i >= 0;
+        }
+
+        /* Entrega el siguiente elemento de la estructura
+         * IllegalStateException - si la iteración no tiene más
+         * elementos o la pila se cerró
+         */
+        @Override
+        public E next() {
+            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
+            revisaAbierta();
+            return lee(i--);
+        }
+
+        /* No se agrega .remove() porque no es una operación
+         * soportada por la estructura */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
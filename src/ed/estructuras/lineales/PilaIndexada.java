@@ -0,0 +1,252 @@
+package ed.estructuras.lineales;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * PilaLigada que mantiene un índice de pertenencia para responder
+ * contains y containsAll en O(1) por consulta, por ejemplo cuando la
+ * pila guarda el camino actual de un recorrido en profundidad y en
+ * cada paso se pregunta si un vértice ya está en él.
+ * El índice se construye la primera vez que se llama a contains (o al
+ * crear la pila, si así se pide) y a partir de entonces empuja y
+ * expulsa lo actualizan en O(1).
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - Permite elementos nulos
+ * - Permite elementos repetidos
+ * Implementación:
+ * - El índice es un multiconjunto: un HashMap de elemento a número de
+ *   apariciones. Los nulos se cuentan aparte para no depender de que
+ *   el mapa acepte la llave null.
+ * - removeAll, retainAll, transfiereDesde y divide descartan el índice;
+ *   se vuelve a construir en el siguiente contains.
+ * - Los elementos deben tener equals y hashCode consistentes, y no
+ *   deben cambiar su hashCode mientras estén en la pila.
+ */
+public class PilaIndexada<E> extends PilaLigada<E> {
+
+    /* Bytes aproximados por entrada del índice: el nodo del HashMap
+     * (32), el contador (16) y la casilla de la tabla (4, con
+     * referencias comprimidas). */
+    private static final long BYTES_POR_ENTRADA = 52;
+
+    /* Apariciones de cada elemento no nulo, o null si el índice aún no
+     * se construye. */
+    private HashMap<Object, Contador> indice;
+
+    /* Apariciones de null en la pila; sólo es válido si indice no es
+     * null. */
+    private int nulos;
+
+    /**
+     * Construye una pila vacía que construirá su índice en la primera
+     * llamada a contains.
+     */
+    public PilaIndexada() {
+        this(false);
+    }
+
+    /**
+     * Construye una pila vacía.
+     * @param indiceInmediato si es <tt>true</tt> el índice existe desde
+     * el inicio; si es <tt>false</tt> se construye en la primera
+     * llamada a contains.
+     */
+    public PilaIndexada(boolean indiceInmediato) {
+        super();
+        if(indiceInmediato) {
+            this.indice = new HashMap<>();
+            this.nulos = 0;
+        }
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public void empuja(E e) {
+        super.empuja(e);
+        if(this.indice != null) this.cuenta(e);
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public E expulsa() {
+        if(this.isEmpty()) return null;
+        E eliminado = super.expulsa();
+        if(this.indice != null) this.descuenta(eliminado);
+        return eliminado;
+    }
+
+    @Override
+    public void empujaTodos(E[] elementos, int desde, int cuantos) {
+        super.empujaTodos(elementos, desde, cuantos);
+        if(this.indice == null) return;
+        for(int i = desde; i < desde + cuantos; i++) {
+            this.cuenta(elementos[i]);
+        }
+    }
+
+    @Override
+    public int expulsaVarios(int n, E[] destino) {
+        int expulsados = super.expulsaVarios(n, destino);
+        if(this.indice == null) return expulsados;
+        for(int i = 0; i < expulsados; i++) {
+            this.descuenta(destino[i]);
+        }
+        return expulsados;
+    }
+
+    /* Con índice se expulsa de uno en uno, para que accion vea un
+     * índice consistente si consulta contains. */
+    @Override
+    public int expulsaHasta(int n, Consumer<? super E> accion) {
+        if(this.indice == null) return super.expulsaHasta(n, accion);
+        Objects.requireNonNull(accion);
+        Capacidades.revisaCantidad(n, Integer.MAX_VALUE);
+        int expulsados = 0;
+        while(expulsados < n && !this.isEmpty()) {
+            accion.accept(this.expulsa());
+            expulsados++;
+        }
+        return expulsados;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        if(this.indice != null) {
+            this.indice = new HashMap<>();
+            this.nulos = 0;
+        }
+    }
+
+    /**
+     * Verifica si la pila contiene al objeto o en O(1). La primera
+     * llamada construye el índice en O(n).
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(Object o) {
+        if(this.indice == null) this.construyeIndice();
+        if(o == null) return this.nulos > 0;
+        return this.indice.containsKey(o);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        for(Object elemento : c) {
+            if(!this.contains(elemento)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        boolean coleccionModificada = super.removeAll(c);
+        if(coleccionModificada) this.indice = null;
+        return coleccionModificada;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        boolean coleccionModificada = super.retainAll(c);
+        if(coleccionModificada) this.indice = null;
+        return coleccionModificada;
+    }
+
+    @Override
+    public void transfiereDesde(PilaLigada<E> otra) {
+        super.transfiereDesde(otra);
+        this.indice = null;
+    }
+
+    @Override
+    public PilaLigada<E> divide(int profundidad) {
+        PilaLigada<E> resto = super.divide(profundidad);
+        if(!resto.isEmpty()) this.indice = null;
+        return resto;
+    }
+
+    /**
+     * Con índice expulsa de uno en uno para descontar cada elemento.
+     * {@inheritDoc}
+     */
+    @Override
+    public void restaura(Marca marca) {
+        if(this.indice == null) {
+            super.restaura(marca);
+            return;
+        }
+        marca.revisa(this, this.size());
+        this.expulsaHasta(this.size() - marca.profundidad(), e -> { });
+    }
+
+    /**
+     * Indica si el índice de pertenencia ya existe.
+     * @return <tt>true</tt> si contains ya responde en O(1) sin
+     * construir el índice.
+     */
+    public boolean tieneIndice() {
+        return this.indice != null;
+    }
+
+    /**
+     * Estima la memoria que ocupa el índice, además de la que ocupan
+     * los nodos de la pila.
+     * @return bytes aproximados del índice, o 0 si aún no se construye.
+     */
+    public long memoriaIndice() {
+        if(this.indice == null) return 0;
+        return this.indice.size() * BYTES_POR_ENTRADA;
+    }
+
+    /* Recorre la pila una vez para contar las apariciones de cada
+     * elemento. */
+    private void construyeIndice() {
+        this.indice = new HashMap<>();
+        this.nulos = 0;
+        for(E elemento : this) {
+            this.cuenta(elemento);
+        }
+    }
+
+    private void cuenta(E e) {
+        if(e == null) {
+            this.nulos++;
+            return;
+        }
+        Contador contador = this.indice.get(e);
+        if(contador == null) {
+            this.indice.put(e, new Contador());
+        } else {
+            contador.veces++;
+        }
+    }
+
+    private void descuenta(E e) {
+        if(e == null) {
+            this.nulos--;
+            return;
+        }
+        Contador contador = this.indice.get(e);
+        if(--contador.veces == 0) this.indice.remove(e);
+    }
+
+    /* Número de apariciones de un elemento; es mutable para no crear
+     * un Integer en cada empuja. */
+    private static final class Contador {
+        int veces = 1;
+    }
+}
@@ -0,0 +1,495 @@
+package ed.estructuras.lineales;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+
+/**
+ * Decorador que cuenta las operaciones de otra pila y las reporta como
+ * {@link MetricasDePila} y como eventos de JDK Flight Recorder. La
+ * instrumentación es opcional: una pila que no se envuelve no paga
+ * nada por ella.
+ * <p>
+ * Con una grabación de JFR activa se emiten los eventos
+ * <code>ed.estructuras.lineales.Redimension</code> y
+ * <code>ed.estructuras.lineales.Derrame</code> cuando ocurren, y
+ * <code>ed.estructuras.lineales.MetricasDePila</code> con todos los
+ * contadores de cada pila instrumentada, cada segundo por omisión.
+ * Por ejemplo: <code>java -XX:StartFlightRecording ...</code> y luego
+ * <code>jfr print --events ed.estructuras.lineales.* grabacion.jfr</code>.
+ * @param <E> tipo de datos que guarda la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - Permite lo mismo que la pila envuelta (nulos, repetidos, acceso
+ *   concurrente) y tiene su mismo iterador.
+ * Implementación:
+ * - Cada operación se delega y después se cuenta en un LongAdder, así
+ *   que envolver una pila concurrente no agrega un punto de contención.
+ *   La profundidad máxima se actualiza con CAS sólo cuando crece.
+ * - Las operaciones por lote, marca y restaura se delegan tal cual
+ *   para conservar las implementaciones de la pila envuelta.
+ * - Las redimensiones, derrames y reintentos de CAS no se ven desde
+ *   afuera: al construirse, el decorador conecta una SondaDePila a las
+ *   pilas que los reportan. Sin decorador, esas pilas sólo revisan que
+ *   su sonda sea null en esos caminos lentos.
+ * - Una pila que admite nulos no distingue, desde afuera, expulsar un
+ *   null de expulsar de la pila vacía; se cuenta como expulsión en
+ *   vacío cuando expulsa devuelve null y la pila quedó vacía.
+ * - Los eventos instantáneos se crean sólo si JFR los tiene
+ *   habilitados; el evento periódico recorre un conjunto de referencias
+ *   débiles a las pilas instrumentadas. Las referencias de pilas ya
+ *   recolectadas llegan a una ReferenceQueue y se quitan cada vez que
+ *   se instrumenta otra pila, así que el conjunto no crece aunque JFR
+ *   nunca grabe.
+ */
+public class PilaInstrumentada<E> implements IPila<E>, MetricasDePila {
+
+    /* Pilas instrumentadas vivas, para el evento periódico. */
+    private static final Set<WeakReference<PilaInstrumentada<?>>> INSTRUMENTADAS =
+        ConcurrentHashMap.newKeySet();
+
+    /* Referencias de INSTRUMENTADAS cuya pila ya se recolectó. */
+    private static final ReferenceQueue<PilaInstrumentada<?>> RECOLECTADAS = new ReferenceQueue<>();
+
+    static {
+        FlightRecorder.addPeriodicEvent(EventoMetricas.class, PilaInstrumentada::emiteMetricas);
+    }
+
+    /* Pila a la que se delegan las operaciones. */
+    private final IPila<E> pila;
+
+    /* Nombre con que se reportan los eventos. */
+    private final String nombre;
+
+    private final LongAdder empujados = new LongAdder();
+    private final LongAdder expulsados = new LongAdder();
+    private final LongAdder miradas = new LongAdder();
+    private final LongAdder expulsionesEnVacio = new LongAdder();
+    private final LongAdder redimensiones = new LongAdder();
+    private final LongAdder derrames = new LongAdder();
+    private final LongAdder reintentos = new LongAdder();
+    private final AtomicInteger profundidadMaxima = new AtomicInteger();
+
+    /**
+     * Instrumenta pila; los eventos se reportan con el nombre simple de
+     * su clase.
+     * @param pila pila a la que se delegan las operaciones. Ya no debe
+     * usarse directamente, o sus operaciones no se contarán.
+     * @throws NullPointerException si pila es <code>null</code>.
+     */
+    public PilaInstrumentada(IPila<E> pila) {
+        this(pila, pila.getClass().getSimpleName());
+    }
+
+    /**
+     * Instrumenta pila y reporta sus eventos con el nombre indicado.
+     * @param pila pila a la que se delegan las operaciones. Ya no debe
+     * usarse directamente, o sus operaciones no se contarán.
+     * @param nombre nombre de la pila en los eventos de JFR.
+     * @throws NullPointerException si pila o nombre son
+     * <code>null</code>.
+     */
+    public PilaInstrumentada(IPila<E> pila, String nombre) {
+        this.pila = Objects.requireNonNull(pila);
+        this.nombre = Objects.requireNonNull(nombre);
+        this.profundidadMaxima.set(pila.size());
+        SondaDePila.conecta(pila, new Sonda());
+        registra(this);
+    }
+
+    /**
+     * Entrega el nombre con que se reportan los eventos de esta pila.
+     * @return el nombre.
+     */
+    public String nombre() {
+        return this.nombre;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public void empuja(E e) {
+        this.pila.empuja(e);
+        this.empujados.increment();
+        this.registraProfundidad();
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E expulsa() {
+        E eliminado = this.pila.expulsa();
+        if(eliminado == null && this.pila.isEmpty()) {
+            this.expulsionesEnVacio.increment();
+        } else {
+            this.expulsados.increment();
+        }
+        return eliminado;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E mira() {
+        this.miradas.increment();
+        return this.pila.mira();
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public void empujaTodos(E[] elementos, int desde, int cuantos) {
+        this.pila.empujaTodos(elementos, desde, cuantos);
+        this.empujados.add(cuantos);
+        this.registraProfundidad();
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public int expulsaVarios(int n, E[] destino) {
+        return this.cuentaExpulsion(n, this.pila.expulsaVarios(n, destino));
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public int expulsaHasta(int n, Consumer<? super E> accion) {
+        return this.cuentaExpulsion(n, this.pila.expulsaHasta(n, accion));
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public Marca marca() {
+        return this.pila.marca();
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public void restaura(Marca marca) {
+        int antes = this.pila.size();
+        this.pila.restaura(marca);
+        this.expulsados.add(Math.max(0, antes - this.pila.size()));
+    }
+
+    @Override
+    public long empujados() {
+        return this.empujados.sum();
+    }
+
+    @Override
+    public long expulsados() {
+        return this.expulsados.sum();
+    }
+
+    @Override
+    public long miradas() {
+        return this.miradas.sum();
+    }
+
+    @Override
+    public long expulsionesEnVacio() {
+        return this.expulsionesEnVacio.sum();
+    }
+
+    @Override
+    public int profundidadMaxima() {
+        return this.profundidadMaxima.get();
+    }
+
+    @Override
+    public long redimensiones() {
+        return this.redimensiones.sum();
+    }
+
+    @Override
+    public long derrames() {
+        return this.derrames.sum();
+    }
+
+    @Override
+    public long reintentos() {
+        return this.reintentos.sum();
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public boolean add(E e) {
+        boolean agregado = this.pila.add(e);
+        if(agregado) {
+            this.empujados.increment();
+            this.registraProfundidad();
+        }
+        return agregado;
+    }
+
+    /**
+     * Agrega los elementos uno por uno con {@link #add(Object)}, así
+     * que cada uno se cuenta.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        if(c == this || c == this.pila) {
+            throw new IllegalArgumentException();
+        }
+        boolean coleccionModificada = false;
+        for(E elemento : c) {
+            coleccionModificada |= this.add(elemento);
+        }
+        return coleccionModificada;
+    }
+
+    @Override
+    public int size() {
+        return this.pila.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.pila.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return this.pila.contains(o);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        return this.pila.containsAll(c);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return this.pila.iterator();
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return this.pila.spliterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> accion) {
+        this.pila.forEach(accion);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return this.pila.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return this.pila.toArray(a);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return this.pila.remove(o);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return this.pila.removeAll(c == this ? this.pila : c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return this.pila.retainAll(c == this ? this.pila : c);
+    }
+
+    @Override
+    public void clear() {
+        this.pila.clear();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(o == this) return true;
+        return this.pila.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.pila.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.pila.toString();
+    }
+
+    /* Cuenta una expulsión por lote que pidió n elementos y obtuvo
+     * expulsados. */
+    private int cuentaExpulsion(int n, int expulsados) {
+        this.expulsados.add(expulsados);
+        if(expulsados < n) this.expulsionesEnVacio.increment();
+        return expulsados;
+    }
+
+    /* Sube la profundidad máxima si la pila la rebasó. */
+    private void registraProfundidad() {
+        int profundidad = this.pila.size();
+        int maxima = this.profundidadMaxima.get();
+        while(profundidad > maxima && !this.profundidadMaxima.compareAndSet(maxima, profundidad)) {
+            maxima = this.profundidadMaxima.get();
+        }
+    }
+
+    /* Agrega p a INSTRUMENTADAS después de quitar las referencias de
+     * las pilas que ya se recolectaron. */
+    private static void registra(PilaInstrumentada<?> p) {
+        Reference<? extends PilaInstrumentada<?>> recolectada;
+        while((recolectada = RECOLECTADAS.poll()) != null) {
+            INSTRUMENTADAS.remove(recolectada);
+        }
+        INSTRUMENTADAS.add(new WeakReference<>(p, RECOLECTADAS));
+    }
+
+    /* Emite un EventoMetricas por cada pila instrumentada viva; JFR lo
+     * llama una vez por periodo. */
+    private static void emiteMetricas() {
+        for(WeakReference<PilaInstrumentada<?>> referencia : INSTRUMENTADAS) {
+            PilaInstrumentada<?> p = referencia.get();
+            if(p == null) continue;
+            EventoMetricas evento = new EventoMetricas();
+            evento.pila = p.nombre;
+            evento.profundidad = p.size();
+            evento.profundidadMaxima = p.profundidadMaxima();
+            evento.empujados = p.empujados();
+            evento.expulsados = p.expulsados();
+            evento.miradas = p.miradas();
+            evento.expulsionesEnVacio = p.expulsionesEnVacio();
+            evento.redimensiones = p.redimensiones();
+            evento.derrames = p.derrames();
+            evento.reintentos = p.reintentos();
+            evento.commit();
+        }
+    }
+
+    /* Recibe los sucesos internos de la pila envuelta. */
+    private class Sonda implements SondaDePila {
+
+        @Override
+        public void redimensiono(int capacidadAnterior, int capacidadNueva) {
+            redimensiones.increment();
+            EventoRedimension evento = new EventoRedimension();
+            if(evento.isEnabled()) {
+                evento.pila = nombre;
+                evento.capacidadAnterior = capacidadAnterior;
+                evento.capacidadNueva = capacidadNueva;
+                evento.commit();
+            }
+        }
+
+        @Override
+        public void derramo(int elementos) {
+            derrames.increment();
+            EventoDerrame evento = new EventoDerrame();
+            if(evento.isEnabled()) {
+                evento.pila = nombre;
+                evento.elementos = elementos;
+                evento.commit();
+            }
+        }
+
+        @Override
+        public void reintento() {
+            reintentos.increment();
+        }
+    }
+
+    /* Evento de JFR: el arreglo de una pila cambió de capacidad. */
+    @Name("ed.estructuras.lineales.Redimension")
+    @Label("Redimensión de pila")
+    @Category({"Estructuras de datos", "Pilas"})
+    private static final class EventoRedimension extends Event {
+        @Label("Pila")
+        String pila;
+
+        @Label("Capacidad anterior")
+        int capacidadAnterior;
+
+        @Label("Capacidad nueva")
+        int capacidadNueva;
+    }
+
+    /* Evento de JFR: una pila mandó un segmento a disco. */
+    @Name("ed.estructuras.lineales.Derrame")
+    @Label("Derrame de pila a disco")
+    @Category({"Estructuras de datos", "Pilas"})
+    private static final class EventoDerrame extends Event {
+        @Label("Pila")
+        String pila;
+
+        @Label("Elementos")
+        int elementos;
+    }
+
+    /* Evento periódico de JFR con los contadores de una pila. */
+    @Name("ed.estructuras.lineales.MetricasDePila")
+    @Label("Métricas de pila")
+    @Description("Contadores acumulados de una PilaInstrumentada")
+    @Category({"Estructuras de datos", "Pilas"})
+    @Period("1 s")
+    private static final class EventoMetricas extends Event {
+        @Label("Pila")
+        String pila;
+
+        @Label("Profundidad")
+        int profundidad;
+
+        @Label("Profundidad máxima")
+        int profundidadMaxima;
+
+        @Label("Empujados")
+        long empujados;
+
+        @Label("Expulsados")
+        long expulsados;
+
+        @Label("Miradas")
+        long miradas;
+
+        @Label("Expulsiones en vacío")
+        long expulsionesEnVacio;
+
+        @Label("Redimensiones")
+        long redimensiones;
+
+        @Label("Derrames")
+        long derrames;
+
+        @Label("Reintentos de CAS")
+        long reintentos;
+    }
+}
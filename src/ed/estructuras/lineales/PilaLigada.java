@@ -1,8 +1,14 @@
 package ed.estructuras.lineales;
 
 import ed.estructuras.ColeccionAbstracta;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * Clase que implementa interfaz Pila y hereda de ColeccionAbstracta.
@@ -12,18 +18,73 @@ import java.util.Iterator;
  * Características de *esta* clase: - Permite elementos nulos -
  * Permite elementos repetidos Implementación:
  * - Al final del código se encuentra la implementación
- * de las clases internas Nodo e Iterador.
+ * de las clases internas Nodo e Iterador. Nodo es estática: no guarda
+ * una referencia a la pila, así que cada nodo ocupa menos memoria.
+ * - Opcionalmente (ver PilaLigada(int)) los nodos que salen con
+ * expulsa, expulsaVarios o restaura se guardan, sin su elemento, en
+ * una lista de libres de tamaño acotado, y empuja los reutiliza. Con
+ * una profundidad casi constante la pila deja de crear objetos.
+ * - contains, toArray, toString, equals y forEach recorren los nodos
+ * directamente en lugar de usar el iterador.
+ * - El hash se mantiene en hashAcumulado, así que hashCode es O(1).
+ * - Se guarda también el nodo del fondo para poder pasar la cadena
+ * completa de una pila a otra en O(1) (ver transfiereDesde).
+ * - El iterador y forEach fallan rápido: lanzan
+ * ConcurrentModificationException si la pila cambia mientras recorren.
+ * - El spliterator divide la cadena en lotes copiados a arreglos (ver
+ * DivisorPorLotes) y también falla rápido.
  */
 public class PilaLigada<E> extends ColeccionAbstracta<E> implements IPila<E> {
 
     /* Acceso a la pila*/
-    private Nodo cabeza;
+    private Nodo<E> cabeza;
+
+    /* Último nodo de la cadena (el fondo de la pila) */
+    private Nodo<E> fondo;
+
+    /* Cantidad de modificaciones estructurales, para que el iterador
+     * detecte cambios mientras recorre. */
+    private int modificaciones = 0;
+
+    /* Nodos expulsados listos para reutilizarse, ligados por siguiente,
+     * o null. */
+    private Nodo<E> libres;
+
+    /* Cantidad de nodos en libres. */
+    private int cuantosLibres;
+
+    /* Máximo de nodos que se guardan en libres; 0 desactiva el
+     * reciclaje. */
+    private final int maxLibres;
 
     //se reasignan los valores para hacer explícitos los valores
     //iniciales de la PilaLigada.
     public PilaLigada() {
         this.cabeza = null;
+        this.fondo = null;
         this.tam = 0;
+        this.maxLibres = 0;
+    }
+
+    /**
+     * Construye una pila vacía que recicla sus nodos: guarda hasta
+     * reciclables nodos expulsados y los reutiliza en empuja, de modo
+     * que una pila que empuja y expulsa a profundidad casi constante no
+     * crea objetos. Los nodos guardados no conservan su elemento.
+     * El reciclaje no cambia el comportamiento de la pila: las marcas
+     * sólo dependen de la profundidad, no de qué nodo está en ella.
+     * @param reciclables máximo de nodos que se guardan para
+     * reutilizarse; 0 desactiva el reciclaje.
+     * @throws IllegalArgumentException si reciclables es negativo.
+     */
+    public PilaLigada(int reciclables) {
+        if(reciclables < 0) {
+            throw new IllegalArgumentException("Cantidad de nodos reciclables inválida: " + reciclables);
+        }
+        this.cabeza = null;
+        this.fondo = null;
+        this.tam = 0;
+        this.maxLibres = reciclables;
     }
 
     /**
@@ -38,7 +99,10 @@ public class PilaLigada<E> extends ColeccionAbstracta<E> implements IPila<E> {
     @Override
     public void clear() {
         this.cabeza = null;
+        this.fondo = null;
         this.tam = 0;
+        this.hashAcumulado = 0;
+        this.modificaciones++;
     }
 
     /**
@@ -47,9 +111,12 @@ public class PilaLigada<E> extends ColeccionAbstracta<E> implements IPila<E> {
     public void empuja(E e) {
         //if(e == null) return;
 
-        Nodo nuevaCabeza = new Nodo(this.cabeza, e);
+        Nodo<E> nuevaCabeza = this.nuevoNodo(this.cabeza, e);
+        if(this.cabeza == null) this.fondo = nuevaCabeza;
         this.cabeza = nuevaCabeza;
         this.tam++;
+        this.hashAcumulado += hashDe(e);
+        this.modificaciones++;
     }
 
     /**
@@ -58,10 +125,77 @@ public class PilaLigada<E> extends ColeccionAbstracta<E> implements IPila<E> {
     public E expulsa() {
         if(this.isEmpty()) return null;
 
-        Nodo eliminado = this.cabeza;
+        Nodo<E> eliminado = this.cabeza;
+        E elemento = eliminado.getElemento();
         this.cabeza = eliminado.getSiguiente();
-        this.tam--;;
-        return eliminado.getElemento();
+        if(this.cabeza == null) this.fondo = null;
+        this.tam--;
+        this.hashAcumulado -= hashDe(elemento);
+        this.modificaciones++;
+        this.recicla(eliminado);
+        return elemento;
+    }
+
+    /**
+     * Agrega los elementos en una sola pasada que crea sus nodos y
+     * actualiza el tamaño una sola vez.
+     * {@inheritDoc}
+     */
+    @Override
+    public void empujaTodos(E[] elementos, int desde, int cuantos) {
+        Objects.checkFromIndexSize(desde, cuantos, elementos.length);
+        if(cuantos == 0) return;
+
+        Nodo<E> nuevaCabeza = this.cabeza;
+        int hash = 0;
+        for(int i = desde; i < desde + cuantos; i++) {
+            nuevaCabeza = this.nuevoNodo(nuevaCabeza, elementos[i]);
+            hash += hashDe(elementos[i]);
+            if(i == desde && this.cabeza == null) this.fondo = nuevaCabeza;
+        }
+        this.cabeza = nuevaCabeza;
+        this.tam += cuantos;
+        this.hashAcumulado += hash;
+        this.modificaciones++;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @Override
+    public int expulsaVarios(int n, E[] destino) {
+        Capacidades.revisaCantidad(n, destino.length);
+        int expulsados = Math.min(n, this.tam);
+        Nodo<E> n0 = this.cabeza;
+        for(int i = 0; i < expulsados; i++) {
+            destino[i] = n0.elemento;
+            n0 = n0.siguiente;
+        }
+        this.desliga(expulsados, n0, true);
+        return expulsados;
+    }
+
+    /**
+     * Desliga de una vez los nodos por expulsar y después entrega sus
+     * elementos a accion, así que accion puede modificar la pila.
+     * {@inheritDoc}
+     */
+    @Override
+    public int expulsaHasta(int n, Consumer<? super E> accion) {
+        Objects.requireNonNull(accion);
+        Capacidades.revisaCantidad(n, Integer.MAX_VALUE);
+        int expulsados = Math.min(n, this.tam);
+        Nodo<E> primero = this.cabeza;
+        Nodo<E> n0 = primero;
+        for(int i = 0; i < expulsados; i++) {
+            n0 = n0.siguiente;
+        }
+        this.desliga(expulsados, n0, false);
+        for(int i = 0; i < expulsados; i++) {
+            accion.accept(primero.elemento);
+            primero = primero.siguiente;
+        }
+        return expulsados;
     }
 
     /**
@@ -74,24 +208,359 @@ public class PilaLigada<E> extends ColeccionAbstracta<E> implements IPila<E> {
     }
 
 
-    /* Métodos no permitidos por la estructura */
+    /**
+     * Pasa todos los elementos de otra al tope de esta pila, en el
+     * mismo orden, y deja a otra vacía. No copia elementos ni crea
+     * nodos: la cadena de otra se liga sobre la de esta pila en O(1).
+     * @param otra pila cuyos elementos se mueven a ésta.
+     * @throws NullPointerException si otra es <code>null</code>.
+     * @throws IllegalArgumentException si otra es esta pila.
+     */
+    public void transfiereDesde(PilaLigada<E> otra) {
+        if(otra == null) {
+            throw new NullPointerException();
+        }
+        if(otra == this) {
+            throw new IllegalArgumentException();
+        }
+        if(otra.isEmpty()) return;
+
+        Nodo<E> cabezaOtra = otra.cabeza;
+        Nodo<E> fondoOtra = otra.fondo;
+        int tamOtra = otra.tam;
+        int hashOtra = otra.hashAcumulado;
+        otra.clear();
+
+        fondoOtra.siguiente = this.cabeza;
+        if(this.cabeza == null) this.fondo = fondoOtra;
+        this.cabeza = cabezaOtra;
+        this.tam += tamOtra;
+        this.hashAcumulado += hashOtra;
+        this.modificaciones++;
+    }
+
+    /**
+     * Divide la pila en dos sin copiar elementos: esta pila conserva
+     * los profundidad elementos del tope y el resto pasa, en el mismo
+     * orden, a la pila que se devuelve. Cuesta O(profundidad) porque
+     * hay que llegar al nodo donde se corta la cadena.
+     * @param profundidad cantidad de elementos que se quedan en esta
+     * pila.
+     * @return una pila nueva con los elementos que estaban debajo de
+     * esa profundidad; vacía si profundidad es mayor o igual al tamaño.
+     * @throws IllegalArgumentException si profundidad es negativa.
+     */
+    public PilaLigada<E> divide(int profundidad) {
+        if(profundidad < 0) {
+            throw new IllegalArgumentException("Profundidad inválida: " + profundidad);
+        }
+        PilaLigada<E> resto = new PilaLigada<>();
+        if(profundidad >= this.tam) return resto;
+
+        if(profundidad == 0) {
+            resto.cabeza = this.cabeza;
+            resto.fondo = this.fondo;
+            resto.tam = this.tam;
+            resto.hashAcumulado = this.hashAcumulado;
+            this.clear();
+            return resto;
+        }
+
+        Nodo<E> corte = this.cabeza;
+        int hashSuperior = hashDe(corte.elemento);
+        for(int i = 1; i < profundidad; i++) {
+            corte = corte.siguiente;
+            hashSuperior += hashDe(corte.elemento);
+        }
+
+        resto.cabeza = corte.siguiente;
+        resto.fondo = this.fondo;
+        resto.tam = this.tam - profundidad;
+        resto.hashAcumulado = this.hashAcumulado - hashSuperior;
+
+        corte.siguiente = null;
+        this.fondo = corte;
+        this.tam = profundidad;
+        this.hashAcumulado = hashSuperior;
+        this.modificaciones++;
+        return resto;
+    }
+
+    /**
+     * Regresa la cabeza al nodo que está a la profundidad marcada,
+     * desligando de una vez los nodos de encima.
+     * {@inheritDoc}
+     */
+    @Override
+    public void restaura(Marca marca) {
+        marca.revisa(this, this.tam);
+        int expulsados = this.tam - marca.profundidad();
+        Nodo<E> nuevaCabeza = this.cabeza;
+        for(int i = expulsados; i > 0; i--) {
+            nuevaCabeza = nuevaCabeza.siguiente;
+        }
+        this.desliga(expulsados, nuevaCabeza, true);
+    }
+
     @Override
     public Iterator<E> iterator() {
         return new Iterador();
     }
 
+    /**
+     * Crea un spliterator ORDERED, SIZED y SUBSIZED que recorre del
+     * tope al fondo y se divide en lotes, de modo que
+     * <code>parallelStream()</code> sí reparte el trabajo.
+     * @return un spliterator sobre los elementos de la pila.
+     */
     @Override
-    public boolean remove(Object o) {
-        throw new UnsupportedOperationException();
+    public Spliterator<E> spliterator() {
+        return new Divisor();
+    }
+
+    /* Los siguientes métodos recorren los nodos directamente: no crean
+     * un iterador ni consultan size() en cada paso. */
+
+    @Override
+    public boolean contains(Object o) {
+        for(Nodo<E> n = this.cabeza; n != null; n = n.siguiente) {
+            E elemento = n.elemento;
+            if(elemento == null) {
+                if(o == null) return true;
+                continue;
+            }
+            if(elemento.equals(o)) return true;
+        }
+        return false;
     }
 
+    @Override
+    public Object[] toArray() {
+        Object[] representacion = new Object[this.tam];
+        int contador = 0;
+        for(Nodo<E> n = this.cabeza; n != null; n = n.siguiente) {
+            representacion[contador++] = n.elemento;
+        }
+        return representacion;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if(a == null) {
+            throw new NullPointerException("El arreglo no puede ser nulo");
+        }
+
+        if(this.isEmpty()) return a;
+
+        T[] contenedor = a.length >= this.tam ? a : Arrays.copyOf(a, this.tam);
+        Object[] destino = contenedor;
+        int contador = 0;
+        for(Nodo<E> n = this.cabeza; n != null; n = n.siguiente) {
+            destino[contador++] = n.elemento;
+        }
+        //Igual que en ColeccionAbstracta, las casillas sobrantes quedan
+        //en null
+        if(contador < destino.length) {
+            Arrays.fill(destino, contador, destino.length, null);
+        }
+        return contenedor;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder representacion = new StringBuilder();
+        for(Nodo<E> n = this.cabeza; n != null; n = n.siguiente) {
+            representacion.append(n.elemento).append(" ,");
+        }
+        return representacion.toString();
+    }
+
+    /* Si o también es una PilaLigada se recorren las dos cadenas de
+     * nodos a la par; en otro caso se usa la comparación de
+     * ColeccionAbstracta. */
+    @Override
+    public boolean equals(Object o) {
+        if(o == this) return true;
+        if(!(o instanceof PilaLigada<?>)) return super.equals(o);
+
+        PilaLigada<?> otra = (PilaLigada<?>) o;
+        if(this.tam != otra.tam) return false;
+        if(this.hashAcumulado != otra.hashAcumulado) return false;
+
+        Nodo<?> m = otra.cabeza;
+        for(Nodo<E> n = this.cabeza; n != null; n = n.siguiente, m = m.siguiente) {
+            E elemento = n.elemento;
+            Object elemento2 = m.elemento;
+            if(elemento == null) {
+                if(elemento2 != null) return false;
+                continue;
+            }
+            if(!elemento.equals(elemento2)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> accion) {
+        if(accion == null) {
+            throw new NullPointerException();
+        }
+        int esperadas = this.modificaciones;
+        for(Nodo<E> n = this.cabeza; n != null && esperadas == this.modificaciones; n = n.siguiente) {
+            accion.accept(n.elemento);
+        }
+        if(esperadas != this.modificaciones) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los elementos contenidos en c,
+     * conservando el orden del resto. Se hace en una sola pasada que
+     * vuelve a ligar los nodos que se quedan.
+     * {@inheritDoc}
+     */
     @Override
     public boolean removeAll(Collection<?> c) {
-        throw new UnsupportedOperationException();
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            boolean coleccionModificada = !this.isEmpty();
+            this.clear();
+            return coleccionModificada;
+        }
+        return this.filtra(c, false);
     }
 
+    /**
+     * Conserva sólo los elementos contenidos en c, en el mismo orden.
+     * Se hace en una sola pasada que vuelve a ligar los nodos que se
+     * quedan.
+     * {@inheritDoc}
+     */
     @Override
     public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    /* Aplica accion a cada elemento del fondo al tope sin memoria
+     * adicional: invierte la cadena en su lugar, la recorre y la vuelve
+     * a invertir, aun si accion lanza una excepción. accion no debe
+     * tocar la pila. Lo usa FlujoDePilas. */
+    void recorreDesdeElFondo(Consumer<? super E> accion) {
+        this.invierte();
+        try {
+            for(Nodo<E> n = this.cabeza; n != null; n = n.siguiente) {
+                accion.accept(n.elemento);
+            }
+        } finally {
+            this.invierte();
+        }
+    }
+
+    /* Invierte la cadena en su lugar: el fondo pasa a ser la cabeza. */
+    private void invierte() {
+        Nodo<E> anterior = null;
+        Nodo<E> n = this.cabeza;
+        while(n != null) {
+            Nodo<E> siguiente = n.siguiente;
+            n.siguiente = anterior;
+            anterior = n;
+            n = siguiente;
+        }
+        this.fondo = this.cabeza;
+        this.cabeza = anterior;
+    }
+
+    /* Quita los primeros expulsados nodos; nuevaCabeza es el nodo que
+     * queda en el tope. Si reciclar es true los nodos quitados pasan a
+     * la lista de libres, así que quien llama ya no debe leerlos. */
+    private void desliga(int expulsados, Nodo<E> nuevaCabeza, boolean reciclar) {
+        if(expulsados == 0) return;
+        Nodo<E> n = this.cabeza;
+        while(n != nuevaCabeza) {
+            Nodo<E> siguiente = n.siguiente;
+            this.hashAcumulado -= hashDe(n.elemento);
+            if(reciclar) this.recicla(n);
+            n = siguiente;
+        }
+        this.cabeza = nuevaCabeza;
+        if(nuevaCabeza == null) this.fondo = null;
+        this.tam -= expulsados;
+        this.modificaciones++;
+    }
+
+    /* Toma un nodo de la lista de libres, o crea uno si está vacía. */
+    private Nodo<E> nuevoNodo(Nodo<E> siguiente, E elemento) {
+        Nodo<E> nodo = this.libres;
+        if(nodo == null) return new Nodo<>(siguiente, elemento);
+        this.libres = nodo.siguiente;
+        this.cuantosLibres--;
+        nodo.siguiente = siguiente;
+        nodo.elemento = elemento;
+        return nodo;
+    }
+
+    /* Guarda un nodo que ya salió de la pila en la lista de libres, sin
+     * su elemento, si aún cabe. */
+    private void recicla(Nodo<E> nodo) {
+        if(this.cuantosLibres == this.maxLibres) return;
+        nodo.elemento = null;
+        nodo.siguiente = this.libres;
+        this.libres = nodo;
+        this.cuantosLibres++;
+    }
+
+    /* Recorre la cadena una vez marcando los nodos cuyo elemento está
+     * (o no está, según conservarContenidos) en c, sin tocar la pila, así
+     * un contains que lance una excepción la deja intacta; una segunda
+     * vuelta desliga los marcados.
+     * @return true si se desligó al menos un nodo. */
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        Collection<?> consulta = indiceDeConsulta(c, this.tam);
+        BitSet eliminados = new BitSet(this.tam);
+        int i = 0;
+        for(Nodo<E> n = this.cabeza; n != null; n = n.siguiente, i++) {
+            if(consulta.contains(n.elemento) != conservarContenidos) {
+                eliminados.set(i);
+            }
+        }
+        if(eliminados.isEmpty()) return false;
+
+        Nodo<E> anterior = null;
+        i = 0;
+        for(Nodo<E> n = this.cabeza; n != null; n = n.siguiente, i++) {
+            if(!eliminados.get(i)) {
+                anterior = n;
+                continue;
+            }
+            if(anterior == null) {
+                this.cabeza = n.siguiente;
+            } else {
+                anterior.siguiente = n.siguiente;
+            }
+            this.tam--;
+            this.hashAcumulado -= hashDe(n.elemento);
+        }
+        this.fondo = anterior;
+        this.modificaciones++;
+        return true;
+    }
+
+    @Override
+    protected boolean mantieneHash() {
+        return true;
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
         throw new UnsupportedOperationException();
     }
 
@@ -100,9 +569,10 @@ public class PilaLigada<E> extends ColeccionAbstracta<E> implements IPila<E> {
 
     /* Iterador para estructura PilaLigada */
     private class Iterador implements Iterator<E> {
-        /* Índice del elemento siguiente a visitar */
-        private int i = 0;
-        Nodo transeunte = cabeza;
+        /* Nodo del elemento siguiente a visitar */
+        Nodo<E> transeunte = cabeza;
+        /* Modificaciones que tenía la pila al crear el iterador */
+        private final int esperadas = modificaciones;
 
         //Duda sobre los accesos que le puse a los siguientes métodos:
         //No es necesario que la clase sea pública pues se accede a
@@ -112,32 +582,30 @@ public class PilaLigada<E> extends ColeccionAbstracta<E> implements IPila<E> {
         //necesario que san públicos, ¿por qué se permite que la clase
         //ColecciónAbstracta utilice estos métodos si la clase es
         //privada?
-        //Duda, para size() acostumbro poner this, pero no
-        //sé cómo indicar explícitamente que vamos a tomar al método
-        //de un obj de la clase PilaLigada
 
         /* Se utiliza para saber si aún existe elemento siguiente en la
          * estructura
          * @return true si existen más elementos, false en otro caso.
          */
-	    @Override
+        @Override
         public boolean hasNext() {
-		    //return transeunte == null;
-		    return i < PilaLigada.this.size();
+            return transeunte != null;
         }
 
         /* Entrega el siguiente elemento de la estructura
          * @return el siguiente elemento de la estructura
          * IllegalStateException - si la iteración no tiene más
          * elementos
+         * ConcurrentModificationException - si la pila se modificó
+         * después de crear el iterador
          */
         @Override
         public E next() {
-            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
-            E aux = transeunte.getElemento();
-            transeunte = transeunte.getSiguiente();
-            this.i++;
-            return aux;
+            if(esperadas != modificaciones) throw new ConcurrentModificationException();
+            Nodo<E> actual = transeunte;
+            if(actual == null) throw new IllegalStateException("No hay elemento siguiente");
+            transeunte = actual.siguiente;
+            return actual.elemento;
         }
 
         /* No se agrega .remove() porque no es una operación
@@ -148,17 +616,50 @@ public class PilaLigada<E> extends ColeccionAbstracta<E> implements IPila<E> {
         }
     }
 
+    /* Spliterator para estructura PilaLigada; se liga al primer uso y
+     * falla rápido igual que el iterador. */
+    private class Divisor extends DivisorPorLotes<E> {
+        /* Nodo del elemento siguiente a visitar */
+        private Nodo<E> transeunte;
+        /* Modificaciones que tenía la pila al ligarse */
+        private int esperadas;
+
+        Divisor() {
+            super(0);
+        }
+
+        @Override
+        int liga() {
+            this.transeunte = cabeza;
+            this.esperadas = modificaciones;
+            return tam;
+        }
+
+        @Override
+        E siguiente() {
+            Nodo<E> actual = this.transeunte;
+            if(actual == null) throw new ConcurrentModificationException();
+            this.transeunte = actual.siguiente;
+            return actual.elemento;
+        }
+
+        @Override
+        void revisa() {
+            if(this.esperadas != modificaciones) throw new ConcurrentModificationException();
+        }
+    }
+
 	/* Nodos donde se guardan los elementos de la estructura. */
-    private class Nodo {
+    private static final class Nodo<E> {
 
         /* Nodo sobre el que está en la pila*/
-        private Nodo siguiente;
+        private Nodo<E> siguiente;
         /* Elemento que guarda el Nodo */
         private E elemento;
 
 	    /* Guarda en el Nodo a E elemento y lo conecta con su
 	     * siguiente */
-        public Nodo(Nodo siguiente, E elemento) {
+        public Nodo(Nodo<E> siguiente, E elemento) {
             this.siguiente = siguiente;
             this.elemento = elemento;
         }
@@ -170,7 +671,7 @@ public class PilaLigada<E> extends ColeccionAbstracta<E> implements IPila<E> {
 
 	    /* Obtiene al siguiente de el Nodo que manda a llamar al
 	     * método */
-        public Nodo getSiguiente() {
+        public Nodo<E> getSiguiente() {
             return this.siguiente;
         }
     }
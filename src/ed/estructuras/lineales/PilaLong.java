@@ -0,0 +1,517 @@
+/*
+ * Generado por plantillas/genera.sh a partir de
+ * plantillas/PilaPrimitiva.plantilla; los cambios se hacen
+ * en la plantilla.
+ */
+
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Pila de valores {@code long} respaldada por un arreglo primitivo.
+ * Empujar y expulsar con {@link #empuja(long)} y {@link #expulsaLong()}
+ * nunca crea objetos {@code Long}.
+ * También es un {@code IPila<Long>}, de modo que puede pasarse a código
+ * que espera la interfaz genérica; en ese caso los valores se
+ * convierten a objeto en cada operación.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - No permite elementos nulos
+ * - Permite elementos repetidos
+ * Implementación:
+ * - Misma política de crecimiento y reducción que PilaArreglo (ver
+ *   Capacidades).
+ * - El hash se mantiene en hashAcumulado, así que hashCode es O(1).
+ * - Las variantes primitivas de mira y expulsa lanzan
+ *   NoSuchElementException si la pila está vacía; las que reciben un
+ *   valor centinela lo devuelven en ese caso.
+ * - El spliterator es primitivo y se divide por índices, así que
+ *   StreamSupport.longStream(pila.spliterator(), true) reparte el
+ *   trabajo sin convertir los valores a objeto.
+ */
+public class PilaLong extends ColeccionAbstracta<Long> implements IPila<Long> {
+
+    /* Casillas donde se guardan los valores. */
+    private long[] elementos;
+
+    /* Capacidad por debajo de la cual el arreglo no se reduce. */
+    private final int capacidadInicial;
+
+    /* Factor por el que crece (y decrece) el arreglo. */
+    private final double factorCrecimiento;
+
+    /* Recibe las redimensiones si la pila está instrumentada, o null. */
+    private SondaDePila sonda;
+
+    /**
+     * Construye una pila vacía con la capacidad inicial y el factor de
+     * crecimiento por omisión.
+     */
+    public PilaLong() {
+        this(Capacidades.CAPACIDAD_POR_OMISION, Capacidades.FACTOR_POR_OMISION);
+    }
+
+    /**
+     * Construye una pila vacía con la capacidad inicial indicada.
+     * @param capacidadInicial número de casillas reservadas al inicio.
+     * @throws IllegalArgumentException si la capacidad es negativa.
+     */
+    public PilaLong(int capacidadInicial) {
+        this(capacidadInicial, Capacidades.FACTOR_POR_OMISION);
+    }
+
+    /**
+     * Construye una pila vacía con la capacidad inicial y el factor de
+     * crecimiento indicados.
+     * @param capacidadInicial número de casillas reservadas al inicio.
+     * @param factorCrecimiento factor por el que se multiplica la
+     * capacidad cuando el arreglo se llena; debe ser mayor a 1.
+     * @throws IllegalArgumentException si la capacidad es negativa o
+     * el factor no es mayor a 1.
+     */
+    public PilaLong(int capacidadInicial, double factorCrecimiento) {
+        this.capacidadInicial = Capacidades.validaCapacidad(capacidadInicial);
+        this.factorCrecimiento = Capacidades.validaFactor(factorCrecimiento);
+        this.elementos = new long[capacidadInicial];
+        this.tam = 0;
+    }
+
+    /**
+     * Agrega un valor al tope de la pila.
+     * @param e valor a agregar.
+     */
+    public void empuja(long e) {
+        if(this.tam == this.elementos.length) {
+            this.redimensiona(Capacidades.crece(this.elementos.length, this.factorCrecimiento));
+        }
+        this.elementos[this.tam++] = e;
+        this.hashAcumulado += Long.hashCode(e);
+    }
+
+    /**
+     * Devuelve el valor al tope de la pila y lo elimina.
+     * @return el valor que estaba en el tope.
+     * @throws NoSuchElementException si la pila está vacía.
+     */
+    public long expulsaLong() {
+        if(this.isEmpty()) throw new NoSuchElementException("La pila está vacía");
+        long eliminado = this.elementos[--this.tam];
+        this.hashAcumulado -= Long.hashCode(eliminado);
+        this.encogeSiEsNecesario();
+        return eliminado;
+    }
+
+    /**
+     * Devuelve el valor al tope de la pila y lo elimina, o el valor
+     * centinela si la pila está vacía.
+     * @param siVacia valor que se devuelve cuando no hay elementos.
+     * @return el valor que estaba en el tope o {@code siVacia}.
+     */
+    public long expulsaLong(long siVacia) {
+        if(this.isEmpty()) return siVacia;
+        return this.expulsaLong();
+    }
+
+    /**
+     * Muestra el valor al tope de la pila.
+     * @return el valor en el tope.
+     * @throws NoSuchElementException si la pila está vacía.
+     */
+    public long miraLong() {
+        if(this.isEmpty()) throw new NoSuchElementException("La pila está vacía");
+        return this.elementos[this.tam - 1];
+    }
+
+    /**
+     * Muestra el valor al tope de la pila, o el valor centinela si la
+     * pila está vacía.
+     * @param siVacia valor que se devuelve cuando no hay elementos.
+     * @return el valor en el tope o {@code siVacia}.
+     */
+    public long miraLong(long siVacia) {
+        if(this.isEmpty()) return siVacia;
+        return this.elementos[this.tam - 1];
+    }
+
+    /**
+     * Agrega al tope los valores <code>valores[desde]</code> a
+     * <code>valores[desde + cuantos - 1]</code>, en ese orden, con una
+     * sola copia del arreglo.
+     * @param valores arreglo con los valores a agregar.
+     * @param desde posición del primer valor a agregar.
+     * @param cuantos cantidad de valores a agregar.
+     * @throws IndexOutOfBoundsException si el rango no está dentro del
+     * arreglo.
+     * @throws IllegalStateException si la pila excedería su capacidad
+     * máxima.
+     */
+    public void empujaTodos(long[] valores, int desde, int cuantos) {
+        Objects.checkFromIndexSize(desde, cuantos, valores.length);
+        this.aseguraCapacidad(this.tam + (long) cuantos);
+        System.arraycopy(valores, desde, this.elementos, this.tam, cuantos);
+        for(int i = desde; i < desde + cuantos; i++) {
+            this.hashAcumulado += Long.hashCode(valores[i]);
+        }
+        this.tam += cuantos;
+    }
+
+    /**
+     * Expulsa hasta n valores y los guarda en destino, empezando en la
+     * posición 0, en el orden en que salen (el tope primero).
+     * @param n cantidad máxima de valores a expulsar.
+     * @param destino arreglo donde se guardan los valores.
+     * @return cantidad de valores que realmente se expulsaron.
+     * @throws IllegalArgumentException si n es negativo.
+     * @throws IndexOutOfBoundsException si n es mayor que la longitud
+     * de destino.
+     */
+    public int expulsaVarios(int n, long[] destino) {
+        Capacidades.revisaCantidad(n, destino.length);
+        int expulsados = Math.min(n, this.tam);
+        for(int i = 0; i < expulsados; i++) {
+            long eliminado = this.elementos[--this.tam];
+            destino[i] = eliminado;
+            this.hashAcumulado -= Long.hashCode(eliminado);
+        }
+        this.encogeSiEsNecesario();
+        return expulsados;
+    }
+
+    /**
+     * Entrega los valores de la pila en el mismo orden en que los
+     * recorre el iterador, del tope al fondo.
+     * @return arreglo nuevo con los valores de la pila.
+     */
+    public long[] aArreglo() {
+        long[] copia = new long[this.tam];
+        for(int i = 0, j = this.tam - 1; j >= 0; i++, j--) {
+            copia[i] = this.elementos[j];
+        }
+        return copia;
+    }
+
+    /**
+     * Indica cuántos valores caben en la pila antes de tener que
+     * crecer el arreglo.
+     * @return la longitud actual del arreglo interno.
+     */
+    public int capacidad() {
+        return this.elementos.length;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws NullPointerException si e es {@code null}.
+     */
+    public boolean add(Long e) {
+        this.empuja(e);
+        return true;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws NullPointerException si e es {@code null}.
+     */
+    public void empuja(Long e) {
+        if(e == null) {
+            throw new NullPointerException("La pila no permite elementos nulos");
+        }
+        this.empuja(e.longValue());
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public Long expulsa() {
+        if(this.isEmpty()) return null;
+        return this.expulsaLong();
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public Long mira() {
+        if(this.isEmpty()) return null;
+        return this.elementos[this.tam - 1];
+    }
+
+    /**
+     * Regresa el tope a la casilla marcada sin convertir los valores a
+     * objeto.
+     * {@inheritDoc}
+     */
+    @Override
+    public void restaura(Marca marca) {
+        marca.revisa(this, this.tam);
+        int profundidad = marca.profundidad();
+        for(int i = profundidad; i < this.tam; i++) {
+            this.hashAcumulado -= Long.hashCode(this.elementos[i]);
+        }
+        this.tam = profundidad;
+        this.encogeSiEsNecesario();
+    }
+
+    @Override
+    public void clear() {
+        if(this.elementos.length > this.capacidadInicial) {
+            if(this.sonda != null) this.sonda.redimensiono(this.elementos.length, this.capacidadInicial);
+            this.elementos = new long[this.capacidadInicial];
+        }
+        this.tam = 0;
+        this.hashAcumulado = 0;
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new Iterador();
+    }
+
+    /**
+     * Crea un spliterator primitivo ORDERED, SIZED y SUBSIZED que
+     * recorre del tope al fondo y se divide por índices.
+     * @return un spliterator sobre los valores de la pila.
+     */
+    @Override
+    public Spliterator.OfLong spliterator() {
+        return new Divisor(null, 0, -1);
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los valores contenidos en c,
+     * conservando el orden del resto. Se hace compactando el arreglo en
+     * una sola pasada.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            boolean coleccionModificada = !this.isEmpty();
+            this.clear();
+            return coleccionModificada;
+        }
+        return this.filtra(c, false);
+    }
+
+    /**
+     * Conserva sólo los valores contenidos en c, en el mismo orden. Se
+     * hace compactando el arreglo en una sola pasada.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    @Override
+    protected boolean mantieneHash() {
+        return true;
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Primero marca las casillas que se van sin tocar la pila, así un
+     * contains que lance una excepción la deja intacta; después recorre
+     * hacia abajo los valores que se quedan. Cada valor se convierte a
+     * objeto sólo para consultarlo en c.
+     * @return true si se eliminó al menos un valor. */
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        Collection<?> consulta = indiceDeConsulta(c, this.tam);
+        BitSet eliminados = new BitSet(this.tam);
+        for(int i = 0; i < this.tam; i++) {
+            if(consulta.contains(this.elementos[i]) != conservarContenidos) {
+                eliminados.set(i);
+            }
+        }
+        if(eliminados.isEmpty()) return false;
+
+        int conservados = 0;
+        for(int i = 0; i < this.tam; i++) {
+            long valor = this.elementos[i];
+            if(eliminados.get(i)) {
+                this.hashAcumulado -= Long.hashCode(valor);
+            } else {
+                this.elementos[conservados++] = valor;
+            }
+        }
+
+        this.tam = conservados;
+        this.encogeSiEsNecesario();
+        return true;
+    }
+
+    /* Copia a destino los valores a partir de la posición desde (0 es
+     * el fondo), tantos como quepan, con una sola copia en bloque.
+     * Devuelve cuántos copió. Lo usa FlujoDePilas. */
+    int vuelca(int desde, LongBuffer destino) {
+        int cuantos = Math.min(destino.remaining(), this.tam - desde);
+        destino.put(this.elementos, desde, cuantos);
+        return cuantos;
+    }
+
+    /* Agrega al tope todos los valores que le quedan a origen, del
+     * fondo al tope, con una sola copia en bloque. Lo usa
+     * FlujoDePilas. */
+    void carga(LongBuffer origen) {
+        int cuantos = origen.remaining();
+        this.aseguraCapacidad(this.tam + (long) cuantos);
+        origen.get(this.elementos, this.tam, cuantos);
+        for(int i = this.tam; i < this.tam + cuantos; i++) {
+            this.hashAcumulado += Long.hashCode(this.elementos[i]);
+        }
+        this.tam += cuantos;
+    }
+
+    /* Crece el arreglo hasta que quepan requeridos valores.
+     * IllegalStateException si rebasan la capacidad máxima. */
+    private void aseguraCapacidad(long requeridos) {
+        if(requeridos <= this.elementos.length) return;
+        if(requeridos > Capacidades.CAPACIDAD_MAXIMA) {
+            throw new IllegalStateException("La pila alcanzó su capacidad máxima");
+        }
+        int capacidad = this.elementos.length;
+        while(capacidad < requeridos) {
+            capacidad = Capacidades.crece(capacidad, this.factorCrecimiento);
+        }
+        this.redimensiona(capacidad);
+    }
+
+    /* Reduce el arreglo mientras la ocupación esté por debajo del
+     * umbral de Capacidades. */
+    private void encogeSiEsNecesario() {
+        while(Capacidades.debeEncoger(this.tam, this.elementos.length,
+                                      this.capacidadInicial, this.factorCrecimiento)) {
+            this.redimensiona(Capacidades.encoge(this.elementos.length,
+                                                 this.capacidadInicial,
+                                                 this.factorCrecimiento));
+        }
+    }
+
+    /* Copia los valores a un arreglo de la capacidad indicada. */
+    private void redimensiona(int capacidad) {
+        if(this.sonda != null) this.sonda.redimensiono(this.elementos.length, capacidad);
+        this.elementos = Arrays.copyOf(this.elementos, capacidad);
+    }
+
+    /* Conecta la sonda de PilaInstrumentada. */
+    void conecta(SondaDePila sonda) {
+        this.sonda = sonda;
+    }
+
+    /* Spliterator primitivo para estructura PilaLong. Recorre las
+     * casillas [bajo, alto) de la más alta a la más baja, es decir, del
+     * tope al fondo. Se liga al arreglo y al tamaño en el primer uso. */
+    private class Divisor implements Spliterator.OfLong {
+        private long[] arreglo;
+        private int bajo;
+        /* Casilla siguiente a la del próximo valor, o -1 si aún no se
+         * liga */
+        private int alto;
+
+        Divisor(long[] arreglo, int bajo, int alto) {
+            this.arreglo = arreglo;
+            this.bajo = bajo;
+            this.alto = alto;
+        }
+
+        private int alto() {
+            if(this.alto < 0) {
+                this.arreglo = elementos;
+                this.alto = tam;
+            }
+            return this.alto;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer accion) {
+            Objects.requireNonNull(accion);
+            if(this.alto() <= this.bajo) return false;
+            accion.accept(this.arreglo[--this.alto]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer accion) {
+            Objects.requireNonNull(accion);
+            int i = this.alto();
+            long[] a = this.arreglo;
+            while(i > this.bajo) {
+                accion.accept(a[--i]);
+            }
+            this.alto = this.bajo;
+        }
+
+        /* La mitad más cercana al tope va primero en el recorrido, así
+         * que es la que se entrega. */
+        @Override
+        public Spliterator.OfLong trySplit() {
+            int mitad = (this.bajo + this.alto()) >>> 1;
+            if(mitad <= this.bajo) return null;
+            Divisor tope = new Divisor(this.arreglo, mitad, this.alto);
+            this.alto = mitad;
+            return tope;
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.alto() - this.bajo;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED
+                | Spliterator.NONNULL;
+        }
+    }
+
+    /* Iterador primitivo para estructura PilaLong, recorre del tope al
+     * fondo sin convertir los valores a objeto. */
+    private class Iterador implements PrimitiveIterator.OfLong {
+        /* Casilla del valor siguiente a visitar */
+        private int i = tam - 1;
+
+        @Override
+        public boolean hasNext() {
+            return i >= 0;
+        }
+
+        /* Entrega el siguiente valor de la estructura
+         * IllegalStateException - si la iteración no tiene más
+         * elementos
+         */
+        @Override
+        public long nextLong() {
+            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
+            return elementos[i--];
+        }
+
+        /* No se agrega .remove() porque no es una operación
+         * soportada por la estructura */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,669 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.zip.CRC32C;
+
+/**
+ * Pila durable guardada en un archivo mapeado a memoria. Sus elementos
+ * sobreviven a que el proceso termine, incluso de golpe: al abrir el
+ * archivo otra vez la pila queda como estaba en la última confirmación
+ * o en algún estado posterior por el que sí pasó.
+ * empuja y expulsa son O(1); qué tan seguido se confirma en disco lo
+ * decide una {@link PoliticaDeSincronizacion}.
+ * <p>
+ * Cada posición de la pila ocupa una casilla fija del archivo, y las
+ * casillas por debajo del tope de la última confirmación son parte del
+ * estado confirmado. Por eso un empuja que cae por debajo de ese tope
+ * (después de expulsar más de lo que se ha empujado desde la última
+ * confirmación) confirma antes de sobreescribir la casilla, sin
+ * importar la política. Con cargas que van vaciando la pila, por
+ * ejemplo expulsa, expulsa, empuja repetidamente, esto cuesta una
+ * confirmación por cada empuja y la política deja de agrupar.
+ * <p>
+ * Cada elemento se codifica en un registro de tamaño fijo, de 1 a 4096
+ * bytes ({@link Codificador#tamRegistro()}).
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - No permite elementos nulos
+ * - Permite elementos repetidos
+ * - No es segura para usarse desde varios hilos, y un archivo sólo
+ *   puede tenerlo abierto una pila a la vez (se toma un candado sobre
+ *   el archivo).
+ * - Después de close() todas las operaciones lanzan
+ *   IllegalStateException.
+ * Implementación:
+ * - El archivo tiene una cabecera de CABECERA bytes y después una
+ *   casilla de tamCasilla bytes por posición de la pila, del fondo al
+ *   tope. Cada casilla guarda el número de secuencia del registro, la
+ *   secuencia del registro sobre el que se empujó, la época (cuántas
+ *   veces se ha abierto el archivo), un CRC32C y los datos que escribe
+ *   el Codificador.
+ * - La cabecera tiene dos ranuras de confirmación que se usan por
+ *   turnos. Cada una guarda la generación, el tope confirmado, la
+ *   secuencia del registro en el tope, la siguiente secuencia, la
+ *   época y su propio CRC. Al confirmar primero se fuerzan a disco las
+ *   casillas escritas desde la confirmación anterior y después la
+ *   ranura, así que una ranura válida nunca apunta a datos que no
+ *   estén en disco. Si el proceso termina a medio escribir una ranura,
+ *   la otra sigue siendo válida.
+ * - Al abrir, la pila parte del tope de la ranura válida más reciente
+ *   y avanza mientras la casilla siguiente tenga CRC correcto, sea de
+ *   la misma época y de una secuencia posterior a la confirmación, y
+ *   diga haberse empujado sobre el registro que hay debajo. Así sólo se
+ *   lee la cola no confirmada, no todo el archivo, y la pila recuperada
+ *   es un estado por el que realmente pasó.
+ * - Una casilla por debajo del tope confirmado es parte del estado
+ *   confirmado, así que antes de sobreescribirla (empujar después de
+ *   expulsar por debajo de la última confirmación) se confirma el tope
+ *   actual. Un registro de sólo agregar evitaría esta confirmación
+ *   forzada, pero tendría que compactarse y la recuperación ya no
+ *   podría partir de la casilla del tope; se prefirió el costo en las
+ *   cargas que van vaciando la pila.
+ * - El tamaño de registro se limita a CABECERA bytes para que las
+ *   casillas, y con ellas las regiones mapeadas, sigan siendo
+ *   pequeñas.
+ * - Al abrir se incrementa la época y se confirma, de modo que las
+ *   casillas que quedaron sin confirmar de una ejecución anterior no se
+ *   confundan nunca con casillas nuevas.
+ * - El archivo se mapea en regiones de alrededor de BYTES_POR_REGION;
+ *   crece agregando regiones y nunca se reduce.
+ */
+public class PilaMapeada<E> extends ColeccionAbstracta<E> implements IPila<E>, AutoCloseable {
+
+    /* Identifica a los archivos de esta clase ("PILA"). */
+    private static final int MAGICO = 0x50494C41;
+    private static final int VERSION = 1;
+
+    /* Bytes de la cabecera; las casillas empiezan después. */
+    private static final int CABECERA = 4096;
+
+    /* Campos de la cabecera. */
+    private static final int POS_MAGICO = 0;
+    private static final int POS_VERSION = 4;
+    private static final int POS_TAM_REGISTRO = 8;
+    private static final int[] POS_RANURAS = {64, 128};
+
+    /* Campos de cada ranura de confirmación. */
+    private static final int RANURA_GENERACION = 0;
+    private static final int RANURA_TOPE = 8;
+    private static final int RANURA_SECUENCIA_TOPE = 16;
+    private static final int RANURA_SIGUIENTE = 24;
+    private static final int RANURA_EPOCA = 32;
+    private static final int RANURA_CRC = 36;
+    private static final int TAM_RANURA = 40;
+
+    /* Campos de cada casilla; los datos van al final. */
+    private static final int CASILLA_SECUENCIA = 0;
+    private static final int CASILLA_ANTERIOR = 8;
+    private static final int CASILLA_EPOCA = 16;
+    private static final int CASILLA_CRC = 20;
+    private static final int CASILLA_DATOS = 24;
+
+    /* Tamaño aproximado de cada región mapeada. */
+    private static final int BYTES_POR_REGION = 1 << 26;
+
+    /* Convierte los elementos a registros. */
+    private final Codificador<E> codificador;
+
+    /* Bytes de los datos de cada registro. */
+    private final int tamRegistro;
+
+    /* Bytes de cada casilla, múltiplo de 8. */
+    private final int tamCasilla;
+
+    /* Casillas por región mapeada. */
+    private final int casillasPorRegion;
+
+    private final PoliticaDeSincronizacion politica;
+
+    private final FileChannel canal;
+
+    /* Evita que otra pila abra el mismo archivo; se suelta al cerrar el
+     * canal. */
+    private final FileLock candado;
+
+    private final MappedByteBuffer cabecera;
+
+    /* Regiones mapeadas, en orden, y una copia de cada una con su
+     * propia posición y límite para calcular CRCs sin crear objetos. */
+    private final ArrayList<MappedByteBuffer> regiones = new ArrayList<>();
+    private final ArrayList<ByteBuffer> copias = new ArrayList<>();
+
+    private final CRC32C crc = new CRC32C();
+
+    /* Estado de la última confirmación. */
+    private long generacion;
+    private int topeConfirmado;
+
+    /* Época de esta apertura del archivo. */
+    private final int epoca;
+
+    /* Secuencia que recibirá el siguiente registro. */
+    private long siguienteSecuencia;
+
+    /* Secuencia del registro en el tope, o 0 si la pila está vacía. */
+    private long secuenciaTope;
+
+    /* Casillas escritas desde la última confirmación: [sucioDesde,
+     * sucioHasta), vacío si sucioDesde >= sucioHasta. */
+    private int sucioDesde = Integer.MAX_VALUE;
+    private int sucioHasta = 0;
+
+    /* Operaciones desde la última confirmación y su momento. */
+    private int pendientes = 0;
+    private long ultimaConfirmacion;
+
+    private boolean cerrada = false;
+
+    /**
+     * Abre la pila guardada en el archivo indicado, o crea una vacía si
+     * el archivo no existe, confirmando cada 1024 operaciones.
+     * @param archivo ruta del archivo.
+     * @param codificador convierte los elementos a registros.
+     * @throws IOException si no se puede leer o escribir el archivo, o
+     * si no es un archivo de pila compatible.
+     */
+    public PilaMapeada(Path archivo, Codificador<E> codificador) throws IOException {
+        this(archivo, codificador, PoliticaDeSincronizacion.cadaN(1024));
+    }
+
+    /**
+     * Abre la pila guardada en el archivo indicado, o crea una vacía si
+     * el archivo no existe. Si el proceso que la usaba terminó sin
+     * cerrarla, recupera el último estado consistente leyendo sólo las
+     * operaciones que no alcanzaron a confirmarse.
+     * @param archivo ruta del archivo.
+     * @param codificador convierte los elementos a registros; debe ser
+     * el mismo tipo de registro con que se creó el archivo, y su
+     * tamaño de registro debe estar entre 1 y 4096 bytes.
+     * @param politica cada cuándo se confirma en disco; no aplica a los
+     * empuja que sobreescriben una casilla confirmada, que siempre
+     * confirman antes.
+     * @throws IOException si no se puede leer o escribir el archivo, o
+     * si no es un archivo de pila compatible.
+     * @throws IllegalStateException si el archivo ya está abierto por
+     * otra pila.
+     * @throws IllegalArgumentException si el tamaño de registro no está
+     * entre 1 y 4096 bytes.
+     */
+    public PilaMapeada(Path archivo, Codificador<E> codificador,
+                       PoliticaDeSincronizacion politica) throws IOException {
+        int tamRegistro = codificador.tamRegistro();
+        if(tamRegistro < 1 || tamRegistro > CABECERA) {
+            throw new IllegalArgumentException("Tamaño de registro inválido: " + tamRegistro);
+        }
+        if(politica == null) {
+            throw new NullPointerException("Se necesita una política de sincronización");
+        }
+        this.codificador = codificador;
+        this.politica = politica;
+        this.tamRegistro = tamRegistro;
+        this.tamCasilla = (CASILLA_DATOS + tamRegistro + 7) & ~7;
+        this.casillasPorRegion = Math.max(1, BYTES_POR_REGION / this.tamCasilla);
+
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                                      StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.candado = this.toma(this.canal);
+            boolean nuevo = this.canal.size() == 0;
+            this.cabecera = this.canal.map(FileChannel.MapMode.READ_WRITE, 0, CABECERA);
+            this.cabecera.order(ByteOrder.LITTLE_ENDIAN);
+            if(nuevo) {
+                this.cabecera.putInt(POS_MAGICO, MAGICO);
+                this.cabecera.putInt(POS_VERSION, VERSION);
+                this.cabecera.putInt(POS_TAM_REGISTRO, tamRegistro);
+            } else {
+                this.revisaCabecera(archivo);
+            }
+            long casillas = (this.canal.size() - CABECERA) / this.tamCasilla;
+            while((long) this.regiones.size() * this.casillasPorRegion < casillas) {
+                this.agregaRegion();
+            }
+            int epocaAnterior = this.recupera();
+            this.epoca = epocaAnterior + 1;
+            this.confirma();
+        } catch(IOException | RuntimeException e) {
+            this.liberaTodo();
+            throw e;
+        }
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws NullPointerException si e es <code>null</code>.
+     */
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws NullPointerException si e es <code>null</code>.
+     * @throws IllegalStateException si la pila está cerrada o llena.
+     * @throws UncheckedIOException si falla la escritura del archivo.
+     */
+    public void empuja(E e) {
+        if(e == null) {
+            throw new NullPointerException("La pila no permite elementos nulos");
+        }
+        this.revisaAbierta();
+        if(this.tam == Integer.MAX_VALUE) {
+            throw new IllegalStateException("La pila alcanzó su capacidad máxima");
+        }
+        int p = this.tam;
+        if(p < this.topeConfirmado) {
+            // La casilla p es parte del estado confirmado.
+            this.confirma();
+        }
+        if(p / this.casillasPorRegion == this.regiones.size()) {
+            this.agregaRegionSinRevisar();
+        }
+        ByteBuffer region = this.regiones.get(p / this.casillasPorRegion);
+        int inicio = this.desplazamiento(p);
+        long secuencia = this.siguienteSecuencia++;
+        this.codificador.escribe(e, region, inicio + CASILLA_DATOS);
+        region.putLong(inicio + CASILLA_SECUENCIA, secuencia);
+        region.putLong(inicio + CASILLA_ANTERIOR, this.secuenciaTope);
+        region.putInt(inicio + CASILLA_EPOCA, this.epoca);
+        region.putInt(inicio + CASILLA_CRC, this.crcDeCasilla(p));
+        this.sucioDesde = Math.min(this.sucioDesde, p);
+        this.sucioHasta = Math.max(this.sucioHasta, p + 1);
+        this.secuenciaTope = secuencia;
+        this.tam++;
+        this.registraOperacion();
+    }
+
+    /**
+     *{@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     * @throws UncheckedIOException si falla la escritura del archivo.
+     */
+    public E expulsa() {
+        this.revisaAbierta();
+        if(this.isEmpty()) return null;
+        E eliminado = this.lee(this.tam - 1);
+        this.tam--;
+        this.secuenciaTope = this.tam == 0 ? 0 : this.secuencia(this.tam - 1);
+        this.registraOperacion();
+        return eliminado;
+    }
+
+    /**
+     * Muestra el elemento al tope de la pila a través de
+     * {@link Codificador#vista}.
+     * Devuelve <code>null</code> si está vacía.
+     * @return Una vista del elemento siguiente.
+     * @throws IllegalStateException si la pila está cerrada.
+     */
+    public E mira() {
+        this.revisaAbierta();
+        if(this.isEmpty()) return null;
+        int p = this.tam - 1;
+        return this.codificador.vista(this.regiones.get(p / this.casillasPorRegion),
+                                      this.desplazamiento(p) + CASILLA_DATOS);
+    }
+
+    /**
+     * Elimina todos los elementos. El archivo conserva su tamaño.
+     * @throws IllegalStateException si la pila está cerrada.
+     */
+    @Override
+    public void clear() {
+        this.revisaAbierta();
+        this.tam = 0;
+        this.secuenciaTope = 0;
+        this.registraOperacion();
+    }
+
+    /**
+     * Guarda en disco todas las operaciones hechas hasta ahora. Cuando
+     * termina, la pila se recupera por lo menos hasta este estado.
+     * @throws IllegalStateException si la pila está cerrada.
+     * @throws UncheckedIOException si falla la escritura del archivo.
+     */
+    public void confirma() {
+        this.revisaAbierta();
+        this.fuerzaCasillas();
+        int ranura = (int) (++this.generacion & 1);
+        int base = POS_RANURAS[ranura];
+        this.cabecera.putLong(base + RANURA_GENERACION, this.generacion);
+        this.cabecera.putLong(base + RANURA_TOPE, this.tam);
+        this.cabecera.putLong(base + RANURA_SECUENCIA_TOPE, this.secuenciaTope);
+        this.cabecera.putLong(base + RANURA_SIGUIENTE, this.siguienteSecuencia);
+        this.cabecera.putInt(base + RANURA_EPOCA, this.epoca);
+        this.cabecera.putInt(base + RANURA_CRC, this.crcDeRanura(base));
+        this.cabecera.force(base, TAM_RANURA);
+        this.topeConfirmado = this.tam;
+        this.pendientes = 0;
+        this.ultimaConfirmacion = System.nanoTime();
+    }
+
+    /**
+     * Confirma las operaciones pendientes, desmapea el archivo y lo
+     * cierra. Llamarlo más de una vez no tiene efecto.
+     * @throws UncheckedIOException si falla la escritura del archivo.
+     */
+    @Override
+    public void close() {
+        if(this.cerrada) return;
+        try {
+            this.confirma();
+        } finally {
+            this.liberaTodo();
+        }
+    }
+
+    /**
+     * Recorre del tope al fondo creando un elemento nuevo por registro.
+     * {@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        this.revisaAbierta();
+        return new Iterador();
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los elementos contenidos en c,
+     * conservando el orden del resto. Se hace como si se expulsara
+     * hasta el primer elemento eliminado y se volvieran a empujar los
+     * que se quedan; si el proceso termina a la mitad, la pila se
+     * recupera en alguno de esos estados intermedios.
+     * {@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     * @throws UncheckedIOException si falla la escritura del archivo.
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            boolean coleccionModificada = !this.isEmpty();
+            this.clear();
+            return coleccionModificada;
+        }
+        return this.filtra(c, false);
+    }
+
+    /**
+     * Conserva sólo los elementos contenidos en c, en el mismo orden.
+     * Igual que removeAll, expulsa hasta el primer elemento eliminado y
+     * vuelve a empujar los que se quedan.
+     * {@inheritDoc}
+     * @throws IllegalStateException si la pila está cerrada.
+     * @throws UncheckedIOException si falla la escritura del archivo.
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Primero decide qué elementos se quedan sin tocar la pila, así un
+     * contains que lance una excepción la deja intacta. Después baja el
+     * tope hasta el primer eliminado y empuja los que se quedan encima
+     * de él: cada casilla se escribe con empuja, que confirma antes de
+     * sobreescribir una casilla confirmada, así que la recuperación
+     * sigue viendo sólo estados por los que pasó la pila.
+     * @return true si se eliminó al menos un elemento. */
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        this.revisaAbierta();
+        Collection<?> consulta = indiceDeConsulta(c, this.tam);
+        int primerCambio = -1;
+        ArrayList<E> reempujar = new ArrayList<>();
+        for(int p = 0; p < this.tam; p++) {
+            E elemento = this.lee(p);
+            if(consulta.contains(elemento) != conservarContenidos) {
+                if(primerCambio < 0) primerCambio = p;
+            } else if(primerCambio >= 0) {
+                reempujar.add(elemento);
+            }
+        }
+        if(primerCambio < 0) return false;
+
+        this.tam = primerCambio;
+        this.secuenciaTope = this.tam == 0 ? 0 : this.secuencia(this.tam - 1);
+        this.registraOperacion();
+        for(E elemento : reempujar) {
+            this.empuja(elemento);
+        }
+        return true;
+    }
+
+    /* Busca la ranura válida más reciente y avanza sobre la cola no
+     * confirmada. Deja listos tam, secuenciaTope, siguienteSecuencia y
+     * generacion.
+     * @return la época de la ranura usada, o 0 si no había ninguna. */
+    private int recupera() {
+        int mejor = -1;
+        for(int i = 0; i < POS_RANURAS.length; i++) {
+            int base = POS_RANURAS[i];
+            if(this.cabecera.getInt(base + RANURA_CRC) != this.crcDeRanura(base)) continue;
+            if(this.cabecera.getLong(base + RANURA_GENERACION) == 0) continue;
+            if(mejor < 0 || this.cabecera.getLong(base + RANURA_GENERACION)
+                            > this.cabecera.getLong(POS_RANURAS[mejor] + RANURA_GENERACION)) {
+                mejor = i;
+            }
+        }
+        if(mejor < 0) {
+            this.generacion = 0;
+            this.tam = 0;
+            this.secuenciaTope = 0;
+            this.siguienteSecuencia = 1;
+            return 0;
+        }
+        int base = POS_RANURAS[mejor];
+        this.generacion = this.cabecera.getLong(base + RANURA_GENERACION);
+        long confirmadas = this.cabecera.getLong(base + RANURA_SIGUIENTE);
+        int epocaConfirmada = this.cabecera.getInt(base + RANURA_EPOCA);
+        long anterior = this.cabecera.getLong(base + RANURA_SECUENCIA_TOPE);
+        long casillas = (long) this.regiones.size() * this.casillasPorRegion;
+        int tope = (int) this.cabecera.getLong(base + RANURA_TOPE);
+        int p = tope;
+        long maxima = confirmadas - 1;
+        while(p < casillas && p < Integer.MAX_VALUE) {
+            ByteBuffer region = this.regiones.get(p / this.casillasPorRegion);
+            int inicio = this.desplazamiento(p);
+            long secuencia = region.getLong(inicio + CASILLA_SECUENCIA);
+            if(region.getInt(inicio + CASILLA_EPOCA) != epocaConfirmada
+               || secuencia < confirmadas
+               || region.getLong(inicio + CASILLA_ANTERIOR) != anterior
+               || region.getInt(inicio + CASILLA_CRC) != this.crcDeCasilla(p)) {
+                break;
+            }
+            anterior = secuencia;
+            maxima = Math.max(maxima, secuencia);
+            p++;
+        }
+        this.tam = p;
+        this.secuenciaTope = anterior;
+        this.siguienteSecuencia = maxima + 1;
+        // La cola recuperada puede seguir sólo en el caché del sistema
+        // operativo; se fuerza a disco en la confirmación de apertura.
+        this.sucioDesde = tope;
+        this.sucioHasta = p;
+        return epocaConfirmada;
+    }
+
+    /* Fuerza a disco las casillas escritas desde la última
+     * confirmación. */
+    private void fuerzaCasillas() {
+        if(this.sucioDesde >= this.sucioHasta) return;
+        int desde = this.sucioDesde;
+        while(desde < this.sucioHasta) {
+            int r = desde / this.casillasPorRegion;
+            int hasta = Math.min(this.sucioHasta, (r + 1) * this.casillasPorRegion);
+            int inicio = this.desplazamiento(desde);
+            this.regiones.get(r).force(inicio, this.desplazamiento(hasta - 1) + this.tamCasilla - inicio);
+            desde = hasta;
+        }
+        this.sucioDesde = Integer.MAX_VALUE;
+        this.sucioHasta = 0;
+    }
+
+    /* Cuenta una operación y confirma si la política lo pide. */
+    private void registraOperacion() {
+        this.pendientes++;
+        if(this.politica.debeConfirmar(this.pendientes, this.ultimaConfirmacion)) {
+            this.confirma();
+        }
+    }
+
+    private E lee(int p) {
+        return this.codificador.lee(this.regiones.get(p / this.casillasPorRegion),
+                                    this.desplazamiento(p) + CASILLA_DATOS);
+    }
+
+    private long secuencia(int p) {
+        return this.regiones.get(p / this.casillasPorRegion)
+            .getLong(this.desplazamiento(p) + CASILLA_SECUENCIA);
+    }
+
+    /* Primer byte de la casilla p dentro de su región. */
+    private int desplazamiento(int p) {
+        return (p % this.casillasPorRegion) * this.tamCasilla;
+    }
+
+    /* CRC de la casilla p: cubre secuencia, anterior, época y datos. */
+    private int crcDeCasilla(int p) {
+        ByteBuffer copia = this.copias.get(p / this.casillasPorRegion);
+        int inicio = this.desplazamiento(p);
+        this.crc.reset();
+        copia.limit(inicio + CASILLA_CRC).position(inicio);
+        this.crc.update(copia);
+        copia.limit(inicio + CASILLA_DATOS + this.tamRegistro).position(inicio + CASILLA_DATOS);
+        this.crc.update(copia);
+        return (int) this.crc.getValue();
+    }
+
+    private int crcDeRanura(int base) {
+        this.crc.reset();
+        ByteBuffer copia = this.cabecera.duplicate();
+        copia.limit(base + RANURA_CRC).position(base);
+        this.crc.update(copia);
+        return (int) this.crc.getValue();
+    }
+
+    private void revisaCabecera(Path archivo) throws IOException {
+        if(this.canal.size() < CABECERA
+           || this.cabecera.getInt(POS_MAGICO) != MAGICO
+           || this.cabecera.getInt(POS_VERSION) != VERSION) {
+            throw new IOException("No es un archivo de pila: " + archivo);
+        }
+        int guardado = this.cabecera.getInt(POS_TAM_REGISTRO);
+        if(guardado != this.tamRegistro) {
+            throw new IOException("El archivo guarda registros de " + guardado
+                                  + " bytes, el codificador usa " + this.tamRegistro);
+        }
+    }
+
+    /* Mapea una región más al final del archivo, que crece si hace
+     * falta. */
+    private void agregaRegion() throws IOException {
+        long inicio = CABECERA + (long) this.regiones.size() * this.casillasPorRegion * this.tamCasilla;
+        MappedByteBuffer region = this.canal.map(FileChannel.MapMode.READ_WRITE, inicio,
+                                                 (long) this.casillasPorRegion * this.tamCasilla);
+        region.order(ByteOrder.LITTLE_ENDIAN);
+        this.regiones.add(region);
+        this.copias.add(region.duplicate());
+    }
+
+    private void agregaRegionSinRevisar() {
+        try {
+            this.agregaRegion();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FileLock toma(FileChannel canal) throws IOException {
+        try {
+            FileLock tomado = canal.tryLock();
+            if(tomado != null) return tomado;
+        } catch(OverlappingFileLockException e) {
+            /* Lo tiene otra pila de esta misma JVM. */
+        }
+        throw new IllegalStateException("El archivo ya está abierto por otra pila");
+    }
+
+    /* Desmapea y cierra sin confirmar. */
+    private void liberaTodo() {
+        this.cerrada = true;
+        for(MappedByteBuffer region : this.regiones) {
+            MemoriaDirecta.libera(region);
+        }
+        this.regiones.clear();
+        this.copias.clear();
+        if(this.cabecera != null) MemoriaDirecta.libera(this.cabecera);
+        this.tam = 0;
+        try {
+            this.canal.close();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void revisaAbierta() {
+        if(this.cerrada) {
+            throw new IllegalStateException("La pila está cerrada");
+        }
+    }
+
+    /* Iterador para estructura PilaMapeada, recorre del tope al
+     * fondo. */
+    private class Iterador implements Iterator<E> {
+        /* Posición del elemento siguiente a visitar */
+        private int i = tam - 1;
+
+        @Override
+        public boolean hasNext() {
+            return i >= 0;
+        }
+
+        /* Entrega el siguiente elemento de la estructura
+         * IllegalStateException - si la iteración no tiene más
+         * elementos o la pila se cerró
+         */
+        @Override
+        public E next() {
+            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
+            revisaAbierta();
+            return lee(i--);
+        }
+
+        /* No se agrega .remove() porque no es una operación
+         * soportada por la estructura */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+
+/**
+ * Pila inmutable y persistente. Las operaciones {@link #con(Object)} y
+ * {@link #sinTope()} no modifican la pila, sino que devuelven una
+ * versión nueva que comparte sus nodos con la anterior.
+ * Como ninguna versión cambia, puede compartirse entre hilos sin
+ * candados ni copias.
+ * Para construir una pila con muchos elementos se usa
+ * {@link Transitoria}, que es mutable y entrega versiones persistentes
+ * en O(1) con {@link Transitoria#instantanea()}.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - Permite elementos nulos
+ * - Permite elementos repetidos
+ * - empuja, expulsa, add y clear no se permiten (la pila es inmutable)
+ * Implementación:
+ * - Los nodos son inmutables, así que varias versiones pueden
+ *   compartir la misma cola de la cadena.
+ * - Cada nodo guarda su profundidad y el hash acumulado desde el
+ *   fondo, así que size() y hashCode() son O(1) y se leen del campo
+ *   final cabeza. Con eso una versión puede pasarse a otro hilo sin
+ *   sincronización adicional, aunque tam no sea final.
+ * - El spliterator divide la cadena en lotes (ver DivisorPorLotes) y
+ *   es IMMUTABLE, pues la versión que recorre nunca cambia.
+ */
+public class PilaPersistente<E> extends ColeccionAbstracta<E> implements IPila<E> {
+
+    /* Acceso a la pila */
+    private final Nodo<E> cabeza;
+
+    /**
+     * Construye una pila persistente vacía.
+     */
+    public PilaPersistente() {
+        this(null);
+    }
+
+    private PilaPersistente(Nodo<E> cabeza) {
+        this.cabeza = cabeza;
+        this.tam = profundidad(cabeza);
+    }
+
+    /**
+     * Devuelve una versión de la pila con e en el tope. Esta pila no
+     * cambia.
+     * @param e elemento a agregar.
+     * @return la versión nueva, que comparte todos sus nodos con ésta
+     * salvo el del tope.
+     */
+    public PilaPersistente<E> con(E e) {
+        return new PilaPersistente<>(new Nodo<>(this.cabeza, e));
+    }
+
+    /**
+     * Devuelve una versión de la pila sin el elemento del tope. Esta
+     * pila no cambia.
+     * @return la versión sin el tope, o esta misma pila si está vacía.
+     */
+    public PilaPersistente<E> sinTope() {
+        if(this.isEmpty()) return this;
+        return new PilaPersistente<>(this.cabeza.siguiente);
+    }
+
+    /**
+     * Crea una pila mutable que empieza con el contenido de esta
+     * versión, sin copiar sus nodos.
+     * @return una pila transitoria con los mismos elementos.
+     */
+    public Transitoria<E> transitoria() {
+        return new Transitoria<>(this.cabeza);
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E mira() {
+        if(this.isEmpty()) return null;
+        return this.cabeza.elemento;
+    }
+
+    @Override
+    public int size() {
+        return profundidad(this.cabeza);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashDeCadena(this.cabeza);
+    }
+
+    @Override
+    protected boolean mantieneHash() {
+        return true;
+    }
+
+    /* Métodos no permitidos por la estructura */
+
+    /**
+     * No se permite, la pila es inmutable; usar {@link #con(Object)}.
+     * @throws UnsupportedOperationException siempre.
+     */
+    public void empuja(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * No se permite, la pila es inmutable; usar {@link #sinTope()}.
+     * @throws UnsupportedOperationException siempre.
+     */
+    public E expulsa() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean add(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterador<>(this.cabeza);
+    }
+
+    /**
+     * Crea un spliterator ORDERED, SIZED, SUBSIZED e IMMUTABLE que
+     * recorre del tope al fondo y se divide en lotes.
+     * @return un spliterator sobre los elementos de esta versión.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new Divisor<>(this.cabeza);
+    }
+
+    /**
+     * Pila mutable que se construye sobre nodos inmutables. Sirve para
+     * armar una pila persistente elemento por elemento sin crear una
+     * versión intermedia en cada paso.
+     * No es segura para usarse desde varios hilos; las versiones que
+     * entrega {@link #instantanea()} sí lo son.
+     * @param <E> tipo de datos que guardará la pila.
+     */
+
+    /*
+     * Características de *esta* clase:
+     * - Permite elementos nulos
+     * - Permite elementos repetidos
+     * Implementación:
+     * - empuja crea un nodo inmutable y expulsa sólo mueve la cabeza,
+     *   por lo que ningún nodo cambia después de crearse y una
+     *   instantánea es simplemente la cabeza y el tamaño actuales.
+     */
+    public static class Transitoria<E> extends ColeccionAbstracta<E> implements IPila<E> {
+
+        /* Acceso a la pila */
+        private Nodo<E> cabeza;
+
+        /**
+         * Construye una pila transitoria vacía.
+         */
+        public Transitoria() {
+            this(null);
+        }
+
+        private Transitoria(Nodo<E> cabeza) {
+            this.cabeza = cabeza;
+            this.tam = profundidad(cabeza);
+        }
+
+        /**
+         * Entrega una versión persistente con el contenido actual en
+         * O(1). Los cambios posteriores a esta pila no la afectan.
+         * @return la versión persistente de esta pila.
+         */
+        public PilaPersistente<E> instantanea() {
+            return new PilaPersistente<>(this.cabeza);
+        }
+
+        /**
+         *{@inheritDoc}
+         */
+        public boolean add(E e) {
+            this.empuja(e);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            this.cabeza = null;
+            this.tam = 0;
+        }
+
+        /**
+         *{@inheritDoc}
+         */
+        public void empuja(E e) {
+            this.cabeza = new Nodo<>(this.cabeza, e);
+            this.tam++;
+        }
+
+        /**
+         *{@inheritDoc}
+         */
+        public E expulsa() {
+            if(this.isEmpty()) return null;
+
+            Nodo<E> eliminado = this.cabeza;
+            this.cabeza = eliminado.siguiente;
+            this.tam--;
+            return eliminado.elemento;
+        }
+
+        /**
+         *{@inheritDoc}
+         */
+        public E mira() {
+            if(this.isEmpty()) return null;
+            return this.cabeza.elemento;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterador<>(this.cabeza);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashDeCadena(this.cabeza);
+        }
+
+        @Override
+        protected boolean mantieneHash() {
+            return true;
+        }
+
+        /* Métodos no permitidos por la estructura */
+        @Override
+        public boolean remove(Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static int profundidad(Nodo<?> cabeza) {
+        return cabeza == null ? 0 : cabeza.profundidad;
+    }
+
+    private static int hashDeCadena(Nodo<?> cabeza) {
+        return cabeza == null ? 0 : cabeza.hash;
+    }
+
+    /* Iterador que recorre una cadena de nodos desde la cabeza
+     * indicada hasta el fondo. */
+    private static final class Iterador<E> implements Iterator<E> {
+        private Nodo<E> transeunte;
+
+        Iterador(Nodo<E> inicio) {
+            this.transeunte = inicio;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return transeunte != null;
+        }
+
+        /* Entrega el siguiente elemento de la estructura
+         * IllegalStateException - si la iteración no tiene más
+         * elementos
+         */
+        @Override
+        public E next() {
+            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
+            E aux = transeunte.elemento;
+            transeunte = transeunte.siguiente;
+            return aux;
+        }
+
+        /* No se agrega .remove() porque no es una operación
+         * soportada por la estructura */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /* Spliterator que recorre una cadena de nodos desde la cabeza
+     * indicada hasta el fondo. */
+    private static final class Divisor<E> extends DivisorPorLotes<E> {
+        private Nodo<E> transeunte;
+
+        Divisor(Nodo<E> inicio) {
+            super(Spliterator.IMMUTABLE);
+            this.transeunte = inicio;
+        }
+
+        @Override
+        int liga() {
+            return profundidad(this.transeunte);
+        }
+
+        @Override
+        E siguiente() {
+            E aux = this.transeunte.elemento;
+            this.transeunte = this.transeunte.siguiente;
+            return aux;
+        }
+    }
+
+    /* Nodos inmutables donde se guardan los elementos; varias versiones
+     * de la pila pueden compartirlos. */
+    private static final class Nodo<E> {
+        /* Nodo sobre el que está en la pila */
+        final Nodo<E> siguiente;
+        /* Elemento que guarda el Nodo */
+        final E elemento;
+        /* Cantidad de nodos desde éste hasta el fondo, inclusive */
+        final int profundidad;
+        /* Suma de los hash de los elementos desde éste hasta el fondo */
+        final int hash;
+
+        Nodo(Nodo<E> siguiente, E elemento) {
+            this.siguiente = siguiente;
+            this.elemento = elemento;
+            this.profundidad = profundidad(siguiente) + 1;
+            this.hash = hashDeCadena(siguiente) + hashDe(elemento);
+        }
+    }
+}
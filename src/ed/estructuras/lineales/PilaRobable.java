@@ -0,0 +1,466 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Pila de trabajo al estilo Chase-Lev para planificadores con robo de
+ * tareas. Un solo hilo, el dueño, usa la pila como pila normal con
+ * {@link #empuja(Object)}, {@link #expulsa()} y {@link #mira()}; el
+ * resto de los hilos pueden llamar {@link #roba()} en cualquier
+ * momento para llevarse el elemento más antiguo, el del fondo.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - Permite elementos nulos
+ * - Permite elementos repetidos
+ * - empuja, expulsa, mira, clear, removeAll, retainAll y el iterador
+ *   sólo deben usarse desde el hilo dueño. roba y size pueden usarse
+ *   desde cualquier hilo.
+ * - El iterador es débilmente consistente: puede o no reflejar los
+ *   robos que ocurran mientras recorre.
+ * Implementación:
+ * - Arreglo circular con dos índices que sólo crecen: inicio (el fondo,
+ *   de donde se roba) y fin (la siguiente casilla libre en el tope).
+ * - El dueño empuja y expulsa sin CAS; sólo usa CAS sobre inicio cuando
+ *   compite con un ladrón por el último elemento. Los ladrones
+ *   compiten entre sí con CAS sobre inicio.
+ * - fin y las casillas son volátiles, lo que da el orden total que
+ *   exige el algoritmo entre escribir fin y leer inicio en expulsa.
+ * - El arreglo se duplica cuando se llena; sólo el dueño lo cambia.
+ * - Los elementos nulos se guardan como NULO para que una casilla en
+ *   null signifique casilla libre. Las casillas se liberan al expulsar
+ *   o robar para no retener referencias.
+ * - empujaTodos escribe todas las casillas y publica fin una sola vez,
+ *   así que los ladrones ven el lote completo o nada de él.
+ *   expulsaVarios reserva el lote entero bajando fin una sola vez; si
+ *   el lote alcanza al fondo, donde puede competir con un ladrón,
+ *   vuelve a expulsar de uno en uno.
+ */
+public class PilaRobable<E> extends ColeccionAbstracta<E> implements IPila<E> {
+
+    /* Representa a los elementos nulos dentro del arreglo. */
+    private static final Object NULO = new Object();
+
+    /* Resultado de extrae cuando la pila estaba vacía o un ladrón se
+     * llevó el último elemento. */
+    private static final Object VACIA = new Object();
+
+    /* Capacidad inicial del arreglo circular, potencia de dos. */
+    private static final int CAPACIDAD_INICIAL = 32;
+
+    /* Índice del elemento más antiguo (fondo de la pila). */
+    private final AtomicLong inicio = new AtomicLong();
+
+    /* Índice de la siguiente casilla libre en el tope. */
+    private volatile long fin;
+
+    /* Arreglo circular; su longitud siempre es potencia de dos. */
+    private volatile AtomicReferenceArray<Object> casillas =
+        new AtomicReferenceArray<>(CAPACIDAD_INICIAL);
+
+    /* Recibe las redimensiones y los CAS fallidos si la pila está
+     * instrumentada, o null. Es volatile porque los ladrones también
+     * la usan. */
+    private volatile SondaDePila sonda;
+
+    /**
+     * Construye una pila de trabajo vacía.
+     */
+    public PilaRobable() {
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    /**
+     * Elimina todos los elementos. Sólo debe llamarlo el dueño; los
+     * robos simultáneos siguen siendo seguros.
+     */
+    @Override
+    public void clear() {
+        while(this.size() > 0) {
+            this.expulsa();
+        }
+    }
+
+    /**
+     * Agrega un elemento al tope de la pila. Sólo debe llamarlo el
+     * dueño.
+     * @param e Referencia al elemento a agregar.
+     */
+    public void empuja(E e) {
+        long f = this.fin;
+        long i = this.inicio.get();
+        AtomicReferenceArray<Object> a = this.casillas;
+        if(f - i >= a.length() - 1) {
+            a = this.crece(a, i, f);
+        }
+        a.set(indice(a, f), e == null ? NULO : e);
+        this.fin = f + 1;
+    }
+
+    /**
+     * Devuelve el elemento al tope de la pila y lo elimina. Sólo debe
+     * llamarlo el dueño.
+     * Devuelve <code>null</code> si está vacía.
+     * @return Una referencia al elemento siguiente.
+     */
+    public E expulsa() {
+        Object x = this.extrae();
+        return x == VACIA ? null : desenmascara(x);
+    }
+
+    /**
+     * Agrega los elementos al tope publicándolos todos a la vez. Sólo
+     * debe llamarlo el dueño.
+     * {@inheritDoc}
+     */
+    @Override
+    public void empujaTodos(E[] elementos, int desde, int cuantos) {
+        Objects.checkFromIndexSize(desde, cuantos, elementos.length);
+        long f = this.fin;
+        long i = this.inicio.get();
+        AtomicReferenceArray<Object> a = this.casillas;
+        while(f - i + cuantos >= a.length()) {
+            a = this.crece(a, i, f);
+        }
+        for(int j = 0; j < cuantos; j++) {
+            E e = elementos[desde + j];
+            a.set(indice(a, f + j), e == null ? NULO : e);
+        }
+        this.fin = f + cuantos;
+    }
+
+    /**
+     * Sólo debe llamarlo el dueño.
+     * {@inheritDoc}
+     */
+    @Override
+    public int expulsaVarios(int n, E[] destino) {
+        Capacidades.revisaCantidad(n, destino.length);
+        if(n == 0) return 0;
+        long f = this.fin;
+        long nuevoFin = f - n;
+        AtomicReferenceArray<Object> a = this.casillas;
+        this.fin = nuevoFin;
+        long i = this.inicio.get();
+        if(i < nuevoFin) {
+            // Ningún ladrón puede alcanzar las casillas reservadas.
+            for(int j = 0; j < n; j++) {
+                int k = indice(a, f - 1 - j);
+                destino[j] = desenmascara(a.get(k));
+                a.set(k, null);
+            }
+            return n;
+        }
+        this.fin = f;
+        int expulsados = 0;
+        while(expulsados < n) {
+            Object x = this.extrae();
+            if(x == VACIA) break;
+            destino[expulsados++] = desenmascara(x);
+        }
+        return expulsados;
+    }
+
+    /**
+     * Sólo debe llamarlo el dueño.
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int expulsaHasta(int n, Consumer<? super E> accion) {
+        Objects.requireNonNull(accion);
+        Capacidades.revisaCantidad(n, Integer.MAX_VALUE);
+        E[] expulsados = (E[]) new Object[Math.min(n, this.size())];
+        int cuantos = this.expulsaVarios(expulsados.length, expulsados);
+        for(int j = 0; j < cuantos; j++) {
+            accion.accept(expulsados[j]);
+        }
+        return cuantos;
+    }
+
+    /**
+     * Muestra el elemento al tope de la pila. Sólo debe llamarlo el
+     * dueño; si un ladrón se lleva ese elemento al mismo tiempo, el
+     * resultado puede ser un elemento que ya no está en la pila.
+     * Devuelve <code>null</code> si está vacía.
+     * @return Una referencia al elemento siguiente.
+     */
+    public E mira() {
+        long f = this.fin - 1;
+        if(this.inicio.get() > f) return null;
+        AtomicReferenceArray<Object> a = this.casillas;
+        Object x = a.get(indice(a, f));
+        return x == null ? null : desenmascara(x);
+    }
+
+    /**
+     * Devuelve el elemento del fondo de la pila (el más antiguo) y lo
+     * elimina. Puede llamarse desde cualquier hilo.
+     * Devuelve <code>null</code> si está vacía.
+     * @return el elemento robado.
+     */
+    public E roba() {
+        while(true) {
+            long i = this.inicio.get();
+            long f = this.fin;
+            if(i >= f) return null;
+            AtomicReferenceArray<Object> a = this.casillas;
+            int k = indice(a, i);
+            Object x = a.get(k);
+            if(x != null) {
+                if(this.inicio.compareAndSet(i, i + 1)) {
+                    a.compareAndSet(k, x, null);
+                    return desenmascara(x);
+                }
+                this.reintento();
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public int size() {
+        long diferencia = this.fin - this.inicio.get();
+        if(diferencia <= 0) return 0;
+        return diferencia > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) diferencia;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterador();
+    }
+
+    /* toArray se sobreescribe porque los robos pueden cambiar el tamaño
+     * entre la llamada a size() y el recorrido. */
+    /* Igual que toArray, recorre una copia; la copia es un ArrayList,
+     * así que se divide por índices. */
+    @Override
+    public Spliterator<E> spliterator() {
+        return this.copia().spliterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return this.copia().toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return this.copia().toArray(a);
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los elementos contenidos en c,
+     * conservando el orden del resto. Sólo debe llamarlo el dueño: saca
+     * todos los elementos con expulsaVarios y vuelve a empujar los que
+     * se quedan con un solo empujaTodos, así que mientras tanto los
+     * ladrones ven la pila vacía.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            boolean coleccionModificada = !this.isEmpty();
+            this.clear();
+            return coleccionModificada;
+        }
+        return this.filtra(c, false);
+    }
+
+    /**
+     * Conserva sólo los elementos contenidos en c, en el mismo orden.
+     * Sólo debe llamarlo el dueño; igual que removeAll, saca todos los
+     * elementos y vuelve a empujar los que se quedan.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Saca todos los elementos, decide cuáles se quedan y los vuelve a
+     * empujar en su orden. Si contains lanza una excepción se vuelven a
+     * empujar todos. Sólo lo llama el dueño; los robos simultáneos se
+     * resuelven en expulsaVarios.
+     * @return true si se eliminó al menos un elemento. */
+    @SuppressWarnings("unchecked")
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        Collection<?> consulta = indiceDeConsulta(c, this.size());
+        E[] sacados = (E[]) new Object[this.size()];
+        int cuantos = this.expulsaVarios(sacados.length, sacados);
+        /* expulsaVarios los deja del tope al fondo; empujaTodos los
+         * espera del fondo al tope. */
+        for(int i = 0, j = cuantos - 1; i < j; i++, j--) {
+            E aux = sacados[i];
+            sacados[i] = sacados[j];
+            sacados[j] = aux;
+        }
+        int conservados = cuantos;
+        try {
+            BitSet eliminados = new BitSet(cuantos);
+            for(int i = 0; i < cuantos; i++) {
+                if(consulta.contains(sacados[i]) != conservarContenidos) {
+                    eliminados.set(i);
+                }
+            }
+            if(eliminados.isEmpty()) return false;
+
+            conservados = 0;
+            for(int i = 0; i < cuantos; i++) {
+                if(!eliminados.get(i)) sacados[conservados++] = sacados[i];
+            }
+            return true;
+        } finally {
+            this.empujaTodos(sacados, 0, conservados);
+        }
+    }
+
+    /* Quita el tope. Sólo lo llama el dueño.
+     * @return el contenido de la casilla, o VACIA si no había
+     * elementos o un ladrón ganó el último. */
+    private Object extrae() {
+        long f = this.fin - 1;
+        AtomicReferenceArray<Object> a = this.casillas;
+        this.fin = f;
+        long i = this.inicio.get();
+        if(i > f) {
+            // Estaba vacía.
+            this.fin = f + 1;
+            return VACIA;
+        }
+        int k = indice(a, f);
+        Object x = a.get(k);
+        if(i == f) {
+            // Es el último: se compite con los ladrones por él.
+            boolean gano = this.inicio.compareAndSet(i, i + 1);
+            this.fin = f + 1;
+            if(!gano) {
+                this.reintento();
+                return VACIA;
+            }
+        }
+        a.set(k, null);
+        return x;
+    }
+
+    /* Duplica el arreglo copiando los elementos entre i y f. Sólo lo
+     * llama el dueño. */
+    private AtomicReferenceArray<Object> crece(AtomicReferenceArray<Object> a, long i, long f) {
+        int longitud = a.length() << 1;
+        if(longitud <= 0) {
+            throw new IllegalStateException("La pila alcanzó su capacidad máxima");
+        }
+        SondaDePila sonda = this.sonda;
+        if(sonda != null) sonda.redimensiono(a.length(), longitud);
+        AtomicReferenceArray<Object> nueva = new AtomicReferenceArray<>(longitud);
+        for(long k = i; k < f; k++) {
+            nueva.set(indice(nueva, k), a.get(indice(a, k)));
+        }
+        this.casillas = nueva;
+        return nueva;
+    }
+
+    /* Conecta la sonda de PilaInstrumentada. */
+    void conecta(SondaDePila sonda) {
+        this.sonda = sonda;
+    }
+
+    /* Avisa a la sonda, si hay, que un CAS falló. */
+    private void reintento() {
+        SondaDePila sonda = this.sonda;
+        if(sonda != null) sonda.reintento();
+    }
+
+    /* Copia los elementos en el orden del iterador. */
+    private ArrayList<E> copia() {
+        ArrayList<E> copia = new ArrayList<>(this.size());
+        for(E elemento : this) {
+            copia.add(elemento);
+        }
+        return copia;
+    }
+
+    private static int indice(AtomicReferenceArray<Object> a, long k) {
+        return (int) k & (a.length() - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E desenmascara(Object x) {
+        return x == NULO ? null : (E) x;
+    }
+
+    /* Iterador del tope al fondo. Las casillas que un ladrón liberó
+     * mientras se recorre se saltan. */
+    private class Iterador implements Iterator<E> {
+        private final AtomicReferenceArray<Object> a = casillas;
+        private final long limite = inicio.get();
+        /* Índice del elemento siguiente a visitar */
+        private long k = fin - 1;
+        /* Contenido de la casilla k, o null si ya no hay más */
+        private Object siguiente = this.avanza();
+
+        /* Busca desde k hacia el fondo la siguiente casilla ocupada. */
+        private Object avanza() {
+            while(k >= limite) {
+                Object x = a.get(indice(a, k--));
+                if(x != null && k + 1 >= inicio.get()) return x;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return siguiente != null;
+        }
+
+        /* Entrega el siguiente elemento de la estructura
+         * IllegalStateException - si la iteración no tiene más
+         * elementos
+         */
+        @Override
+        public E next() {
+            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
+            Object x = siguiente;
+            siguiente = this.avanza();
+            return desenmascara(x);
+        }
+
+        /* No se agrega .remove() porque no es una operación
+         * soportada por la estructura */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
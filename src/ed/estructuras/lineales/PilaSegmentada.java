@@ -0,0 +1,486 @@
+package ed.estructuras.lineales;
+
+import ed.estructuras.ColeccionAbstracta;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Pila ligada por segmentos (lista desenrollada): cada nodo es un
+ * arreglo de tamaño fijo, así que la pila crece sin copiar los
+ * elementos existentes y sin crear un nodo por elemento.
+ * @param <E> tipo de datos que guardará la pila.
+ */
+
+/*
+ * Características de *esta* clase:
+ * - Permite elementos nulos
+ * - Permite elementos repetidos
+ * Implementación:
+ * - El tope está en la casilla indice - 1 del segmento actual, y cada
+ *   segmento apunta al segmento anterior (más cercano al fondo).
+ * - El segmento actual sólo está vacío cuando toda la pila lo está:
+ *   al vaciarse, si hay un segmento anterior, pasa a ser el repuesto.
+ * - Se guarda un segmento de repuesto, de modo que una pila que oscila
+ *   alrededor del límite entre dos segmentos no pide memoria en cada
+ *   operación.
+ * - toArray copia segmento por segmento con System.arraycopy en vez de
+ *   usar el iterador elemento por elemento.
+ * - El hash se mantiene en hashAcumulado, así que hashCode es O(1).
+ * - El spliterator arma al ligarse una tabla con los arreglos de los
+ *   segmentos, del fondo al tope. Con ella la posición p está en
+ *   tabla[p / tamSegmento][p % tamSegmento] y se puede dividir por
+ *   índices exactamente a la mitad.
+ */
+public class PilaSegmentada<E> extends ColeccionAbstracta<E> implements IPila<E> {
+
+    /* Casillas por segmento cuando no se especifica un tamaño. */
+    private static final int TAM_SEGMENTO_POR_OMISION = 64;
+
+    /* Casillas que tiene cada segmento. */
+    private final int tamSegmento;
+
+    /* Segmento que contiene al tope. */
+    private Segmento actual;
+
+    /* Cantidad de casillas ocupadas en el segmento actual. */
+    private int indice;
+
+    /* Segmento vacío que se reutiliza antes de pedir uno nuevo. */
+    private Segmento repuesto;
+
+    /**
+     * Construye una pila vacía con segmentos de 64 casillas.
+     */
+    public PilaSegmentada() {
+        this(TAM_SEGMENTO_POR_OMISION);
+    }
+
+    /**
+     * Construye una pila vacía con segmentos del tamaño indicado.
+     * @param tamSegmento casillas de cada segmento.
+     * @throws IllegalArgumentException si el tamaño no es positivo.
+     */
+    public PilaSegmentada(int tamSegmento) {
+        if(tamSegmento < 1) {
+            throw new IllegalArgumentException("Tamaño de segmento inválido: " + tamSegmento);
+        }
+        this.tamSegmento = tamSegmento;
+        this.actual = new Segmento(tamSegmento, null);
+        this.indice = 0;
+        this.tam = 0;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public boolean add(E e) {
+        this.empuja(e);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        this.actual = new Segmento(this.tamSegmento, null);
+        this.indice = 0;
+        this.repuesto = null;
+        this.tam = 0;
+        this.hashAcumulado = 0;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public void empuja(E e) {
+        if(this.indice == this.tamSegmento) {
+            this.avanzaSegmento();
+        }
+        this.actual.elementos[this.indice++] = e;
+        this.tam++;
+        this.hashAcumulado += hashDe(e);
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    public E expulsa() {
+        if(this.isEmpty()) return null;
+
+        Object[] elementos = this.actual.elementos;
+        @SuppressWarnings("unchecked")
+        E eliminado = (E) elementos[--this.indice];
+        elementos[this.indice] = null;
+        this.tam--;
+        this.hashAcumulado -= hashDe(eliminado);
+
+        if(this.indice == 0) this.retrocedeSegmento();
+        return eliminado;
+    }
+
+    /**
+     * Agrega los elementos copiando a cada segmento su parte con
+     * System.arraycopy.
+     * {@inheritDoc}
+     */
+    @Override
+    public void empujaTodos(E[] elementos, int desde, int cuantos) {
+        Objects.checkFromIndexSize(desde, cuantos, elementos.length);
+        if(this.tam + (long) cuantos > Integer.MAX_VALUE) {
+            throw new IllegalStateException("La pila alcanzó su capacidad máxima");
+        }
+        int i = desde;
+        int restantes = cuantos;
+        while(restantes > 0) {
+            if(this.indice == this.tamSegmento) this.avanzaSegmento();
+            int m = Math.min(restantes, this.tamSegmento - this.indice);
+            System.arraycopy(elementos, i, this.actual.elementos, this.indice, m);
+            this.indice += m;
+            i += m;
+            restantes -= m;
+        }
+        for(int j = desde; j < desde + cuantos; j++) {
+            this.hashAcumulado += hashDe(elementos[j]);
+        }
+        this.tam += cuantos;
+    }
+
+    /**
+     * Expulsa segmento por segmento, limpiando cada tramo con una
+     * sola llamada a Arrays.fill.
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int expulsaVarios(int n, E[] destino) {
+        Capacidades.revisaCantidad(n, destino.length);
+        int expulsados = Math.min(n, this.tam);
+        int hechos = 0;
+        while(hechos < expulsados) {
+            Object[] elementos = this.actual.elementos;
+            int m = Math.min(expulsados - hechos, this.indice);
+            for(int k = 0; k < m; k++) {
+                E elemento = (E) elementos[--this.indice];
+                destino[hechos++] = elemento;
+                this.hashAcumulado -= hashDe(elemento);
+            }
+            Arrays.fill(elementos, this.indice, this.indice + m, null);
+            if(this.indice == 0) this.retrocedeSegmento();
+        }
+        this.tam -= expulsados;
+        return expulsados;
+    }
+
+    /**
+     *{@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public E mira() {
+        if(this.isEmpty()) return null;
+        return (E) this.actual.elementos[this.indice - 1];
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterador();
+    }
+
+    /**
+     * Crea un spliterator ORDERED, SIZED y SUBSIZED que recorre del
+     * tope al fondo y se divide por índices, de modo que
+     * <code>parallelStream()</code> reparte el trabajo en partes
+     * iguales.
+     * @return un spliterator sobre los elementos de la pila.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new Divisor(null, 0, -1);
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] representacion = new Object[this.tam];
+        this.copiaEnOrden(representacion);
+        return representacion;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if(a == null) {
+            throw new NullPointerException("El arreglo no puede ser nulo");
+        }
+        T[] contenedor = a.length >= this.tam ? a : Arrays.copyOf(a, this.tam);
+        this.copiaEnOrden(contenedor);
+        if(contenedor.length > this.tam) contenedor[this.tam] = null;
+        return contenedor;
+    }
+
+    /**
+     * Elimina todas las ocurrencias de los elementos contenidos en c,
+     * conservando el orden del resto. La pila se reconstruye a partir
+     * de una copia de sus elementos.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) {
+            boolean coleccionModificada = !this.isEmpty();
+            this.clear();
+            return coleccionModificada;
+        }
+        return this.filtra(c, false);
+    }
+
+    /**
+     * Conserva sólo los elementos contenidos en c, en el mismo orden.
+     * La pila se reconstruye a partir de una copia de sus elementos.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if(c == null) {
+            throw new NullPointerException();
+        }
+        if(c == this) return false;
+        return this.filtra(c, true);
+    }
+
+    @Override
+    protected boolean mantieneHash() {
+        return true;
+    }
+
+    /* Métodos no permitidos por la estructura */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /* Copia los elementos del fondo al tope, decide cuáles se quedan y
+     * vuelve a empujar éstos sobre segmentos nuevos.
+     * @return true si se eliminó al menos un elemento. */
+    @SuppressWarnings("unchecked")
+    private boolean filtra(Collection<?> c, boolean conservarContenidos) {
+        Collection<?> consulta = indiceDeConsulta(c, this.tam);
+        Object[] almacenados = new Object[this.tam];
+        this.copiaAlmacenados(almacenados);
+        int conservados = 0;
+        for(Object elemento : almacenados) {
+            if(consulta.contains(elemento) == conservarContenidos) {
+                almacenados[conservados++] = elemento;
+            }
+        }
+        if(conservados == this.tam) return false;
+
+        this.clear();
+        for(int i = 0; i < conservados; i++) {
+            this.empuja((E) almacenados[i]);
+        }
+        return true;
+    }
+
+    /* Pasa a un segmento nuevo (o al de repuesto) cuando el actual está
+     * lleno. */
+    private void avanzaSegmento() {
+        Segmento nuevo = this.repuesto;
+        if(nuevo == null) {
+            nuevo = new Segmento(this.tamSegmento, this.actual);
+        } else {
+            this.repuesto = null;
+            nuevo.anterior = this.actual;
+        }
+        this.actual = nuevo;
+        this.indice = 0;
+    }
+
+    /* Regresa al segmento anterior cuando el actual quedó vacío; el
+     * vacío se guarda como repuesto. */
+    private void retrocedeSegmento() {
+        if(this.actual.anterior == null) return;
+        Segmento vacio = this.actual;
+        this.actual = vacio.anterior;
+        vacio.anterior = null;
+        this.repuesto = vacio;
+        this.indice = this.tamSegmento;
+    }
+
+    /* Copia los elementos a las primeras tam casillas de destino en el
+     * orden en que están guardados (del fondo al tope), un segmento
+     * completo a la vez. */
+    private void copiaAlmacenados(Object[] destino) {
+        int posicion = this.tam - this.indice;
+        System.arraycopy(this.actual.elementos, 0, destino, posicion, this.indice);
+        for(Segmento s = this.actual.anterior; s != null; s = s.anterior) {
+            posicion -= this.tamSegmento;
+            System.arraycopy(s.elementos, 0, destino, posicion, this.tamSegmento);
+        }
+    }
+
+    /* Copia los elementos a las primeras tam casillas de destino en el
+     * orden del iterador (del tope al fondo): se copian en el orden en
+     * que están guardados y al final se invierte el resultado. */
+    private void copiaEnOrden(Object[] destino) {
+        this.copiaAlmacenados(destino);
+        for(int i = 0, j = this.tam - 1; i < j; i++, j--) {
+            Object aux = destino[i];
+            destino[i] = destino[j];
+            destino[j] = aux;
+        }
+    }
+
+    /* Aplica accion a cada elemento del fondo al tope, segmento por
+     * segmento. Lo usa FlujoDePilas. */
+    @SuppressWarnings("unchecked")
+    void recorreDesdeElFondo(Consumer<? super E> accion) {
+        Object[][] tabla = this.tablaDeSegmentos();
+        for(int s = 0; s < tabla.length; s++) {
+            int ocupadas = s == tabla.length - 1 ? this.indice : this.tamSegmento;
+            for(int i = 0; i < ocupadas; i++) {
+                accion.accept((E) tabla[s][i]);
+            }
+        }
+    }
+
+    /* Arreglos de los segmentos, del fondo al tope. */
+    private Object[][] tablaDeSegmentos() {
+        int cuantos = (this.tam - this.indice) / this.tamSegmento + 1;
+        Object[][] tabla = new Object[cuantos][];
+        Segmento s = this.actual;
+        for(int i = cuantos - 1; i >= 0; i--, s = s.anterior) {
+            tabla[i] = s.elementos;
+        }
+        return tabla;
+    }
+
+    /* Spliterator para estructura PilaSegmentada. Recorre las
+     * posiciones [bajo, alto) de la más alta a la más baja, es decir,
+     * del tope al fondo. Se liga a la tabla de segmentos y al tamaño en
+     * el primer uso. */
+    private class Divisor implements Spliterator<E> {
+        private Object[][] tabla;
+        private int bajo;
+        /* Posición siguiente a la del próximo elemento, o -1 si aún no
+         * se liga */
+        private int alto;
+
+        Divisor(Object[][] tabla, int bajo, int alto) {
+            this.tabla = tabla;
+            this.bajo = bajo;
+            this.alto = alto;
+        }
+
+        private int alto() {
+            if(this.alto < 0) {
+                this.tabla = tablaDeSegmentos();
+                this.alto = tam;
+            }
+            return this.alto;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super E> accion) {
+            Objects.requireNonNull(accion);
+            if(this.alto() <= this.bajo) return false;
+            int p = --this.alto;
+            accion.accept((E) this.tabla[p / tamSegmento][p % tamSegmento]);
+            return true;
+        }
+
+        /* Recorre segmento por segmento para no dividir en cada
+         * elemento. */
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> accion) {
+            Objects.requireNonNull(accion);
+            int p = this.alto();
+            while(p > this.bajo) {
+                Object[] segmento = this.tabla[(p - 1) / tamSegmento];
+                int inicioSegmento = (p - 1) / tamSegmento * tamSegmento;
+                int hasta = Math.max(this.bajo, inicioSegmento);
+                for(int i = p - inicioSegmento; p > hasta; p--) {
+                    accion.accept((E) segmento[--i]);
+                }
+            }
+            this.alto = this.bajo;
+        }
+
+        /* La mitad más cercana al tope va primero en el recorrido, así
+         * que es la que se entrega. */
+        @Override
+        public Spliterator<E> trySplit() {
+            int mitad = (this.bajo + this.alto()) >>> 1;
+            if(mitad <= this.bajo) return null;
+            Divisor tope = new Divisor(this.tabla, mitad, this.alto);
+            this.alto = mitad;
+            return tope;
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.alto() - this.bajo;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+    /* Iterador para estructura PilaSegmentada, recorre del tope al
+     * fondo segmento por segmento. */
+    private class Iterador implements Iterator<E> {
+        /* Segmento que se está recorriendo */
+        private Segmento segmento = actual;
+        /* Casilla del elemento siguiente a visitar dentro del segmento */
+        private int i = indice - 1;
+
+        @Override
+        public boolean hasNext() {
+            return i >= 0;
+        }
+
+        /* Entrega el siguiente elemento de la estructura
+         * IllegalStateException - si la iteración no tiene más
+         * elementos
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if(!this.hasNext()) throw new IllegalStateException("No hay elemento siguiente");
+            E aux = (E) segmento.elementos[i--];
+            if(i < 0 && segmento.anterior != null) {
+                segmento = segmento.anterior;
+                i = tamSegmento - 1;
+            }
+            return aux;
+        }
+
+        /* No se agrega .remove() porque no es una operación
+         * soportada por la estructura */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /* Bloque de casillas consecutivas de la pila. */
+    private static final class Segmento {
+        /* Casillas del segmento, de la más cercana al fondo a la más
+         * cercana al tope */
+        final Object[] elementos;
+        /* Segmento más cercano al fondo */
+        Segmento anterior;
+
+        Segmento(int tamSegmento, Segmento anterior) {
+            this.elementos = new Object[tamSegmento];
+            this.anterior = anterior;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ed.estructuras.lineales;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indica cada cuándo una {@link PilaMapeada} confirma sus cambios en
+ * disco (fsync). Confirmar más seguido pierde menos operaciones si el
+ * proceso termina de golpe; confirmar por lotes es mucho más rápido.
+ * <p>
+ * La política no aplica cuando un empuja cae por debajo del tope de la
+ * última confirmación: la pila confirma antes de sobreescribir esa
+ * casilla. En cargas que van vaciando la pila (más expulsa que
+ * empuja) eso puede ser una confirmación por cada empuja, con
+ * cualquier política.
+ */
+
+/*
+ * Implementación:
+ * - La política se revisa al final de cada empuja y expulsa; no hay un
+ *   hilo en segundo plano. Con cadaIntervalo, si la pila deja de
+ *   usarse, lo pendiente se confirma hasta la siguiente operación, la
+ *   siguiente llamada a confirma() o close().
+ */
+public final class PoliticaDeSincronizacion {
+
+    /* Operaciones entre confirmaciones, o 0 si no se cuentan. */
+    private final int operaciones;
+
+    /* Nanosegundos entre confirmaciones, o 0 si no se mide el tiempo. */
+    private final long intervalo;
+
+    private PoliticaDeSincronizacion(int operaciones, long intervalo) {
+        this.operaciones = operaciones;
+        this.intervalo = intervalo;
+    }
+
+    /**
+     * Confirma después de cada operación. Ninguna operación terminada
+     * se pierde, pero cada una espera a que el disco la guarde.
+     * @return la política.
+     */
+    public static PoliticaDeSincronizacion cadaOperacion() {
+        return new PoliticaDeSincronizacion(1, 0);
+    }
+
+    /**
+     * Confirma cada n operaciones.
+     * @param n operaciones por lote.
+     * @return la política.
+     * @throws IllegalArgumentException si n no es positivo.
+     */
+    public static PoliticaDeSincronizacion cadaN(int n) {
+        if(n < 1) {
+            throw new IllegalArgumentException("Cantidad de operaciones inválida: " + n);
+        }
+        return new PoliticaDeSincronizacion(n, 0);
+    }
+
+    /**
+     * Confirma en la primera operación que ocurra después de que pase
+     * el intervalo indicado desde la confirmación anterior.
+     * @param tiempo duración del intervalo.
+     * @param unidad unidad de tiempo.
+     * @return la política.
+     * @throws IllegalArgumentException si el intervalo no es positivo.
+     */
+    public static PoliticaDeSincronizacion cadaIntervalo(long tiempo, TimeUnit unidad) {
+        long nanos = unidad.toNanos(tiempo);
+        if(nanos <= 0) {
+            throw new IllegalArgumentException("Intervalo inválido: " + tiempo + " " + unidad);
+        }
+        return new PoliticaDeSincronizacion(0, nanos);
+    }
+
+    /**
+     * Sólo confirma cuando se llama a {@link PilaMapeada#confirma()} o
+     * {@link PilaMapeada#close()}.
+     * @return la política.
+     */
+    public static PoliticaDeSincronizacion manual() {
+        return new PoliticaDeSincronizacion(0, 0);
+    }
+
+    /* Indica si hay que confirmar, dadas las operaciones pendientes y
+     * el momento de la última confirmación (System.nanoTime()). */
+    boolean debeConfirmar(int pendientes, long ultimaConfirmacion) {
+        if(this.operaciones > 0 && pendientes >= this.operaciones) return true;
+        return this.intervalo > 0 && System.nanoTime() - ultimaConfirmacion >= this.intervalo;
+    }
+}
@@ -0,0 +1,54 @@
+package ed.estructuras.lineales;
+
+/*
+ * Recibe los sucesos internos de una pila que un decorador no puede
+ * ver desde afuera: redimensiones del arreglo, segmentos derramados a
+ * disco y CAS que fallaron. PilaInstrumentada la conecta a la pila que
+ * envuelve con conecta(SondaDePila); las pilas sin sonda sólo pagan
+ * revisar que el campo sea null, y sólo en esos caminos lentos.
+ */
+interface SondaDePila {
+
+    /* Se llama cuando el arreglo de la pila cambia de capacidad. */
+    void redimensiono(int capacidadAnterior, int capacidadNueva);
+
+    /* Se llama cuando un segmento con elementos casillas se manda a
+     * disco. */
+    void derramo(int elementos);
+
+    /* Se llama cada vez que un CAS sobre la pila falla y la operación
+     * se tiene que reintentar. */
+    void reintento();
+
+    /* Conecta sonda a pila si es de una clase que reporta sucesos
+     * internos; con las demás no hace nada. */
+    static void conecta(IPila<?> pila, SondaDePila sonda) {
+        if(pila instanceof PilaArreglo<?> arreglo) {
+            arreglo.conecta(sonda);
+        } else if(pila instanceof PilaConcurrente<?> concurrente) {
+            concurrente.conecta(sonda);
+        } else if(pila instanceof PilaEliminacion<?> eliminacion) {
+            eliminacion.conecta(sonda);
+        } else if(pila instanceof PilaFragmentada<?> fragmentada) {
+            fragmentada.conecta(sonda);
+        } else if(pila instanceof PilaEscalonada<?> escalonada) {
+            escalonada.conecta(sonda);
+        } else if(pila instanceof PilaBloqueante<?> bloqueante) {
+            bloqueante.conecta(sonda);
+        } else if(pila instanceof PilaRobable<?> robable) {
+            robable.conecta(sonda);
+        } else if(pila instanceof PilaInt primitiva) {
+            primitiva.conecta(sonda);
+        } else if(pila instanceof PilaLong primitiva) {
+            primitiva.conecta(sonda);
+        } else if(pila instanceof PilaDouble primitiva) {
+            primitiva.conecta(sonda);
+        } else if(pila instanceof PilaAgregadaInt agregada) {
+            agregada.conecta(sonda);
+        } else if(pila instanceof PilaAgregadaLong agregada) {
+            agregada.conecta(sonda);
+        } else if(pila instanceof PilaAgregadaDouble agregada) {
+            agregada.conecta(sonda);
+        }
+    }
+}